@@ -1,5 +1,6 @@
 package com.codename1.server.mcp.config;
 
+import com.codename1.server.mcp.tools.BlobStore;
 import com.codename1.server.mcp.tools.GlobalExtractor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,6 +28,12 @@ public class Cn1Config {
     return new GlobalExtractor(props.cacheDir(), props.libsVersionTag());
   }
 
+  /** Provides the content-addressed store for uploaded binary assets. */
+  @Bean
+  public BlobStore blobStore(GlobalExtractor extractor) {
+    return new BlobStore(extractor.cacheDir().resolve("blobs"));
+  }
+
   /** Configuration properties backing Codename One resources. */
   @ConfigurationProperties(prefix = "cn1")
   public record Cn1Props(String cacheDir, String libsVersionTag, Jdk8Props jdk8) {
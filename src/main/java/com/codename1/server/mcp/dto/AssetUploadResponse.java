@@ -0,0 +1,8 @@
+package com.codename1.server.mcp.dto;
+
+/**
+ * Result of uploading a binary asset. {@code sha256} is the handle to pass as {@code blobSha256}
+ * in later {@link FileEntry} values; {@code existed} reports whether the asset was already stored.
+ */
+public record AssetUploadResponse(
+    boolean ok, String sha256, long size, boolean existed, String log) {}
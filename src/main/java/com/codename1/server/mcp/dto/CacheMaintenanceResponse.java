@@ -0,0 +1,24 @@
+package com.codename1.server.mcp.dto;
+
+import java.util.List;
+
+/**
+ * Result of a cache maintenance sweep. Sizes cover the extracted toolchain entries; {@code
+ * skipped} lists entries that were kept because they are in use or were used recently.
+ */
+public record CacheMaintenanceResponse(
+    boolean ok,
+    long bytesBefore,
+    long bytesAfter,
+    List<String> evicted,
+    List<String> skipped,
+    String log) {
+  /**
+   * Copies the entry lists so that the response remains immutable.
+   */
+  public CacheMaintenanceResponse {
+    // SpotBugs: expose entry names as immutable lists.
+    evicted = evicted == null ? List.of() : List.copyOf(evicted);
+    skipped = skipped == null ? List.of() : List.copyOf(skipped);
+  }
+}
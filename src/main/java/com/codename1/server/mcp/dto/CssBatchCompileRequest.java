@@ -0,0 +1,19 @@
+package com.codename1.server.mcp.dto;
+
+import java.util.List;
+
+/**
+ * Request payload for compiling several themes against one shared file set. Each theme names its
+ * {@code inputPath} and optional {@code outputPath}; any {@code files} it carries are added to the
+ * shared set for that theme only.
+ */
+public record CssBatchCompileRequest(List<FileEntry> files, List<CssCompileRequest> themes) {
+  /**
+   * Copies the shared files and themes so the request cannot change while it is compiled.
+   */
+  public CssBatchCompileRequest {
+    // SpotBugs: snapshot the caller supplied lists.
+    files = files == null ? null : List.copyOf(files);
+    themes = themes == null ? null : List.copyOf(themes);
+  }
+}
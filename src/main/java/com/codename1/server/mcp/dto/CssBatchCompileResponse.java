@@ -0,0 +1,17 @@
+package com.codename1.server.mcp.dto;
+
+import java.util.List;
+
+/**
+ * Result of a batch CSS compile. {@code themes} holds one result per requested theme, in request
+ * order; {@code ok} is {@code true} only when every theme compiled.
+ */
+public record CssBatchCompileResponse(boolean ok, String log, List<CssCompileResponse> themes) {
+  /**
+   * Copies the per-theme results so that the response remains immutable.
+   */
+  public CssBatchCompileResponse {
+    // SpotBugs: expose per-theme results as an immutable list.
+    themes = themes == null ? null : List.copyOf(themes);
+  }
+}
@@ -1,4 +1,31 @@
 package com.codename1.server.mcp.dto;
 
-/** Result of compiling Codename One CSS assets. */
-public record CssCompileResponse(boolean ok, String log) {}
+import java.util.List;
+
+/**
+ * Result of compiling Codename One CSS assets. Successful compiles carry the compiled theme as
+ * base64 together with its SHA-256 digest; {@code cached} reports whether the theme was served
+ * from the theme cache without running the compiler. {@code diagnostics} lists the problems found
+ * by the in-process validator, which stops the compile when any of them is an error.
+ */
+public record CssCompileResponse(
+    boolean ok,
+    String log,
+    String themeBase64,
+    String themeSha256,
+    boolean cached,
+    List<CssDiagnostic> diagnostics) {
+
+  /**
+   * Copies the diagnostics so that the response remains immutable.
+   */
+  public CssCompileResponse {
+    // SpotBugs: expose validation diagnostics as an immutable list.
+    diagnostics = diagnostics == null ? null : List.copyOf(diagnostics);
+  }
+
+  /** Creates a response that carries no compiled theme. */
+  public CssCompileResponse(boolean ok, String log) {
+    this(ok, log, null, null, false, List.of());
+  }
+}
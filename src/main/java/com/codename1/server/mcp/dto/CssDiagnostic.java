@@ -0,0 +1,5 @@
+package com.codename1.server.mcp.dto;
+
+/** A problem found while validating a CSS file before it is handed to the theme compiler. */
+public record CssDiagnostic(
+    String file, int line, int col, String severity, String ruleId, String message) {}
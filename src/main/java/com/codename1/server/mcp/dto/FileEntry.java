@@ -1,4 +1,13 @@
 package com.codename1.server.mcp.dto;
 
-/** Represents a single in-memory file used for compilation or scaffolding. */
-public record FileEntry(String path, String content) {}
+/**
+ * Represents a single in-memory file used for compilation or scaffolding. Binary assets are
+ * uploaded separately and referenced through {@code blobSha256} instead of {@code content}.
+ */
+public record FileEntry(String path, String content, String blobSha256) {
+
+  /** Creates a text file entry. */
+  public FileEntry(String path, String content) {
+    this(path, content, null);
+  }
+}
@@ -0,0 +1,26 @@
+package com.codename1.server.mcp.dto;
+
+import java.util.List;
+
+/**
+ * Request payload for generating the stubs of several native interfaces from one set of source
+ * files, which is compiled at most once for the whole batch. {@code platforms} optionally limits
+ * the stubs of every interface to the named platforms.
+ */
+public record NativeStubBatchRequest(
+    List<FileEntry> files, List<String> interfaceNames, List<String> platforms) {
+  /**
+   * Copies the source files and interface names to keep the request immutable after submission.
+   */
+  public NativeStubBatchRequest {
+    // SpotBugs: snapshot the caller supplied lists.
+    files = files == null ? null : List.copyOf(files);
+    interfaceNames = interfaceNames == null ? null : List.copyOf(interfaceNames);
+    platforms = platforms == null ? null : List.copyOf(platforms);
+  }
+
+  /** Creates a request for the stubs of every platform. */
+  public NativeStubBatchRequest(List<FileEntry> files, List<String> interfaceNames) {
+    this(files, interfaceNames, null);
+  }
+}
@@ -0,0 +1,17 @@
+package com.codename1.server.mcp.dto;
+
+import java.util.List;
+
+/**
+ * Result of a batch stub generation. {@code interfaces} holds one result per requested interface,
+ * in request order; {@code ok} is {@code true} only when every interface succeeded.
+ */
+public record NativeStubBatchResponse(boolean ok, List<NativeStubResult> interfaces) {
+  /**
+   * Copies the per-interface results so that the response remains immutable.
+   */
+  public NativeStubBatchResponse {
+    // SpotBugs: expose per-interface results as an immutable list.
+    interfaces = interfaces == null ? null : List.copyOf(interfaces);
+  }
+}
@@ -6,14 +6,22 @@ import java.util.List;
  * Request payload for the native stub generation tool. The caller supplies the
  * Java source files that make up the compilation unit (at minimum the native
  * interface itself) along with the fully-qualified interface name that should
- * be processed.
+ * be processed. {@code platforms} optionally limits the stubs to platforms such as {@code
+ * android} or {@code ios}; all platforms are generated when it is {@code null} or empty.
  */
-public record NativeStubRequest(List<FileEntry> files, String interfaceName) {
+public record NativeStubRequest(
+    List<FileEntry> files, String interfaceName, List<String> platforms) {
   /**
    * Copies the supplied source files to keep the request immutable after submission.
    */
   public NativeStubRequest {
     // SpotBugs: retain an immutable snapshot of provided source files.
     files = files == null ? null : List.copyOf(files);
+    platforms = platforms == null ? null : List.copyOf(platforms);
+  }
+
+  /** Creates a request for the stubs of every platform. */
+  public NativeStubRequest(List<FileEntry> files, String interfaceName) {
+    this(files, interfaceName, null);
   }
 }
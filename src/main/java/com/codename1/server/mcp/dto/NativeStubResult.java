@@ -0,0 +1,18 @@
+package com.codename1.server.mcp.dto;
+
+import java.util.List;
+
+/**
+ * Stubs generated for one interface of a batch. Failed interfaces carry the reason in {@code
+ * error} and no files; {@code cached} reports whether the stubs were served from the stub cache.
+ */
+public record NativeStubResult(
+    String interfaceName, boolean ok, String error, boolean cached, List<FileEntry> files) {
+  /**
+   * Copies the generated files so that the result remains immutable.
+   */
+  public NativeStubResult {
+    // SpotBugs: expose generated files as an immutable list.
+    files = files == null ? null : List.copyOf(files);
+  }
+}
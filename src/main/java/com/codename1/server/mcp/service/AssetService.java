@@ -0,0 +1,72 @@
+package com.codename1.server.mcp.service;
+
+import com.codename1.server.mcp.dto.AssetUploadResponse;
+import com.codename1.server.mcp.tools.BlobStore;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Objects;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+/** Accepts binary assets, such as theme images and fonts, into the content-addressed store. */
+@Service
+public class AssetService {
+  private static final Logger LOG = LoggerFactory.getLogger(AssetService.class);
+
+  private final BlobStore blobs;
+
+  /**
+   * Creates the asset service.
+   *
+   * @param blobs store holding uploaded assets
+   */
+  public AssetService(BlobStore blobs) {
+    this.blobs = Objects.requireNonNull(blobs, "blobs");
+  }
+
+  /**
+   * Stores an asset, or checks for one already stored. When {@code sha256} names a stored blob the
+   * content is not decoded again, so a client may call this with only the hash to find out
+   * whether an upload is needed.
+   *
+   * @param base64 base64 encoded content, may be {@code null} when only checking a hash
+   * @param sha256 optional expected SHA-256 of the content
+   * @return the stored asset handle
+   */
+  public AssetUploadResponse upload(String base64, String sha256) {
+    String expected = BlobStore.normalize(sha256);
+    if (expected != null && !expected.isEmpty() && !BlobStore.isHash(expected)) {
+      return new AssetUploadResponse(false, null, 0, false, "Not a SHA-256 hash: " + sha256);
+    }
+    try {
+      if (expected != null && blobs.contains(expected)) {
+        long size = Files.size(blobs.require(expected));
+        return new AssetUploadResponse(true, expected, size, true, "Asset already stored");
+      }
+      if (base64 == null || base64.isEmpty()) {
+        return new AssetUploadResponse(
+            false, expected, 0, false, "Asset is not stored, upload its content");
+      }
+      BlobStore.Stored stored = blobs.putBase64(base64);
+      if (expected != null && !expected.isEmpty() && !expected.equals(stored.sha256())) {
+        return new AssetUploadResponse(
+            false,
+            stored.sha256(),
+            stored.size(),
+            stored.existed(),
+            "Content hash " + stored.sha256() + " does not match expected " + expected);
+      }
+      LOG.info(
+          "Stored asset {} ({} bytes, existed={})",
+          stored.sha256(),
+          stored.size(),
+          stored.existed());
+      return new AssetUploadResponse(
+          true, stored.sha256(), stored.size(), stored.existed(), "Asset stored");
+    } catch (IOException e) {
+      LOG.error("Asset upload failed", e);
+      return new AssetUploadResponse(false, expected, 0, false, e.toString());
+    }
+  }
+}
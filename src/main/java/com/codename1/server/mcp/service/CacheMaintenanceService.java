@@ -0,0 +1,106 @@
+package com.codename1.server.mcp.service;
+
+import com.codename1.server.mcp.dto.CacheMaintenanceResponse;
+import com.codename1.server.mcp.tools.CacheJanitor;
+import com.codename1.server.mcp.tools.GlobalExtractor;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Keeps the shared cache within its size budget by running {@link CacheJanitor} periodically in
+ * the background and on demand.
+ */
+@Service
+public class CacheMaintenanceService {
+  private static final Logger LOG = LoggerFactory.getLogger(CacheMaintenanceService.class);
+
+  private final GlobalExtractor extractor;
+  private final CacheJanitor janitor;
+  private final long intervalMinutes;
+  private ScheduledExecutorService scheduler;
+
+  /**
+   * Creates the maintenance service configured from Spring properties.
+   *
+   * @param extractor extractor owning the shared cache
+   * @param maxBytes size budget for extracted toolchains, uploaded blobs and cached themes
+   * @param intervalMinutes minutes between background sweeps, {@code 0} disables them
+   * @param minIdleMinutes entries used within this many minutes are never evicted
+   */
+  public CacheMaintenanceService(
+      GlobalExtractor extractor,
+      @Value("${cn1.cache.maxBytes:8589934592}") long maxBytes,
+      @Value("${cn1.cache.janitor.intervalMinutes:60}") long intervalMinutes,
+      @Value("${cn1.cache.janitor.minIdleMinutes:60}") long minIdleMinutes) {
+    this.extractor = extractor;
+    this.janitor =
+        new CacheJanitor(extractor.cacheDir(), maxBytes, Duration.ofMinutes(minIdleMinutes));
+    this.intervalMinutes = intervalMinutes;
+  }
+
+  /** Starts background sweeps, unless they are disabled. */
+  @PostConstruct
+  public void start() {
+    if (intervalMinutes <= 0 || scheduler != null) {
+      return;
+    }
+    scheduler =
+        Executors.newSingleThreadScheduledExecutor(
+            r -> {
+              Thread t = new Thread(r, "cn1-cache-janitor");
+              t.setDaemon(true);
+              return t;
+            });
+    scheduler.scheduleWithFixedDelay(
+        this::sweepQuietly, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+  }
+
+  /**
+   * Evicts least recently used cache entries until the cache fits its budget.
+   *
+   * @return sizes before and after together with the evicted and retained entries
+   */
+  public synchronized CacheMaintenanceResponse sweep() {
+    try {
+      CacheJanitor.Report report = janitor.sweep();
+      if (!report.evicted().isEmpty()) {
+        // Paths resolved in memory may point into evicted entries.
+        extractor.invalidate();
+      }
+      return new CacheMaintenanceResponse(
+          true,
+          report.bytesBefore(),
+          report.bytesAfter(),
+          report.evicted(),
+          report.skipped(),
+          "Evicted " + report.evicted().size() + " cache entries");
+    } catch (IOException e) {
+      LOG.error("Cache maintenance failed", e);
+      return new CacheMaintenanceResponse(false, 0, 0, null, null, e.toString());
+    }
+  }
+
+  private void sweepQuietly() {
+    CacheMaintenanceResponse response = sweep();
+    if (!response.ok()) {
+      LOG.warn("Background cache sweep failed: {}", response.log());
+    }
+  }
+
+  /** Stops background sweeps. */
+  @PreDestroy
+  public void close() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+    }
+  }
+}
@@ -1,32 +1,44 @@
 package com.codename1.server.mcp.service;
 
+import com.codename1.server.mcp.dto.CssBatchCompileRequest;
+import com.codename1.server.mcp.dto.CssBatchCompileResponse;
 import com.codename1.server.mcp.dto.CssCompileRequest;
 import com.codename1.server.mcp.dto.CssCompileResponse;
+import com.codename1.server.mcp.dto.CssDiagnostic;
 import com.codename1.server.mcp.dto.FileEntry;
+import com.codename1.server.mcp.tools.BlobStore;
+import com.codename1.server.mcp.tools.ClassDataSharing;
 import com.codename1.server.mcp.tools.GlobalExtractor;
 import com.codename1.server.mcp.tools.Jdk8ManagerFromResource;
-import com.codename1.server.mcp.util.OsUtils;
+import com.codename1.server.mcp.util.Digests;
+import jakarta.annotation.PreDestroy;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.atomic.AtomicReference;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 /** Compiles Codename One CSS assets into a binary theme. */
@@ -34,32 +46,110 @@ import org.springframework.stereotype.Service;
 public class CssCompileService {
   private static final Logger LOG = LoggerFactory.getLogger(CssCompileService.class);
   private static final Pattern URL_PATTERN = Pattern.compile("url\\(([^)]+)\\)");
-  private static final String STUB_PNG_BASE64 =
-      "iVBORw0KGgoAAAANSUhEUgAAAAEAAAABCAQAAAC1HAwCAA"
-          + "AAC0lEQVR42mP8/x8AAwMB/YoLYiQAAAAASUVORK5CYII=";
-  private static final String STUB_JPEG_BASE64 =
-      "/9j/4AAQSkZJRgABAQAAAQABAAD/2wBDAP////////////////////////////////////////"
-          + "////////////2wBDAf//////////////////////////////////////////////////////////"
-          + "////////////////////////////////////////////wAARCAABAAEDASIAAhEBAxEB/8QAFQABAQAA"
-          + "AAAAAAAAAAAAAAAAAf/xAAUEQEAAAAAAAAAAAAAAAAAAAAA/9oADAMBAAIQAxAAAAF+AP/EABQRAQAAAA"
-          + "AAAAAAAAAAAAAAAAAAD/2gAIAQEAAT8Af//EABQRAQAAAAAAAAAAAAAAAAAAAAD/2gAIAQIB"
-          + "AT8Af//EABQRAQAAAAAAAAAAAAAAAAAAAD/2gAIAQMBAT8Af//Z";
-  private static final byte[] STUB_PNG =
-      Base64.getDecoder().decode(STUB_PNG_BASE64);
-  private static final byte[] STUB_JPEG =
-      Base64.getDecoder().decode(STUB_JPEG_BASE64);
-  private static final byte[] STUB_SVG =
-      "<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"1\" height=\"1\"></svg>"
-          .getBytes(StandardCharsets.UTF_8);
 
   private final GlobalExtractor extractor;
   private final Jdk8ManagerFromResource jdk8;
-  private final Lock fontStubLock = new ReentrantLock();
-  private final AtomicReference<byte[]> fontStub = new AtomicReference<>();
+  private final CssStubAssets stubAssets;
+  private final CssThemeCache themeCache;
+  private final XvfbDisplayPool displays;
+  private final CssWorkerPool workers;
+  private final BlobStore blobs;
+  private final int batchParallelism;
 
+  /** Creates a CSS compiler that uses the default persistent worker settings. */
   public CssCompileService(GlobalExtractor extractor, Jdk8ManagerFromResource jdk8) {
+    this(extractor, jdk8, true, 2, 50, 120, 2, 90, 2);
+  }
+
+  /**
+   * Creates a CSS compiler with the given settings that keeps uploaded assets in the cache.
+   */
+  public CssCompileService(
+      GlobalExtractor extractor,
+      Jdk8ManagerFromResource jdk8,
+      boolean workerEnabled,
+      int workerPoolSize,
+      int workerMaxJobs,
+      long workerJobTimeoutSeconds,
+      int xvfbDisplays,
+      int xvfbFirstDisplay,
+      int batchParallelism) {
+    this(
+        extractor,
+        jdk8,
+        new BlobStore(extractor.cacheDir().resolve("blobs")),
+        workerEnabled,
+        workerPoolSize,
+        workerMaxJobs,
+        workerJobTimeoutSeconds,
+        xvfbDisplays,
+        xvfbFirstDisplay,
+        batchParallelism);
+  }
+
+  /**
+   * Creates a CSS compiler configured from Spring properties.
+   *
+   * @param blobs store of uploaded binary assets referenced by {@code blobSha256}
+   * @param workerEnabled whether themes are compiled by long-lived worker processes
+   * @param workerPoolSize maximum number of concurrent worker processes, limited to the number of
+   *     shared Xvfb displays when those are used
+   * @param workerMaxJobs number of jobs after which a worker process is replaced
+   * @param workerJobTimeoutSeconds time after which a hung worker is killed
+   * @param xvfbDisplays number of shared Xvfb displays on Linux, {@code 0} uses xvfb-run
+   * @param xvfbFirstDisplay lowest X display number the shared displays may claim
+   * @param batchParallelism maximum number of themes of one batch compiled at the same time
+   */
+  @Autowired
+  public CssCompileService(
+      GlobalExtractor extractor,
+      Jdk8ManagerFromResource jdk8,
+      BlobStore blobs,
+      @Value("${cn1.css.worker.enabled:true}") boolean workerEnabled,
+      @Value("${cn1.css.worker.poolSize:2}") int workerPoolSize,
+      @Value("${cn1.css.worker.maxJobs:50}") int workerMaxJobs,
+      @Value("${cn1.css.worker.jobTimeoutSeconds:120}") long workerJobTimeoutSeconds,
+      @Value("${cn1.css.xvfb.displays:2}") int xvfbDisplays,
+      @Value("${cn1.css.xvfb.firstDisplay:90}") int xvfbFirstDisplay,
+      @Value("${cn1.css.batch.parallelism:2}") int batchParallelism) {
     this.extractor = extractor;
     this.jdk8 = jdk8;
+    this.blobs = blobs;
+    this.batchParallelism = Math.max(1, batchParallelism);
+    this.themeCache = new CssThemeCache(extractor.cacheDir().resolve("css-themes"));
+    this.stubAssets = new CssStubAssets(extractor.cacheDir().resolve("css-stubs"));
+    this.displays = XvfbDisplayPool.createIfAvailable(xvfbDisplays, xvfbFirstDisplay);
+    int poolSize = workerPoolSize;
+    if (workerEnabled && displays != null && poolSize > xvfbDisplays) {
+      // Each worker holds its display for life; extra workers would only run under xvfb-run.
+      LOG.warn(
+          "cn1.css.worker.poolSize={} exceeds cn1.css.xvfb.displays={}, limiting workers to {}",
+          workerPoolSize,
+          xvfbDisplays,
+          xvfbDisplays);
+      poolSize = xvfbDisplays;
+    }
+    this.workers =
+        workerEnabled
+            ? new CssWorkerPool(
+                extractor,
+                jdk8,
+                displays,
+                poolSize,
+                workerMaxJobs,
+                TimeUnit.SECONDS.toMillis(workerJobTimeoutSeconds))
+            : null;
+  }
+
+  /** Stops any running CSS worker processes and shared displays. */
+  @PreDestroy
+  public void close() {
+    if (workers != null) {
+      workers.close();
+    }
+    if (displays != null) {
+      displays.close();
+    }
   }
 
   /**
@@ -67,89 +157,32 @@ public class CssCompileService {
    */
   public CssCompileResponse compile(CssCompileRequest request) {
     Objects.requireNonNull(request, "request");
+    List<CssDiagnostic> diagnostics = validate(request.files());
+    if (CssValidator.hasErrors(diagnostics)) {
+      return rejected(diagnostics);
+    }
     try {
       Path designerJar = extractor.ensureFile("/cn1libs/designer.jar");
-      Path javaBinary = jdk8.ensureJava8();
+      List<FileEntry> files = request.files() == null ? List.of() : List.copyOf(request.files());
+      // Keyed by the stylesheet actually compiled, which may depend on the order of the files.
+      String input = inputPath(files, request.inputPath());
+      String cacheKey =
+          CssThemeCache.key(
+              new CssCompileRequest(files, input, request.outputPath()),
+              designerVersion(designerJar));
+      CssThemeCache.Entry cached = themeCache.get(cacheKey);
+      if (cached != null) {
+        LOG.info("Serving compiled CSS theme {} from cache", cacheKey);
+        return themeResponse(cached.theme(), cached.log(), true, diagnostics);
+      }
 
       Path workDir = Files.createTempDirectory("cn1css-");
-      Path cssInput = null;
-      List<Path> cssFiles = new ArrayList<>();
       try {
-        List<FileEntry> files =
-            request.files() == null ? List.of() : List.copyOf(request.files());
-        for (FileEntry entry : files) {
-          Path resolved = safeResolve(workDir, entry.path());
-          Path parent = resolved.getParent();
-          if (parent != null) {
-            Files.createDirectories(parent);
-          }
-          Files.writeString(
-              resolved, entry.content(), StandardCharsets.UTF_8);
-          if (entry.path().equals(request.inputPath())) {
-            cssInput = resolved;
-          }
-          if (entry.path().toLowerCase(Locale.ENGLISH).endsWith(".css")) {
-            cssFiles.add(resolved);
-          }
-        }
-        if (cssFiles.isEmpty()) {
-          throw new IOException("No CSS files supplied for compilation");
-        }
-        if (cssInput == null && !cssFiles.isEmpty()) {
-          cssInput = cssFiles.get(0);
-        }
-        if (cssInput == null) {
-          throw new IOException("No CSS input file provided");
-        }
-
-        String outputName =
-            request.outputPath() != null && !request.outputPath().isBlank()
-                ? request.outputPath()
-                : "theme.res";
-        Path outputFile = safeResolve(workDir, outputName);
-        Files.deleteIfExists(outputFile);
-        Path outputParent = outputFile.getParent();
-        if (outputParent != null) {
-          Files.createDirectories(outputParent);
-        }
-
-        Files.createDirectories(workDir.resolve("target"));
-
-        for (Path cssFile : cssFiles) {
-          ensureCssResources(workDir, cssFile, designerJar);
-        }
-
-        List<String> command = new ArrayList<>();
-        if (OsUtils.isLinux()) {
-          Path xvfb = OsUtils.locateOnPath("xvfb-run");
-          if (xvfb == null) {
-            throw new IOException("xvfb-run command not available on PATH");
-          }
-          command.add(xvfb.toString());
-          command.add("-a");
-        }
-        command.add(javaBinary.toString());
-        command.add("-cp");
-        command.add(designerJar.toString());
-        command.add("com.codename1.designer.css.CN1CSSCLI");
-        command.add("-i");
-        command.add(cssInput.toString());
-        command.add("-o");
-        command.add(outputFile.toString());
-
-        LOG.info("Running CSS compiler: {}", command);
-        ProcessBuilder pb = new ProcessBuilder(command);
-        pb.directory(workDir.toFile());
-        pb.redirectErrorStream(true);
-        Process process = pb.start();
-        String log;
-        try (InputStream in = process.getInputStream()) {
-          log = new String(in.readAllBytes(), StandardCharsets.UTF_8);
-        }
-        int exit = process.waitFor();
-        boolean ok = exit == 0 && Files.exists(outputFile);
-        LOG.info("CSS compile finished with exitCode={} ok={}", exit, ok);
-        return new CssCompileResponse(ok, log);
+        writeWorkspace(workDir, files, designerJar);
+        Path cssInput = safeResolve(workDir, input);
+        Path outputFile =
+            prepareOutput(workDir, outputName(request.outputPath(), "theme.res"));
+        return compileTheme(designerJar, workDir, cssInput, outputFile, cacheKey, diagnostics);
       } finally {
         cleanup(workDir);
       }
@@ -163,6 +196,380 @@ public class CssCompileService {
     }
   }
 
+  /**
+   * Compiles several themes that share one file set. Cached themes are answered directly; the
+   * rest are written into a single workspace and compiled in parallel, at most
+   * {@code cn1.css.batch.parallelism} at a time.
+   */
+  public CssBatchCompileResponse compileBatch(CssBatchCompileRequest request) {
+    Objects.requireNonNull(request, "request");
+    List<CssCompileRequest> themes = request.themes() == null ? List.of() : request.themes();
+    if (themes.isEmpty()) {
+      return new CssBatchCompileResponse(false, "No themes supplied for compilation", List.of());
+    }
+    List<FileEntry> shared = request.files() == null ? List.of() : request.files();
+    List<CssDiagnostic> sharedDiagnostics = validate(shared);
+    CssCompileResponse[] results = new CssCompileResponse[themes.size()];
+    List<CssCompileRequest> merged = new ArrayList<>(themes.size());
+    List<List<CssDiagnostic>> diagnostics = new ArrayList<>(themes.size());
+    for (int i = 0; i < themes.size(); i++) {
+      CssCompileRequest theme = themes.get(i);
+      List<FileEntry> extra = theme.files() == null ? List.of() : theme.files();
+      List<CssDiagnostic> themeDiagnostics = new ArrayList<>(sharedDiagnostics);
+      themeDiagnostics.addAll(validate(extra));
+      diagnostics.add(themeDiagnostics);
+      List<FileEntry> files = mergeFiles(shared, extra);
+      String input = inputPath(files, theme.inputPath());
+      merged.add(
+          new CssCompileRequest(
+              files,
+              input,
+              outputName(theme.outputPath(), defaultOutputName(theme.inputPath()))));
+      boolean named = theme.inputPath() != null && !theme.inputPath().isBlank();
+      if (CssValidator.hasErrors(themeDiagnostics)) {
+        results[i] = rejected(themeDiagnostics);
+      } else if (named && !theme.inputPath().equals(input)) {
+        // The shared workspace holds the stylesheets of every theme; never compile another's.
+        results[i] = new CssCompileResponse(false, "CSS input " + theme.inputPath() + " not found");
+      } else if (input == null) {
+        results[i] = new CssCompileResponse(false, "No CSS input file provided");
+      }
+    }
+
+    Path workDir = null;
+    try {
+      Path designerJar = extractor.ensureFile("/cn1libs/designer.jar");
+      String designerVersion = designerVersion(designerJar);
+      String[] keys = new String[themes.size()];
+      List<Integer> pending = new ArrayList<>();
+      for (int i = 0; i < themes.size(); i++) {
+        if (results[i] != null) {
+          continue;
+        }
+        keys[i] = CssThemeCache.key(merged.get(i), designerVersion);
+        CssThemeCache.Entry cached = themeCache.get(keys[i]);
+        if (cached != null) {
+          results[i] = themeResponse(cached.theme(), cached.log(), true, diagnostics.get(i));
+        } else {
+          pending.add(i);
+        }
+      }
+      LOG.info(
+          "Batch CSS compile of {} themes, {} need compiling", themes.size(), pending.size());
+
+      if (!pending.isEmpty()) {
+        workDir = Files.createTempDirectory("cn1css-batch-");
+        Map<String, String> written = new HashMap<>();
+        List<FileEntry> workspace = new ArrayList<>();
+        for (int i : List.copyOf(pending)) {
+          String conflict = addFiles(written, workspace, merged.get(i).files());
+          if (conflict != null) {
+            results[i] =
+                new CssCompileResponse(
+                    false, "File " + conflict + " differs from another theme in the batch");
+            pending.remove(Integer.valueOf(i));
+          }
+        }
+        writeWorkspace(workDir, workspace, designerJar);
+        compilePending(designerJar, workDir, merged, keys, diagnostics, pending, results);
+      }
+    } catch (IOException e) {
+      LOG.error("Batch CSS compile failed", e);
+      fillMissing(results, e.toString());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      LOG.error("Batch CSS compile interrupted", e);
+      fillMissing(results, e.toString());
+    } finally {
+      cleanup(workDir);
+    }
+
+    List<CssCompileResponse> responses = List.of(results);
+    boolean ok = responses.stream().allMatch(CssCompileResponse::ok);
+    long failed = responses.stream().filter(r -> !r.ok()).count();
+    String log = ok ? "Compiled " + responses.size() + " themes" : failed + " themes failed";
+    return new CssBatchCompileResponse(ok, log, responses);
+  }
+
+  private void compilePending(
+      Path designerJar,
+      Path workDir,
+      List<CssCompileRequest> merged,
+      String[] keys,
+      List<List<CssDiagnostic>> diagnostics,
+      List<Integer> pending,
+      CssCompileResponse[] results)
+      throws InterruptedException {
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            Math.max(1, Math.min(batchParallelism, pending.size())),
+            r -> {
+              Thread t = new Thread(r, "cn1-css-batch");
+              t.setDaemon(true);
+              return t;
+            });
+    try {
+      Map<Integer, Future<CssCompileResponse>> futures = new LinkedHashMap<>();
+      for (int i : pending) {
+        CssCompileRequest theme = merged.get(i);
+        Path outputDir = workDir.resolve(".cn1-batch").resolve(Integer.toString(i));
+        futures.put(
+            i,
+            executor.submit(
+                () -> {
+                  Path cssInput = safeResolve(workDir, theme.inputPath());
+                  Path outputFile = prepareOutput(outputDir, theme.outputPath());
+                  return compileTheme(
+                      designerJar, workDir, cssInput, outputFile, keys[i], diagnostics.get(i));
+                }));
+      }
+      for (Map.Entry<Integer, Future<CssCompileResponse>> future : futures.entrySet()) {
+        try {
+          results[future.getKey()] = future.getValue().get();
+        } catch (ExecutionException e) {
+          Throwable cause = e.getCause() == null ? e : e.getCause();
+          LOG.error("CSS compile of theme {} failed", future.getKey(), cause);
+          results[future.getKey()] = new CssCompileResponse(false, cause.toString());
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private CssCompileResponse compileTheme(
+      Path designerJar,
+      Path workDir,
+      Path cssInput,
+      Path outputFile,
+      String cacheKey,
+      List<CssDiagnostic> diagnostics)
+      throws IOException, InterruptedException {
+    CompilerRun run = null;
+    if (workers != null) {
+      try {
+        run = workers.compile(designerJar, workDir, cssInput, outputFile);
+      } catch (CssWorkerPool.UnavailableException e) {
+        LOG.warn("CSS worker unavailable, falling back to a forked compiler", e);
+      } catch (IOException e) {
+        // The worker ran the job; a forked compiler would hang or fail the same way.
+        LOG.warn("CSS worker failed while compiling {}", cssInput, e);
+        return new CssCompileResponse(false, e.getMessage(), null, null, false, diagnostics);
+      }
+    }
+    if (run == null) {
+      run = runForked(designerJar, workDir, cssInput, outputFile);
+    }
+    boolean ok = run.exitCode() == 0 && Files.exists(outputFile);
+    LOG.info("CSS compile finished with exitCode={} ok={}", run.exitCode(), ok);
+    if (!ok) {
+      return new CssCompileResponse(false, run.log(), null, null, false, diagnostics);
+    }
+    byte[] theme = Files.readAllBytes(outputFile);
+    themeCache.put(cacheKey, theme, run.log());
+    return themeResponse(theme, run.log(), false, diagnostics);
+  }
+
+  /** Writes the files into the workspace, links stubs for their assets and returns the CSS. */
+  private List<Path> writeWorkspace(Path workDir, List<FileEntry> files, Path designerJar)
+      throws IOException {
+    Map<Path, String> cssSources = new LinkedHashMap<>();
+    for (FileEntry entry : files) {
+      Path resolved = safeResolve(workDir, entry.path());
+      Path parent = resolved.getParent();
+      if (parent != null) {
+        Files.createDirectories(parent);
+      }
+      if (entry.blobSha256() != null) {
+        linkBlob(entry.blobSha256(), resolved);
+        continue;
+      }
+      Files.writeString(resolved, entry.content(), StandardCharsets.UTF_8);
+      if (entry.path().toLowerCase(Locale.ENGLISH).endsWith(".css")) {
+        cssSources.put(resolved, entry.content());
+      }
+    }
+    if (cssSources.isEmpty()) {
+      throw new IOException("No CSS files supplied for compilation");
+    }
+    Files.createDirectories(workDir.resolve("target"));
+    String designerVersion = designerVersion(designerJar);
+    for (Map.Entry<Path, String> css : cssSources.entrySet()) {
+      ensureCssResources(workDir, css.getKey(), css.getValue(), designerJar, designerVersion);
+    }
+    return List.copyOf(cssSources.keySet());
+  }
+
+  /** Places an uploaded asset into the workspace, linking to the stored blob where possible. */
+  private void linkBlob(String sha256, Path target) throws IOException {
+    Path blob = blobs.require(BlobStore.normalize(sha256));
+    try {
+      Files.createSymbolicLink(target, blob);
+    } catch (IOException | UnsupportedOperationException e) {
+      LOG.debug("Copying asset {} to {} instead of linking it", blob, target, e);
+      Files.copy(blob, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * Returns the path of the stylesheet to compile: the file named by {@code inputPath}, or else
+   * the first CSS file in request order, or {@code null} if there is none.
+   */
+  static String inputPath(List<FileEntry> files, String inputPath) {
+    String first = null;
+    for (FileEntry entry : files) {
+      if (entry.path().equals(inputPath)) {
+        return entry.path();
+      }
+      if (first == null
+          && entry.blobSha256() == null
+          && entry.path().toLowerCase(Locale.ENGLISH).endsWith(".css")) {
+        first = entry.path();
+      }
+    }
+    return first;
+  }
+
+  private Path prepareOutput(Path root, String outputName) throws IOException {
+    Path outputFile = safeResolve(root, outputName);
+    Files.deleteIfExists(outputFile);
+    Path outputParent = outputFile.getParent();
+    if (outputParent != null) {
+      Files.createDirectories(outputParent);
+    }
+    return outputFile;
+  }
+
+  private static String outputName(String requested, String fallback) {
+    return requested != null && !requested.isBlank() ? requested : fallback;
+  }
+
+  private static String defaultOutputName(String inputPath) {
+    if (inputPath == null || inputPath.isBlank()) {
+      return "theme.res";
+    }
+    String name = Path.of(inputPath).getFileName().toString();
+    int dot = name.lastIndexOf('.');
+    return (dot > 0 ? name.substring(0, dot) : name) + ".res";
+  }
+
+  /** Returns the shared files with any theme specific files replacing those at the same path. */
+  private static List<FileEntry> mergeFiles(List<FileEntry> shared, List<FileEntry> extra) {
+    Map<String, FileEntry> byPath = new LinkedHashMap<>();
+    for (FileEntry entry : shared) {
+      byPath.put(entry.path(), entry);
+    }
+    for (FileEntry entry : extra) {
+      byPath.put(entry.path(), entry);
+    }
+    return List.copyOf(byPath.values());
+  }
+
+  /** Adds files to the workspace, returning the first path already present with other content. */
+  private static String addFiles(
+      Map<String, String> written, List<FileEntry> workspace, List<FileEntry> files) {
+    for (FileEntry entry : files) {
+      String existing = written.get(entry.path());
+      if (existing != null && !existing.equals(fingerprint(entry))) {
+        return entry.path();
+      }
+    }
+    for (FileEntry entry : files) {
+      if (written.putIfAbsent(entry.path(), fingerprint(entry)) == null) {
+        workspace.add(entry);
+      }
+    }
+    return null;
+  }
+
+  private static String fingerprint(FileEntry entry) {
+    return entry.blobSha256() != null
+        ? "blob:" + BlobStore.normalize(entry.blobSha256())
+        : "text:" + entry.content();
+  }
+
+  private static void fillMissing(CssCompileResponse[] results, String log) {
+    for (int i = 0; i < results.length; i++) {
+      if (results[i] == null) {
+        results[i] = new CssCompileResponse(false, log);
+      }
+    }
+  }
+
+  private static CssCompileResponse rejected(List<CssDiagnostic> diagnostics) {
+    LOG.info("CSS rejected by pre-validation with {} diagnostics", diagnostics.size());
+    return new CssCompileResponse(
+        false, CssValidator.format(diagnostics), null, null, false, diagnostics);
+  }
+
+  private static CssCompileResponse themeResponse(
+      byte[] theme, String log, boolean cached, List<CssDiagnostic> diagnostics) {
+    return new CssCompileResponse(
+        true,
+        log,
+        Base64.getEncoder().encodeToString(theme),
+        Digests.sha256Hex(theme),
+        cached,
+        diagnostics);
+  }
+
+  /** Runs the in-process validator over every stylesheet in the file set. */
+  private static List<CssDiagnostic> validate(List<FileEntry> files) {
+    if (files == null) {
+      return List.of();
+    }
+    List<CssDiagnostic> diagnostics = new ArrayList<>();
+    for (FileEntry entry : files) {
+      if (entry.blobSha256() == null
+          && entry.path() != null
+          && entry.path().toLowerCase(Locale.ENGLISH).endsWith(".css")) {
+        diagnostics.addAll(CssValidator.validate(entry.path(), entry.content()));
+      }
+    }
+    return diagnostics;
+  }
+
+  private static String designerVersion(Path designerJar) {
+    // Cached resources live in a directory named after their content hash.
+    Path dir = designerJar.getParent();
+    Path name = dir == null ? null : dir.getFileName();
+    return name == null ? designerJar.toString() : name.toString();
+  }
+
+  private CompilerRun runForked(
+      Path designerJar, Path workDir, Path cssInput, Path outputFile)
+      throws IOException, InterruptedException {
+    Path javaBinary = jdk8.ensureJava8();
+    ClassDataSharing.Launch cds = jdk8.classDataSharing(ClassDataSharing.Kind.JAVA);
+    List<String> command = new ArrayList<>();
+    Map<String, String> environment = new HashMap<>();
+    try (XvfbDisplayPool.Lease lease = XvfbDisplayPool.headless(displays, command, environment);
+        GlobalExtractor.InUse ignored = extractor.use(javaBinary, designerJar)) {
+      command.add(javaBinary.toString());
+      command.addAll(cds.options());
+      command.add("-cp");
+      command.add(designerJar.toString());
+      command.add("com.codename1.designer.css.CN1CSSCLI");
+      command.add("-i");
+      command.add(cssInput.toString());
+      command.add("-o");
+      command.add(outputFile.toString());
+
+      LOG.info("Running CSS compiler on display {}: {}", lease.display(), command);
+      ProcessBuilder pb = new ProcessBuilder(command);
+      pb.environment().putAll(environment);
+      pb.directory(workDir.toFile());
+      pb.redirectErrorStream(true);
+      Process process = pb.start();
+      cds.attach(process);
+      String log;
+      try (InputStream in = process.getInputStream()) {
+        log = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+      }
+      return new CompilerRun(process.waitFor(), log);
+    }
+  }
+
   private Path safeResolve(Path root, String relative) throws IOException {
     Path resolved = root.resolve(relative).normalize();
     if (!resolved.startsWith(root)) {
@@ -171,19 +578,18 @@ public class CssCompileService {
     return resolved;
   }
 
-  private void ensureCssResources(Path workRoot, Path cssFile, Path designerJar)
+  /** Links a stub into the workspace for every asset the stylesheet references but lacks. */
+  private void ensureCssResources(
+      Path workRoot, Path cssFile, String css, Path designerJar, String designerVersion)
       throws IOException {
-    String css = Files.readString(cssFile, StandardCharsets.UTF_8);
+    Path cssParent = cssFile.getParent();
+    if (cssParent == null) {
+      cssParent = cssFile.getFileSystem().getPath("");
+    }
     Matcher matcher = URL_PATTERN.matcher(css);
     while (matcher.find()) {
       String raw = matcher.group(1).trim();
-      if (raw.isEmpty()) {
-        continue;
-      }
-      if (raw.startsWith("data:")) {
-        continue;
-      }
-      if (raw.startsWith("#")) {
+      if (raw.isEmpty() || raw.startsWith("data:") || raw.startsWith("#")) {
         continue;
       }
       String cleaned = raw;
@@ -194,71 +600,15 @@ public class CssCompileService {
       if (cleaned.startsWith("http://") || cleaned.startsWith("https://")) {
         continue;
       }
-      Path cssParent = cssFile.getParent();
-      if (cssParent == null) {
-        cssParent = cssFile.getFileSystem().getPath("");
-      }
-      Path resolved =
-          safeResolve(workRoot, cssParent.resolve(cleaned).toString());
-      if (Files.exists(resolved)) {
+      Path resolved = safeResolve(workRoot, cssParent.resolve(cleaned).toString());
+      if (Files.exists(resolved, LinkOption.NOFOLLOW_LINKS)) {
         continue;
       }
       Path parent = resolved.getParent();
       if (parent != null) {
         Files.createDirectories(parent);
       }
-      byte[] content = stubContentFor(cleaned, designerJar);
-      Files.write(
-          resolved,
-          content,
-          StandardOpenOption.CREATE,
-          StandardOpenOption.TRUNCATE_EXISTING);
-    }
-  }
-
-  private byte[] stubContentFor(String path, Path designerJar) throws IOException {
-    String lower = path.toLowerCase(Locale.ENGLISH);
-    if (lower.endsWith(".png") || lower.endsWith(".gif")) {
-      return STUB_PNG;
-    }
-    if (lower.endsWith(".jpg") || lower.endsWith(".jpeg")) {
-      return STUB_JPEG;
-    }
-    if (lower.endsWith(".svg")) {
-      return STUB_SVG;
-    }
-    if (lower.endsWith(".ttf") || lower.endsWith(".otf")) {
-      return loadFontStub(designerJar);
-    }
-    return new byte[0];
-  }
-
-  private byte[] loadFontStub(Path designerJar) throws IOException {
-    byte[] cached = fontStub.get();
-    if (cached != null) {
-      return cached;
-    }
-    fontStubLock.lock();
-    try {
-      byte[] existing = fontStub.get();
-      if (existing != null) {
-        return existing;
-      }
-      try (InputStream in = Files.newInputStream(designerJar);
-          ZipInputStream zip = new ZipInputStream(in)) {
-        ZipEntry entry;
-        while ((entry = zip.getNextEntry()) != null) {
-          if (!entry.isDirectory()
-              && entry.getName().equals("com/codename1/impl/javase/Roboto-Regular.ttf")) {
-            byte[] data = zip.readAllBytes();
-            fontStub.set(data);
-            return data;
-          }
-        }
-      }
-      throw new IOException("Failed to locate Roboto-Regular.ttf inside designer.jar");
-    } finally {
-      fontStubLock.unlock();
+      stubAssets.link(cleaned, resolved, designerJar, designerVersion);
     }
   }
 
@@ -283,4 +633,7 @@ public class CssCompileService {
       LOG.debug("Failed to walk temporary directory {}", dir, ex);
     }
   }
+
+  /** Exit code and console output of a single CSS compiler invocation. */
+  record CompilerRun(int exitCode, String log) {}
 }
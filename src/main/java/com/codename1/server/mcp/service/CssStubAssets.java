@@ -0,0 +1,131 @@
+package com.codename1.server.mcp.service;
+
+import com.codename1.server.mcp.tools.JarResourceIndex;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Placeholder images and fonts for assets referenced by a stylesheet but not uploaded. Each stub
+ * is written once into a shared read-only directory and linked into compile workspaces.
+ */
+final class CssStubAssets {
+  private static final Logger LOG = LoggerFactory.getLogger(CssStubAssets.class);
+  private static final String STUB_PNG_BASE64 =
+      "iVBORw0KGgoAAAANSUhEUgAAAAEAAAABCAQAAAC1HAwCAA"
+          + "AAC0lEQVR42mP8/x8AAwMB/YoLYiQAAAAASUVORK5CYII=";
+  private static final String STUB_JPEG_BASE64 =
+      "/9j/4AAQSkZJRgABAQAAAQABAAD/2wBDAP////////////////////////////////////////"
+          + "////////////2wBDAf//////////////////////////////////////////////////////////"
+          + "////////////////////////////////////////////wAARCAABAAEDASIAAhEBAxEB/8QAFQABAQAA"
+          + "AAAAAAAAAAAAAAAAAf/xAAUEQEAAAAAAAAAAAAAAAAAAAAA/9oADAMBAAIQAxAAAAF+AP/EABQRAQAAAA"
+          + "AAAAAAAAAAAAAAAAAAD/2gAIAQEAAT8Af//EABQRAQAAAAAAAAAAAAAAAAAAAAD/2gAIAQIB"
+          + "AT8Af//EABQRAQAAAAAAAAAAAAAAAAAAAD/2gAIAQMBAT8Af//Z";
+  private static final String FONT_STUB_ENTRY = "com/codename1/impl/javase/Roboto-Regular.ttf";
+  private static final byte[] STUB_PNG = Base64.getDecoder().decode(STUB_PNG_BASE64);
+  private static final byte[] STUB_JPEG = Base64.getDecoder().decode(STUB_JPEG_BASE64);
+  private static final byte[] STUB_SVG =
+      "<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"1\" height=\"1\"></svg>"
+          .getBytes(StandardCharsets.UTF_8);
+
+  private final Path root;
+  private final Set<Path> materialized = ConcurrentHashMap.newKeySet();
+
+  CssStubAssets(Path root) {
+    this.root = root;
+  }
+
+  /**
+   * Places a stub for the referenced asset at {@code target}, as a link to the shared copy where
+   * the file system allows it.
+   *
+   * @param assetPath the reference as written in the stylesheet, used to pick the stub type
+   * @param target the missing workspace file to create
+   * @param designerJar designer.jar providing the stub font
+   * @param designerVersion identifier of designer.jar, separates stubs of different builds
+   */
+  void link(String assetPath, Path target, Path designerJar, String designerVersion)
+      throws IOException {
+    Path stub = stub(fileName(assetPath), designerJar, designerVersion);
+    try {
+      Files.createSymbolicLink(target, stub);
+    } catch (IOException | UnsupportedOperationException e) {
+      // Windows without the symlink privilege, or a file system without links.
+      LOG.debug("Copying stub {} to {} instead of linking it", stub, target, e);
+      Files.copy(stub, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private Path stub(String fileName, Path designerJar, String designerVersion)
+      throws IOException {
+    Path stub = root.resolve(designerVersion).resolve(fileName);
+    if (materialized.contains(stub)) {
+      return stub;
+    }
+    if (!Files.exists(stub)) {
+      byte[] content = content(fileName, designerJar);
+      Path dir = stub.getParent();
+      Files.createDirectories(dir);
+      Path tmp = Files.createTempFile(dir, ".stub", ".tmp");
+      try {
+        Files.write(tmp, content);
+        if (!tmp.toFile().setReadOnly()) {
+          LOG.debug("Could not mark stub {} read-only", stub);
+        }
+        Files.move(tmp, stub, StandardCopyOption.ATOMIC_MOVE);
+      } catch (IOException e) {
+        // Another thread or process may have published the stub first.
+        if (!Files.exists(stub)) {
+          throw e;
+        }
+      } finally {
+        Files.deleteIfExists(tmp);
+      }
+    }
+    materialized.add(stub);
+    return stub;
+  }
+
+  private static String fileName(String assetPath) {
+    String lower = assetPath.toLowerCase(Locale.ENGLISH);
+    if (lower.endsWith(".png") || lower.endsWith(".gif")) {
+      return "stub.png";
+    }
+    if (lower.endsWith(".jpg") || lower.endsWith(".jpeg")) {
+      return "stub.jpg";
+    }
+    if (lower.endsWith(".svg")) {
+      return "stub.svg";
+    }
+    if (lower.endsWith(".ttf") || lower.endsWith(".otf")) {
+      return "stub.ttf";
+    }
+    return "stub.bin";
+  }
+
+  private static byte[] content(String fileName, Path designerJar) throws IOException {
+    return switch (fileName) {
+      case "stub.png" -> STUB_PNG;
+      case "stub.jpg" -> STUB_JPEG;
+      case "stub.svg" -> STUB_SVG;
+      case "stub.ttf" -> loadFont(designerJar);
+      default -> new byte[0];
+    };
+  }
+
+  private static byte[] loadFont(Path designerJar) throws IOException {
+    byte[] font = JarResourceIndex.of(designerJar).read(FONT_STUB_ENTRY);
+    if (font == null) {
+      throw new IOException("Failed to locate Roboto-Regular.ttf inside designer.jar");
+    }
+    return font;
+  }
+}
@@ -0,0 +1,110 @@
+package com.codename1.server.mcp.service;
+
+import com.codename1.server.mcp.dto.CssCompileRequest;
+import com.codename1.server.mcp.dto.FileEntry;
+import com.codename1.server.mcp.util.Digests;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Content-addressed store of compiled themes. Entries are keyed by the designer version together
+ * with every input file, so an identical submission can be answered without starting the
+ * compiler. Hits refresh the modification time of the theme, so the cache janitor evicts the least
+ * recently used themes first.
+ */
+final class CssThemeCache {
+  private static final Logger LOG = LoggerFactory.getLogger(CssThemeCache.class);
+
+  private final Path root;
+
+  CssThemeCache(Path root) {
+    this.root = root;
+  }
+
+  /** A cached compile result. */
+  record Entry(byte[] theme, String log) {}
+
+  /**
+   * Computes the cache key for a request compiled with the given designer build. The output path
+   * only names the file the theme is written to, so it is not part of the key.
+   *
+   * @param request the compile request
+   * @param designerVersion identifier that changes whenever designer.jar changes
+   * @return the hex encoded key
+   */
+  static String key(CssCompileRequest request, String designerVersion) {
+    MessageDigest md = Digests.sha256();
+    Digests.update(md, designerVersion);
+    Digests.update(md, request.inputPath());
+    List<FileEntry> files =
+        request.files() == null ? List.of() : new ArrayList<>(request.files());
+    files.sort(
+        Comparator.comparing(FileEntry::path, Comparator.nullsFirst(Comparator.naturalOrder())));
+    for (FileEntry file : files) {
+      Digests.update(md, file.path());
+      Digests.update(md, file.content());
+      Digests.update(md, file.blobSha256());
+    }
+    return HexFormat.of().formatHex(md.digest());
+  }
+
+  /** Returns the cached theme for the key, or {@code null} on a miss. */
+  Entry get(String key) {
+    Path theme = root.resolve(key + ".res");
+    Path log = root.resolve(key + ".log");
+    try {
+      if (!Files.exists(theme) || !Files.exists(log)) {
+        return null;
+      }
+      Entry entry =
+          new Entry(Files.readAllBytes(theme), Files.readString(log, StandardCharsets.UTF_8));
+      touch(theme);
+      return entry;
+    } catch (IOException e) {
+      LOG.debug("Failed to read cached theme {}", key, e);
+      return null;
+    }
+  }
+
+  private static void touch(Path theme) {
+    try {
+      Files.setLastModifiedTime(theme, FileTime.fromMillis(System.currentTimeMillis()));
+    } catch (IOException e) {
+      LOG.debug("Failed to mark use of cached theme {}", theme, e);
+    }
+  }
+
+  /** Stores a successfully compiled theme; failures are logged and otherwise ignored. */
+  void put(String key, byte[] theme, String log) {
+    try {
+      Files.createDirectories(root);
+      // The log is written first so that a visible theme always has its log next to it.
+      write(root.resolve(key + ".log"), log.getBytes(StandardCharsets.UTF_8));
+      write(root.resolve(key + ".res"), theme);
+    } catch (IOException e) {
+      LOG.debug("Failed to cache compiled theme {}", key, e);
+    }
+  }
+
+  private void write(Path target, byte[] data) throws IOException {
+    Path tmp = Files.createTempFile(root, ".theme", ".tmp");
+    try {
+      Files.write(tmp, data);
+      Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+}
@@ -0,0 +1,612 @@
+package com.codename1.server.mcp.service;
+
+import com.codename1.server.mcp.dto.CssDiagnostic;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Fast in-process checker for Codename One CSS. It reports syntax errors and selectors that
+ * cannot name a UIID as errors, which stop the compile before the designer is started, and flags
+ * properties Codename One does not understand as warnings. The rules follow the bundled
+ * {@code static/docs/css} guides.
+ */
+final class CssValidator {
+  static final String ERROR = "error";
+  static final String WARNING = "warning";
+
+  private static final Set<String> STATES = Set.of("pressed", "selected", "unselected", "disabled");
+  private static final Set<String> SPECIAL_SELECTORS = Set.of("#Device", "#Constants");
+  private static final Pattern UIID_SELECTOR =
+      Pattern.compile("(?:[A-Za-z_][\\w-]*|\\*)?(?:[.:][A-Za-z_][\\w-]*)*");
+  private static final Pattern MEDIA_TOKEN =
+      Pattern.compile("(?:platform|density|device)-[a-z0-9-]+");
+  private static final Pattern AT_KEYWORD = Pattern.compile("@[A-Za-z-]*");
+
+  private static final Set<String> PROPERTIES =
+      Set.of(
+          "color",
+          "background",
+          "background-color",
+          "background-image",
+          "background-repeat",
+          "background-position",
+          "background-size",
+          "border",
+          "border-top",
+          "border-right",
+          "border-bottom",
+          "border-left",
+          "border-width",
+          "border-style",
+          "border-color",
+          "border-top-width",
+          "border-right-width",
+          "border-bottom-width",
+          "border-left-width",
+          "border-top-style",
+          "border-right-style",
+          "border-bottom-style",
+          "border-left-style",
+          "border-top-color",
+          "border-right-color",
+          "border-bottom-color",
+          "border-left-color",
+          "border-radius",
+          "border-top-left-radius",
+          "border-top-right-radius",
+          "border-bottom-left-radius",
+          "border-bottom-right-radius",
+          "border-image",
+          "border-image-slice",
+          "border-image-source",
+          "padding",
+          "padding-top",
+          "padding-right",
+          "padding-bottom",
+          "padding-left",
+          "margin",
+          "margin-top",
+          "margin-right",
+          "margin-bottom",
+          "margin-left",
+          "font",
+          "font-family",
+          "font-size",
+          "font-style",
+          "font-weight",
+          "text-align",
+          "text-decoration",
+          "opacity",
+          "box-shadow",
+          "width",
+          "height",
+          "cn1-derive",
+          "cn1-background-type",
+          "cn1-source-dpi",
+          "cn1-9patch",
+          "cn1-box-shadow-h",
+          "cn1-box-shadow-v",
+          "cn1-box-shadow-blur",
+          "cn1-box-shadow-spread",
+          "cn1-box-shadow-color",
+          "cn1-box-shadow-inset");
+  private static final Set<String> FONT_FACE_PROPERTIES =
+      Set.of("font-family", "src", "font-weight", "font-style");
+  private static final Set<String> DEVICE_PROPERTIES =
+      Set.of("min-resolution", "max-resolution", "resolution");
+
+  private enum Block {
+    RULE,
+    FONT_FACE,
+    CONSTANTS,
+    DEVICE
+  }
+
+  private final String file;
+  private final String css;
+  private final int[] lineStarts;
+  private final List<CssDiagnostic> diagnostics = new ArrayList<>();
+  private int pos;
+
+  private CssValidator(String file, String css) {
+    this.file = file;
+    this.css = css;
+    this.lineStarts = lineStarts(css);
+  }
+
+  /**
+   * Validates a single stylesheet.
+   *
+   * @param file path reported in diagnostics
+   * @param css the stylesheet contents
+   * @return diagnostics in source order
+   */
+  static List<CssDiagnostic> validate(String file, String css) {
+    CssValidator validator = new CssValidator(file, css == null ? "" : css);
+    validator.parseRules(-1);
+    return List.copyOf(validator.diagnostics);
+  }
+
+  /** Returns {@code true} if any of the diagnostics is an error. */
+  static boolean hasErrors(List<CssDiagnostic> diagnostics) {
+    return diagnostics.stream().anyMatch(d -> ERROR.equals(d.severity()));
+  }
+
+  /** Formats diagnostics as {@code file:line:col: severity: message} lines. */
+  static String format(List<CssDiagnostic> diagnostics) {
+    StringBuilder out = new StringBuilder();
+    for (CssDiagnostic d : diagnostics) {
+      out.append(d.file())
+          .append(':')
+          .append(d.line())
+          .append(':')
+          .append(d.col())
+          .append(": ")
+          .append(d.severity())
+          .append(": ")
+          .append(d.message())
+          .append(System.lineSeparator());
+    }
+    return out.toString();
+  }
+
+  /** Parses rules until end of input, or until the closing brace of a block opened at start. */
+  private void parseRules(int blockStart) {
+    while (true) {
+      skipTrivia();
+      if (pos >= css.length()) {
+        if (blockStart >= 0) {
+          report(blockStart, ERROR, "CN1_CSS_SYNTAX", "Unclosed @media block");
+        }
+        return;
+      }
+      char c = css.charAt(pos);
+      if (c == '}') {
+        if (blockStart >= 0) {
+          pos++;
+          return;
+        }
+        report(pos, ERROR, "CN1_CSS_SYNTAX", "Unexpected '}'");
+        pos++;
+      } else if (c == '@') {
+        parseAtRule();
+      } else {
+        parseRule();
+      }
+    }
+  }
+
+  private void parseRule() {
+    int start = pos;
+    char stop = readPrelude(false);
+    String prelude = stripComments(css.substring(start, pos));
+    if (stop != '{') {
+      report(
+          start, ERROR, "CN1_CSS_SYNTAX", "Expected '{' after selector '" + prelude.trim() + "'");
+      if (stop == ';') {
+        pos++;
+      }
+      return;
+    }
+    Block block = validateSelectors(start, css.substring(start, pos));
+    int open = pos++;
+    parseDeclarations(open, block);
+  }
+
+  private void parseAtRule() {
+    int start = pos;
+    Matcher keyword = AT_KEYWORD.matcher(css).region(pos, css.length());
+    keyword.lookingAt();
+    String name = keyword.group().toLowerCase(Locale.ROOT);
+    pos = keyword.end();
+    int preludeStart = pos;
+    char stop = readPrelude(false);
+    String prelude = stripComments(css.substring(preludeStart, pos)).trim();
+    switch (name) {
+      case "@media" -> {
+        if (stop != '{') {
+          report(start, ERROR, "CN1_CSS_SYNTAX", "Expected '{' after @media query");
+          skipStatementEnd(stop);
+          return;
+        }
+        validateMediaQuery(preludeStart, prelude);
+        int open = pos++;
+        parseRules(open);
+      }
+      case "@font-face" -> {
+        if (stop != '{') {
+          report(start, ERROR, "CN1_CSS_SYNTAX", "Expected '{' after @font-face");
+          skipStatementEnd(stop);
+          return;
+        }
+        int open = pos++;
+        parseDeclarations(open, Block.FONT_FACE);
+      }
+      case "@import", "@charset" -> {
+        if (stop == '{') {
+          report(start, ERROR, "CN1_CSS_SYNTAX", name + " does not take a block");
+          pos++;
+          skipBlock();
+        } else if (stop != ';') {
+          report(start, ERROR, "CN1_CSS_SYNTAX", "Expected ';' after " + name);
+        } else {
+          pos++;
+        }
+      }
+      default -> {
+        report(
+            start,
+            WARNING,
+            "CN1_CSS_UNSUPPORTED_AT_RULE",
+            "At-rule " + name + " is not supported by Codename One and will be ignored");
+        if (stop == '{') {
+          pos++;
+          skipBlock();
+        } else {
+          skipStatementEnd(stop);
+        }
+      }
+    }
+  }
+
+  private void parseDeclarations(int open, Block block) {
+    while (true) {
+      skipTrivia();
+      if (pos >= css.length()) {
+        report(open, ERROR, "CN1_CSS_SYNTAX", "Unclosed '{'");
+        return;
+      }
+      char c = css.charAt(pos);
+      if (c == '}') {
+        pos++;
+        return;
+      }
+      if (c == ';') {
+        pos++;
+        continue;
+      }
+      int start = pos;
+      char stop = readPrelude(true);
+      if (stop == '{') {
+        report(
+            start, ERROR, "CN1_CSS_SYNTAX", "Nested blocks are not supported in Codename One CSS");
+        pos++;
+        skipBlock();
+        continue;
+      }
+      validateDeclaration(start, stripComments(css.substring(start, pos)), block);
+      if (stop == ';') {
+        pos++;
+      }
+    }
+  }
+
+  private void validateDeclaration(int start, String declaration, Block block) {
+    int colon = topLevelColon(declaration);
+    if (colon < 0) {
+      report(
+          start,
+          ERROR,
+          "CN1_CSS_SYNTAX",
+          "Expected ':' in declaration '" + declaration.trim() + "'");
+      return;
+    }
+    String name = declaration.substring(0, colon).trim();
+    String value = declaration.substring(colon + 1).trim();
+    if (value.toLowerCase(Locale.ROOT).endsWith("!important")) {
+      value = value.substring(0, value.length() - "!important".length()).trim();
+    }
+    if (name.isEmpty()) {
+      report(start, ERROR, "CN1_CSS_SYNTAX", "Missing property name before ':'");
+      return;
+    }
+    if (value.isEmpty()) {
+      report(start, ERROR, "CN1_CSS_SYNTAX", "Missing value for property '" + name + "'");
+      return;
+    }
+    if (block == Block.CONSTANTS || name.startsWith("--")) {
+      return;
+    }
+    String lower = name.toLowerCase(Locale.ROOT);
+    Set<String> known =
+        switch (block) {
+          case FONT_FACE -> FONT_FACE_PROPERTIES;
+          case DEVICE -> DEVICE_PROPERTIES;
+          default -> PROPERTIES;
+        };
+    if (!known.contains(lower)) {
+      String suggestion = closest(lower, known);
+      report(
+          start,
+          WARNING,
+          "CN1_CSS_UNKNOWN_PROPERTY",
+          "Property '"
+              + name
+              + "' is not supported by Codename One and will be ignored"
+              + (suggestion == null ? "" : "; did you mean '" + suggestion + "'?"));
+    }
+  }
+
+  private Block validateSelectors(int start, String raw) {
+    Block block = Block.RULE;
+    int offset = 0;
+    for (String part : raw.split(",", -1)) {
+      int partStart = start + offset + leadingSpace(part);
+      offset += part.length() + 1;
+      String selector = stripComments(part).trim();
+      if (selector.isEmpty()) {
+        report(partStart, ERROR, "CN1_CSS_SELECTOR", "Empty selector");
+        continue;
+      }
+      if (SPECIAL_SELECTORS.contains(selector)) {
+        block = "#Device".equals(selector) ? Block.DEVICE : Block.CONSTANTS;
+        continue;
+      }
+      if (selector.startsWith("#")) {
+        report(
+            partStart,
+            ERROR,
+            "CN1_CSS_SELECTOR",
+            "Unknown special selector '" + selector + "'; only #Device and #Constants exist");
+        continue;
+      }
+      if (!UIID_SELECTOR.matcher(selector).matches()) {
+        report(
+            partStart,
+            ERROR,
+            "CN1_CSS_SELECTOR",
+            "Selector '"
+                + selector
+                + "' is not a UIID; Codename One does not support combinators or attribute"
+                + " selectors");
+        continue;
+      }
+      int colon = selector.indexOf(':');
+      while (colon >= 0) {
+        int end = colon + 1;
+        while (end < selector.length() && selector.charAt(end) != '.'
+            && selector.charAt(end) != ':') {
+          end++;
+        }
+        String state = selector.substring(colon + 1, end);
+        if (!STATES.contains(state)) {
+          report(
+              partStart,
+              ERROR,
+              "CN1_CSS_SELECTOR",
+              "Unsupported pseudo-class ':" + state + "'; use pressed, selected, unselected or"
+                  + " disabled");
+        }
+        colon = selector.indexOf(':', end);
+      }
+    }
+    return block;
+  }
+
+  private void validateMediaQuery(int start, String query) {
+    if (query.isEmpty()) {
+      report(start, ERROR, "CN1_CSS_SYNTAX", "Empty @media query");
+      return;
+    }
+    for (String token : query.split(",")) {
+      String trimmed = token.trim();
+      if (trimmed.isEmpty()) {
+        report(start, ERROR, "CN1_CSS_SYNTAX", "Empty term in @media query");
+      } else if (!MEDIA_TOKEN.matcher(trimmed).matches()) {
+        report(
+            start,
+            WARNING,
+            "CN1_CSS_MEDIA_QUERY",
+            "Media query term '" + trimmed + "' is not a platform-, density- or device- token");
+      }
+    }
+  }
+
+  /**
+   * Advances to the next top-level {@code '{'}, {@code '}'} or {@code ';'} (or end of input),
+   * honouring strings, comments and parentheses, and returns the stop character or {@code 0}.
+   */
+  private char readPrelude(boolean declaration) {
+    int depth = 0;
+    int parenStart = -1;
+    while (pos < css.length()) {
+      char c = css.charAt(pos);
+      if (c == '/' && pos + 1 < css.length() && css.charAt(pos + 1) == '*') {
+        skipComment();
+        continue;
+      }
+      if (c == '"' || c == '\'') {
+        skipString(c);
+        continue;
+      }
+      if (c == '(') {
+        if (depth == 0) {
+          parenStart = pos;
+        }
+        depth++;
+      } else if (c == ')') {
+        if (depth == 0) {
+          report(pos, ERROR, "CN1_CSS_SYNTAX", "Unbalanced ')'");
+        } else {
+          depth--;
+        }
+      } else if (depth == 0 && (c == '{' || c == '}' || c == ';')) {
+        return c;
+      } else if (depth > 0 && declaration && c == '}') {
+        // A closing brace inside parentheses means the ')' is missing.
+        report(parenStart, ERROR, "CN1_CSS_SYNTAX", "Unclosed '('");
+        depth = 0;
+        return c;
+      }
+      pos++;
+    }
+    if (depth > 0) {
+      report(parenStart, ERROR, "CN1_CSS_SYNTAX", "Unclosed '('");
+    }
+    return 0;
+  }
+
+  private void skipTrivia() {
+    while (pos < css.length()) {
+      char c = css.charAt(pos);
+      if (Character.isWhitespace(c)) {
+        pos++;
+      } else if (c == '/' && pos + 1 < css.length() && css.charAt(pos + 1) == '*') {
+        skipComment();
+      } else {
+        return;
+      }
+    }
+  }
+
+  private void skipComment() {
+    int end = css.indexOf("*/", pos + 2);
+    if (end < 0) {
+      report(pos, ERROR, "CN1_CSS_SYNTAX", "Unterminated comment");
+      pos = css.length();
+    } else {
+      pos = end + 2;
+    }
+  }
+
+  private void skipString(char quote) {
+    int start = pos++;
+    while (pos < css.length()) {
+      char c = css.charAt(pos);
+      if (c == '\\') {
+        pos += 2;
+        continue;
+      }
+      if (c == '\n' || c == '\r') {
+        break;
+      }
+      pos++;
+      if (c == quote) {
+        return;
+      }
+    }
+    report(start, ERROR, "CN1_CSS_SYNTAX", "Unterminated string");
+  }
+
+  private void skipBlock() {
+    int depth = 1;
+    while (pos < css.length() && depth > 0) {
+      char c = css.charAt(pos);
+      if (c == '/' && pos + 1 < css.length() && css.charAt(pos + 1) == '*') {
+        skipComment();
+        continue;
+      }
+      if (c == '"' || c == '\'') {
+        skipString(c);
+        continue;
+      }
+      if (c == '{') {
+        depth++;
+      } else if (c == '}') {
+        depth--;
+      }
+      pos++;
+    }
+  }
+
+  private void skipStatementEnd(char stop) {
+    if (stop == ';') {
+      pos++;
+    }
+  }
+
+  private void report(int offset, String severity, String ruleId, String message) {
+    int line = Arrays.binarySearch(lineStarts, offset);
+    if (line < 0) {
+      line = -line - 2;
+    }
+    int col = offset - lineStarts[line] + 1;
+    diagnostics.add(new CssDiagnostic(file, line + 1, col, severity, ruleId, message));
+  }
+
+  private static int topLevelColon(String declaration) {
+    int depth = 0;
+    char quote = 0;
+    for (int i = 0; i < declaration.length(); i++) {
+      char c = declaration.charAt(i);
+      if (quote != 0) {
+        if (c == quote) {
+          quote = 0;
+        }
+      } else if (c == '"' || c == '\'') {
+        quote = c;
+      } else if (c == '(') {
+        depth++;
+      } else if (c == ')') {
+        depth--;
+      } else if (c == ':' && depth == 0) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static String stripComments(String text) {
+    if (!text.contains("/*")) {
+      return text;
+    }
+    return text.replaceAll("(?s)/\\*.*?(\\*/|$)", " ");
+  }
+
+  private static int leadingSpace(String text) {
+    int i = 0;
+    while (i < text.length() && Character.isWhitespace(text.charAt(i))) {
+      i++;
+    }
+    return i;
+  }
+
+  private static int[] lineStarts(String text) {
+    List<Integer> starts = new ArrayList<>();
+    starts.add(0);
+    for (int i = 0; i < text.length(); i++) {
+      if (text.charAt(i) == '\n') {
+        starts.add(i + 1);
+      }
+    }
+    return starts.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  private static String closest(String name, Set<String> candidates) {
+    String best = null;
+    int bestDistance = 3;
+    for (String candidate : candidates) {
+      int distance = distance(name, candidate);
+      if (distance < bestDistance) {
+        bestDistance = distance;
+        best = candidate;
+      }
+    }
+    return best;
+  }
+
+  private static int distance(String a, String b) {
+    int[] previous = new int[b.length() + 1];
+    int[] current = new int[b.length() + 1];
+    for (int j = 0; j <= b.length(); j++) {
+      previous[j] = j;
+    }
+    for (int i = 1; i <= a.length(); i++) {
+      current[0] = i;
+      for (int j = 1; j <= b.length(); j++) {
+        int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+        current[j] =
+            Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+      }
+      int[] swap = previous;
+      previous = current;
+      current = swap;
+    }
+    return previous[b.length()];
+  }
+}
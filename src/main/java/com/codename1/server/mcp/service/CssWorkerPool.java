@@ -0,0 +1,571 @@
+package com.codename1.server.mcp.service;
+
+import com.codename1.server.mcp.tools.ClassDataSharing;
+import com.codename1.server.mcp.tools.GlobalExtractor;
+import com.codename1.server.mcp.tools.Jdk8ManagerFromResource;
+import com.codename1.server.mcp.util.Digests;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pool of long-lived JDK 8 processes that keep {@code designer.jar} loaded and compile CSS themes
+ * on demand. Jobs wait in a fair queue for a free worker. Workers are recycled when they break
+ * the protocol, time out or die, and after a configurable number of jobs; a stylesheet that fails
+ * to compile leaves its worker warm for the next job.
+ *
+ * <p>A process cannot change its working directory, so each worker runs in a scratch directory of
+ * its own. For every job the scratch directory links to the top level entries of the workspace,
+ * and anything the compiler creates next to them is moved into the workspace afterwards, so paths
+ * relative to the working directory resolve inside the workspace as they do for a forked compiler.
+ */
+final class CssWorkerPool implements AutoCloseable {
+  private static final Logger LOG = LoggerFactory.getLogger(CssWorkerPool.class);
+  private static final String WORKER_CLASS = "Cn1CssWorker";
+  private static final long STARTUP_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(60);
+  private static final long MAX_LOG_BYTES = 1L << 20;
+
+  // Compiled with the bundled JDK 8 javac, so this must stay Java 8 source.
+  private static final String WORKER_SOURCE =
+      """
+      import java.io.BufferedReader;
+      import java.io.ByteArrayOutputStream;
+      import java.io.FileDescriptor;
+      import java.io.FileOutputStream;
+      import java.io.InputStreamReader;
+      import java.io.PrintStream;
+      import java.lang.reflect.InvocationTargetException;
+      import java.lang.reflect.Method;
+      import java.nio.file.FileSystems;
+      import java.security.Permission;
+
+      public final class Cn1CssWorker {
+        private static volatile boolean exitAllowed;
+
+        private static final class ExitTrap extends SecurityException {
+          final int status;
+
+          ExitTrap(int status) {
+            super("System.exit(" + status + ")");
+            this.status = status;
+          }
+        }
+
+        public static void main(String[] args) throws Exception {
+          PrintStream protocol =
+              new PrintStream(new FileOutputStream(FileDescriptor.out), false, "UTF-8");
+          PrintStream console = System.err;
+          System.setOut(console);
+          Method cli =
+              Class.forName("com.codename1.designer.css.CN1CSSCLI")
+                  .getMethod("main", String[].class);
+          System.setSecurityManager(
+              new SecurityManager() {
+                @Override
+                public void checkPermission(Permission perm) {}
+
+                @Override
+                public void checkPermission(Permission perm, Object context) {}
+
+                @Override
+                public void checkExit(int status) {
+                  if (!exitAllowed) {
+                    throw new ExitTrap(status);
+                  }
+                }
+              });
+          String baseDir = System.getProperty("user.dir");
+          // Created lazily, the file system would resolve relative paths against the user.dir
+          // of the first job forever; created now they follow the working directory.
+          FileSystems.getDefault();
+          BufferedReader in = new BufferedReader(new InputStreamReader(System.in, "UTF-8"));
+          protocol.print("READY\\n");
+          protocol.flush();
+          String line;
+          while ((line = in.readLine()) != null) {
+            String[] job = line.split("\\t", -1);
+            ByteArrayOutputStream log = new ByteArrayOutputStream();
+            int exit = 0;
+            if (job.length != 3) {
+              log.write(("Malformed job: " + line).getBytes("UTF-8"));
+              exit = 2;
+            } else {
+              PrintStream capture = new PrintStream(log, true, "UTF-8");
+              System.setOut(capture);
+              System.setErr(capture);
+              System.setProperty("user.dir", job[0]);
+              try {
+                cli.invoke(null, (Object) new String[] {"-i", job[1], "-o", job[2]});
+              } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof ExitTrap) {
+                  exit = ((ExitTrap) cause).status;
+                } else {
+                  cause.printStackTrace(capture);
+                  exit = 1;
+                }
+              } finally {
+                capture.flush();
+                System.setOut(console);
+                System.setErr(console);
+                System.setProperty("user.dir", baseDir);
+              }
+            }
+            byte[] bytes = log.toByteArray();
+            protocol.print("DONE " + exit + " " + bytes.length + "\\n");
+            protocol.write(bytes);
+            protocol.flush();
+          }
+          exitAllowed = true;
+          System.exit(0);
+        }
+      }
+      """;
+
+  private final GlobalExtractor extractor;
+  private final Jdk8ManagerFromResource jdk8;
+  private final XvfbDisplayPool displays;
+  private final int maxJobsPerWorker;
+  private final long jobTimeoutMillis;
+  private final BlockingQueue<Slot> slots;
+  private final List<Slot> allSlots = new ArrayList<>();
+  private final Lock workerClassesLock = new ReentrantLock();
+  private final ScheduledExecutorService watchdog;
+  private final AtomicBoolean closed = new AtomicBoolean();
+
+  /**
+   * Creates a pool of lazily started workers.
+   *
+   * @param extractor cache used to store the compiled worker classes
+   * @param jdk8 resolver for the JDK 8 {@code java} and {@code javac} binaries
+   * @param displays shared Xvfb displays, or {@code null} to launch workers under xvfb-run
+   * @param size maximum number of concurrent workers
+   * @param maxJobsPerWorker number of jobs after which a worker is replaced
+   * @param jobTimeoutMillis maximum duration of a single compile before the worker is killed
+   */
+  CssWorkerPool(
+      GlobalExtractor extractor,
+      Jdk8ManagerFromResource jdk8,
+      XvfbDisplayPool displays,
+      int size,
+      int maxJobsPerWorker,
+      long jobTimeoutMillis) {
+    if (size < 1) {
+      throw new IllegalArgumentException("CSS worker pool size must be positive: " + size);
+    }
+    this.extractor = extractor;
+    this.jdk8 = jdk8;
+    this.displays = displays;
+    this.maxJobsPerWorker = Math.max(1, maxJobsPerWorker);
+    this.jobTimeoutMillis = jobTimeoutMillis;
+    this.slots = new ArrayBlockingQueue<>(size, true);
+    for (int i = 0; i < size; i++) {
+      Slot slot = new Slot();
+      allSlots.add(slot);
+      slots.add(slot);
+    }
+    this.watchdog =
+        Executors.newSingleThreadScheduledExecutor(
+            r -> {
+              Thread t = new Thread(r, "cn1-css-worker-watchdog");
+              t.setDaemon(true);
+              return t;
+            });
+  }
+
+  /**
+   * Compiles a theme on the next free worker, waiting in the queue if all workers are busy.
+   *
+   * @throws UnavailableException if no worker could take the job
+   * @throws IOException if the worker timed out or died while compiling
+   */
+  CssCompileService.CompilerRun compile(
+      Path designerJar, Path workDir, Path cssInput, Path outputFile)
+      throws IOException, InterruptedException {
+    if (closed.get()) {
+      throw new UnavailableException("CSS worker pool is closed", null);
+    }
+    for (Path path : List.of(workDir, cssInput, outputFile)) {
+      String value = path.toString();
+      if (value.indexOf('\t') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+        throw new UnavailableException("Path cannot be passed to the CSS worker: " + value, null);
+      }
+    }
+    String job = workDir + "\t" + cssInput + "\t" + outputFile;
+    Slot slot = slots.take();
+    try {
+      return slot.run(designerJar, workDir, job);
+    } finally {
+      slots.add(slot);
+    }
+  }
+
+  @Override
+  public void close() {
+    if (!closed.compareAndSet(false, true)) {
+      return;
+    }
+    for (Slot slot : allSlots) {
+      slot.retire();
+    }
+    watchdog.shutdownNow();
+  }
+
+  private Path ensureWorkerClasses() throws IOException, InterruptedException {
+    Path root = extractor.cacheDir().resolve("css-worker");
+    Path classes = root.resolve(Digests.sha256Hex(WORKER_SOURCE).substring(0, 12));
+    if (Files.exists(classes.resolve(WORKER_CLASS + ".class"))) {
+      return classes;
+    }
+    workerClassesLock.lock();
+    try {
+      if (Files.exists(classes.resolve(WORKER_CLASS + ".class"))) {
+        return classes;
+      }
+      Files.createDirectories(root);
+      Path tmp = Files.createTempDirectory(root, "tmp-");
+      try {
+        Path source = tmp.resolve(WORKER_CLASS + ".java");
+        Files.writeString(source, WORKER_SOURCE, StandardCharsets.UTF_8);
+        Path javac = jdk8.ensureJavac8();
+        ProcessBuilder pb =
+            new ProcessBuilder(
+                javac.toString(), "-nowarn", "-d", tmp.toString(), source.toString());
+        pb.redirectErrorStream(true);
+        try (GlobalExtractor.InUse ignored = extractor.use(javac)) {
+          Process process = pb.start();
+          String log;
+          try (InputStream in = process.getInputStream()) {
+            log = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+          }
+          if (process.waitFor() != 0) {
+            throw new IOException("Failed to compile CSS worker: " + log);
+          }
+        }
+        Files.delete(source);
+        try {
+          Files.move(tmp, classes, StandardCopyOption.ATOMIC_MOVE);
+          LOG.info("Compiled CSS worker into {}", classes);
+        } catch (FileAlreadyExistsException | DirectoryNotEmptyException e) {
+          // Another server process compiled the worker first; its classes are identical.
+          LOG.debug("CSS worker classes already present at {}", classes);
+        }
+      } finally {
+        cleanup(tmp);
+      }
+      return classes;
+    } finally {
+      workerClassesLock.unlock();
+    }
+  }
+
+  private Worker spawn(Path designerJar) throws IOException, InterruptedException {
+    Path classes = ensureWorkerClasses();
+    Path java = jdk8.ensureJava8();
+    ClassDataSharing.Launch cds = jdk8.classDataSharing(ClassDataSharing.Kind.JAVA);
+    List<String> command = new ArrayList<>();
+    Map<String, String> environment = new HashMap<>();
+    XvfbDisplayPool.Lease lease = XvfbDisplayPool.headless(displays, command, environment);
+    command.add(java.toString());
+    command.addAll(cds.options());
+    command.add("-cp");
+    command.add(designerJar + File.pathSeparator + classes);
+    command.add(WORKER_CLASS);
+
+    LOG.info("Starting CSS worker on display {}: {}", lease.display(), command);
+    Path log = classes.getParent().resolve("worker.log");
+    rotateLog(log);
+    Worker worker;
+    Path scratch = null;
+    // Held for the life of the worker, which keeps the JDK and designer open.
+    GlobalExtractor.InUse inUse = extractor.use(java, designerJar);
+    try {
+      scratch = Files.createTempDirectory("cn1-css-worker-");
+      ProcessBuilder pb = new ProcessBuilder(command);
+      pb.environment().putAll(environment);
+      pb.directory(scratch.toFile());
+      pb.redirectError(ProcessBuilder.Redirect.appendTo(log.toFile()));
+      worker = new Worker(pb.start(), designerJar, scratch, lease, cds, inUse);
+    } catch (IOException e) {
+      inUse.close();
+      lease.close();
+      cds.completed(false);
+      if (scratch != null) {
+        cleanup(scratch);
+      }
+      throw e;
+    }
+    try {
+      String ready = worker.readLine(STARTUP_TIMEOUT_MILLIS);
+      if (!"READY".equals(ready)) {
+        throw new IOException("Unexpected CSS worker handshake: " + ready);
+      }
+    } catch (IOException e) {
+      worker.discard();
+      throw e;
+    }
+    return worker;
+  }
+
+  /** Starts a fresh log once the log shared by all workers has outgrown its limit. */
+  private static void rotateLog(Path log) {
+    try {
+      if (Files.isRegularFile(log) && Files.size(log) > MAX_LOG_BYTES) {
+        Files.move(
+            log,
+            log.resolveSibling(log.getFileName() + ".1"),
+            StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (IOException e) {
+      // Another worker may have rotated it first; appending to the old log is harmless.
+      LOG.debug("Failed to rotate CSS worker log {}", log, e);
+    }
+  }
+
+  /**
+   * Moves the entries of the worker's scratch directory into the workspace, merging directories
+   * that exist in both.
+   */
+  private static void relocate(Path from, Path to) throws IOException {
+    try (DirectoryStream<Path> entries = Files.newDirectoryStream(from)) {
+      for (Path entry : entries) {
+        Path target = to.resolve(entry.getFileName().toString());
+        if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)
+            && Files.isDirectory(target, LinkOption.NOFOLLOW_LINKS)) {
+          relocate(entry, target);
+          Files.delete(entry);
+        } else {
+          Files.move(entry, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+      }
+    }
+  }
+
+  private static void cleanup(Path dir) {
+    if (!Files.exists(dir)) {
+      return;
+    }
+    try (var stream = Files.walk(dir)) {
+      stream
+          .sorted(Comparator.reverseOrder())
+          .forEach(
+              path -> {
+                try {
+                  Files.deleteIfExists(path);
+                } catch (IOException ex) {
+                  LOG.debug("Failed to delete CSS worker temp file {}", path, ex);
+                }
+              });
+    } catch (IOException ex) {
+      LOG.debug("Failed to clean CSS worker temp directory {}", dir, ex);
+    }
+  }
+
+  /** No worker could take the job, so it has not been attempted. */
+  static final class UnavailableException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    UnavailableException(String message, Throwable cause) {
+      super(message, cause);
+    }
+  }
+
+  /** A queue position that owns at most one worker process at a time. */
+  private final class Slot {
+    private Worker worker;
+
+    CssCompileService.CompilerRun run(Path designerJar, Path workDir, String job)
+        throws IOException, InterruptedException {
+      if (worker == null || !worker.isAlive() || !worker.designerJar.equals(designerJar)) {
+        retire();
+        try {
+          worker = spawn(designerJar);
+        } catch (IOException e) {
+          throw new UnavailableException("CSS worker could not be started", e);
+        }
+      }
+      boolean healthy = false;
+      try {
+        CssCompileService.CompilerRun run = worker.submit(job, workDir, jobTimeoutMillis);
+        // A nonzero exit is the compiler rejecting the stylesheet; the worker answered properly.
+        healthy = worker.isAlive();
+        return run;
+      } finally {
+        if (!healthy || worker.jobs >= maxJobsPerWorker) {
+          LOG.debug("Recycling CSS worker after {} jobs (healthy={})", worker.jobs, healthy);
+          retire();
+        }
+      }
+    }
+
+    void retire() {
+      if (worker != null) {
+        worker.discard();
+        worker = null;
+      }
+    }
+  }
+
+  /** A single JDK 8 worker process speaking the line protocol of {@code Cn1CssWorker}. */
+  private final class Worker {
+    private final Process process;
+    private final Path designerJar;
+    private final Path scratch;
+    private final XvfbDisplayPool.Lease lease;
+    private final ClassDataSharing.Launch cds;
+    private final GlobalExtractor.InUse inUse;
+    private final InputStream out;
+    private final OutputStream in;
+    private int jobs;
+    private volatile boolean killed;
+
+    Worker(
+        Process process,
+        Path designerJar,
+        Path scratch,
+        XvfbDisplayPool.Lease lease,
+        ClassDataSharing.Launch cds,
+        GlobalExtractor.InUse inUse) {
+      this.process = process;
+      this.designerJar = designerJar;
+      this.scratch = scratch;
+      this.lease = lease;
+      this.cds = cds;
+      this.inUse = inUse;
+      this.out = new BufferedInputStream(process.getInputStream());
+      this.in = process.getOutputStream();
+    }
+
+    boolean isAlive() {
+      return !killed && process.isAlive();
+    }
+
+    CssCompileService.CompilerRun submit(String job, Path workDir, long timeoutMillis)
+        throws IOException {
+      List<Path> links = new ArrayList<>();
+      try {
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(workDir)) {
+          for (Path entry : entries) {
+            links.add(
+                Files.createSymbolicLink(scratch.resolve(entry.getFileName().toString()), entry));
+          }
+        } catch (IOException | UnsupportedOperationException e) {
+          // Without links only files the compiler creates end up in the workspace.
+          LOG.debug("Failed to link workspace {} into {}", workDir, scratch, e);
+        }
+        return exchange(job, timeoutMillis);
+      } finally {
+        try {
+          for (Path link : links) {
+            Files.deleteIfExists(link);
+          }
+          relocate(scratch, workDir);
+        } catch (IOException e) {
+          // A scratch directory left dirty would leak into the next job; the slot replaces us.
+          LOG.warn("Failed to move CSS worker output from {} into {}", scratch, workDir, e);
+          kill();
+        }
+      }
+    }
+
+    private CssCompileService.CompilerRun exchange(String job, long timeoutMillis)
+        throws IOException {
+      jobs++;
+      in.write((job + "\n").getBytes(StandardCharsets.UTF_8));
+      in.flush();
+      String header = readLine(timeoutMillis);
+      String[] parts = header.split(" ");
+      if (parts.length != 3 || !"DONE".equals(parts[0])) {
+        throw new IOException("Unexpected CSS worker response: " + header);
+      }
+      int exit;
+      int length;
+      try {
+        exit = Integer.parseInt(parts[1]);
+        length = Integer.parseInt(parts[2]);
+      } catch (NumberFormatException e) {
+        throw new IOException("Unexpected CSS worker response: " + header, e);
+      }
+      byte[] log = out.readNBytes(length);
+      if (log.length != length) {
+        throw new IOException("CSS worker exited while sending its log");
+      }
+      if (exit == 0) {
+        // Workers are killed rather than stopped, so a finished job ends a training run.
+        cds.completed(true);
+      }
+      return new CssCompileService.CompilerRun(exit, new String(log, StandardCharsets.UTF_8));
+    }
+
+    String readLine(long timeoutMillis) throws IOException {
+      // Set before the kill: the worker's output may end while the timer is still running.
+      AtomicBoolean timedOut = new AtomicBoolean();
+      ScheduledFuture<?> timer =
+          watchdog.schedule(
+              () -> {
+                timedOut.set(true);
+                kill();
+              },
+              timeoutMillis,
+              TimeUnit.MILLISECONDS);
+      try {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = out.read()) != -1 && b != '\n') {
+          line.write(b);
+        }
+        if (b == -1) {
+          throw new IOException(
+              timedOut.get()
+                  ? "CSS worker timed out after " + timeoutMillis + " ms"
+                  : "CSS worker exited unexpectedly");
+        }
+        return line.toString(StandardCharsets.UTF_8);
+      } finally {
+        timer.cancel(false);
+      }
+    }
+
+    void kill() {
+      killed = true;
+      process.descendants().forEach(ProcessHandle::destroyForcibly);
+      process.destroyForcibly();
+      lease.close();
+      cds.completed(false);
+      inUse.close();
+    }
+
+    /** Kills the worker and removes its scratch directory. */
+    void discard() {
+      kill();
+      cleanup(scratch);
+    }
+  }
+}
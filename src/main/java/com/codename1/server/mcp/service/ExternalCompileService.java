@@ -3,6 +3,7 @@ package com.codename1.server.mcp.service;
 import com.codename1.server.mcp.dto.CompileRequest;
 import com.codename1.server.mcp.dto.CompileResponse;
 import com.codename1.server.mcp.dto.FileEntry;
+import com.codename1.server.mcp.tools.ClassDataSharing;
 import com.codename1.server.mcp.tools.GlobalExtractor;
 import com.codename1.server.mcp.tools.Jdk8ManagerFromResource;
 import java.io.IOException;
@@ -45,6 +46,7 @@ public class ExternalCompileService {
       // Use bundled JDK 8
       Path javac = jdk8.ensureJavac8();
       LOG.debug("Resolved javac path: {}", javac);
+      ClassDataSharing.Launch cds = jdk8.classDataSharing(ClassDataSharing.Kind.JAVAC);
 
       // Write sources
       Path work = Files.createTempDirectory("cn1c-");
@@ -61,19 +63,20 @@ public class ExternalCompileService {
         sources.add(p);
       }
 
-      List<String> cmd =
-          new ArrayList<>(
-              List.of(
-                  javac.toString(),
-                  "-source",
-                  "8",
-                  "-target",
-                  "8",
-                  "-Xlint:all",
-                  "-extdirs",
-                  "",
-                  "-classpath",
-                  cn1.toString()));
+      List<String> cmd = new ArrayList<>();
+      cmd.add(javac.toString());
+      cmd.addAll(cds.options());
+      cmd.addAll(
+          List.of(
+              "-source",
+              "8",
+              "-target",
+              "8",
+              "-Xlint:all",
+              "-extdirs",
+              "",
+              "-classpath",
+              cn1.toString()));
       if (Files.exists(boot)) {
         cmd.addAll(List.of("-bootclasspath", boot.toString()));
       }
@@ -83,12 +86,16 @@ public class ExternalCompileService {
       ProcessBuilder pb = new ProcessBuilder(cmd);
       pb.directory(work.toFile());
       pb.redirectErrorStream(true);
-      Process pr = pb.start();
       String out;
-      try (InputStream is = pr.getInputStream()) {
-        out = new String(is.readAllBytes(), StandardCharsets.UTF_8);
+      int code;
+      try (GlobalExtractor.InUse ignored = extractor.use(javac, cn1, boot)) {
+        Process pr = pb.start();
+        cds.attach(pr);
+        try (InputStream is = pr.getInputStream()) {
+          out = new String(is.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        code = pr.waitFor();
       }
-      int code = pr.waitFor();
       boolean ok = code == 0 && !out.toLowerCase(Locale.ENGLISH).contains("error:");
       LOG.info("Compile finished with exitCode={} success={}", code, ok);
       return new CompileResponse(ok, out, List.of());
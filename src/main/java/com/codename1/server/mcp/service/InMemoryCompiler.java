@@ -0,0 +1,250 @@
+package com.codename1.server.mcp.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+
+/**
+ * Compiles Java sources held in memory and loads the resulting classes straight from the
+ * captured bytes, so neither the sources nor the class files ever touch the disk. The compiler and
+ * its file manager are kept across compilations, so the platform classes and any class path jars
+ * are indexed once; compilations take turns on them.
+ */
+final class InMemoryCompiler implements AutoCloseable {
+  private final JavaCompiler compiler;
+  private final StandardJavaFileManager fileManager;
+  private final ReentrantLock lock = new ReentrantLock();
+
+  /**
+   * Creates a compiler.
+   *
+   * @param compiler the system compiler
+   */
+  InMemoryCompiler(JavaCompiler compiler) {
+    this.compiler = Objects.requireNonNull(compiler, "compiler");
+    this.fileManager = compiler.getStandardFileManager(null, Locale.ROOT, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Compiles the sources against nothing but the platform, the given jars and the given classes.
+   *
+   * @param sources source text keyed by its {@code /} separated path, e.g. {@code a/B.java}
+   * @param classPath jars and directories on the class path
+   * @param libraries compiled classes on the class path, keyed by binary class name
+   * @param options further compiler options
+   * @return class file bytes keyed by binary class name
+   * @throws IllegalArgumentException if compilation fails, with the diagnostics as message
+   */
+  Map<String, byte[]> compile(
+      Map<String, String> sources,
+      List<Path> classPath,
+      Map<String, byte[]> libraries,
+      List<String> options)
+      throws IOException {
+    List<JavaFileObject> units = new ArrayList<>();
+    sources.forEach((path, content) -> units.add(new Source(path, content)));
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    lock.lock();
+    try {
+      // An empty class path keeps javac from falling back to the server's own class path.
+      fileManager.setLocationFromPaths(StandardLocation.CLASS_PATH, classPath);
+      ClassCapture capture = new ClassCapture(fileManager, libraries);
+      JavaCompiler.CompilationTask task =
+          compiler.getTask(null, capture, diagnostics, options, null, units);
+      if (!Boolean.TRUE.equals(task.call())) {
+        StringBuilder message = new StringBuilder("Compilation failed:" + System.lineSeparator());
+        diagnostics
+            .getDiagnostics()
+            .forEach(d -> message.append(d).append(System.lineSeparator()));
+        throw new IllegalArgumentException(message.toString());
+      }
+      return capture.classes();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    lock.lock();
+    try {
+      fileManager.close();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** A source file backed by a string. */
+  private static final class Source extends SimpleJavaFileObject {
+    private final String content;
+
+    Source(String path, String content) {
+      super(URI.create("string:///" + path), Kind.SOURCE);
+      this.content = content == null ? "" : content;
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+      return content;
+    }
+  }
+
+  /** A class file collected in memory once the compiler closes it. */
+  private static final class ClassOutput extends SimpleJavaFileObject {
+    private final String className;
+    private final Map<String, byte[]> sink;
+
+    ClassOutput(String className, Map<String, byte[]> sink) {
+      super(URI.create("bytes:///" + className.replace('.', '/') + ".class"), Kind.CLASS);
+      this.className = className;
+      this.sink = sink;
+    }
+
+    @Override
+    public OutputStream openOutputStream() {
+      return new ByteArrayOutputStream() {
+        @Override
+        public void close() throws IOException {
+          super.close();
+          sink.put(className, toByteArray());
+        }
+      };
+    }
+  }
+
+  /** A compiled class offered to the compiler from memory. */
+  private static final class ClassInput extends SimpleJavaFileObject {
+    private final String className;
+    private final byte[] bytes;
+
+    ClassInput(String className, byte[] bytes) {
+      super(URI.create("bytes:///" + className.replace('.', '/') + ".class"), Kind.CLASS);
+      this.className = className;
+      this.bytes = bytes;
+    }
+
+    @Override
+    public InputStream openInputStream() {
+      return new ByteArrayInputStream(bytes);
+    }
+  }
+
+  /**
+   * Forwards everything to the shared standard file manager, except that class output is kept in
+   * memory and the library classes are listed on the class path.
+   */
+  private static final class ClassCapture
+      extends ForwardingJavaFileManager<StandardJavaFileManager> {
+    private final Map<String, byte[]> classes = new ConcurrentHashMap<>();
+    private final Map<String, byte[]> libraries;
+
+    ClassCapture(StandardJavaFileManager delegate, Map<String, byte[]> libraries) {
+      super(delegate);
+      this.libraries = libraries;
+    }
+
+    @Override
+    public JavaFileObject getJavaFileForOutput(
+        JavaFileManager.Location location,
+        String className,
+        JavaFileObject.Kind kind,
+        FileObject sibling)
+        throws IOException {
+      if (kind == JavaFileObject.Kind.CLASS) {
+        return new ClassOutput(className, classes);
+      }
+      return super.getJavaFileForOutput(location, className, kind, sibling);
+    }
+
+    @Override
+    public Iterable<JavaFileObject> list(
+        JavaFileManager.Location location,
+        String packageName,
+        Set<JavaFileObject.Kind> kinds,
+        boolean recurse)
+        throws IOException {
+      Iterable<JavaFileObject> listed = super.list(location, packageName, kinds, recurse);
+      if (location != StandardLocation.CLASS_PATH
+          || !kinds.contains(JavaFileObject.Kind.CLASS)
+          || libraries.isEmpty()) {
+        return listed;
+      }
+      List<JavaFileObject> merged = new ArrayList<>();
+      listed.forEach(merged::add);
+      String prefix = packageName.isEmpty() ? "" : packageName + ".";
+      libraries.forEach(
+          (name, bytes) -> {
+            if (name.startsWith(prefix)
+                && (recurse || name.indexOf('.', prefix.length()) < 0)) {
+              merged.add(new ClassInput(name, bytes));
+            }
+          });
+      return merged;
+    }
+
+    @Override
+    public String inferBinaryName(JavaFileManager.Location location, JavaFileObject file) {
+      if (file instanceof ClassInput input) {
+        return input.className;
+      }
+      return super.inferBinaryName(location, file);
+    }
+
+    @Override
+    public boolean hasLocation(JavaFileManager.Location location) {
+      return location == StandardLocation.CLASS_PATH || super.hasLocation(location);
+    }
+
+    @Override
+    public void close() {
+      // The standard file manager outlives this compilation.
+    }
+
+    Map<String, byte[]> classes() {
+      return Collections.unmodifiableMap(new HashMap<>(classes));
+    }
+  }
+
+  /** Defines classes from compiled bytes, delegating everything else to its parent. */
+  static final class BytesClassLoader extends ClassLoader {
+    private final Map<String, byte[]> classes;
+
+    BytesClassLoader(Map<String, byte[]> classes, ClassLoader parent) {
+      super(parent);
+      this.classes = classes;
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+      byte[] bytes = classes.get(name);
+      if (bytes == null) {
+        throw new ClassNotFoundException(name);
+      }
+      return defineClass(name, bytes, 0, bytes.length);
+    }
+  }
+}
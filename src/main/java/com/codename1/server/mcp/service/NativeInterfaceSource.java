@@ -0,0 +1,193 @@
+package com.codename1.server.mcp.service;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.body.BodyDeclaration;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.type.ArrayType;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+import com.github.javaparser.ast.type.PrimitiveType;
+import com.github.javaparser.ast.type.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Reads the methods of a native interface straight from its source, so stubs can be generated
+ * without compiling and loading the user's classes. Only the common shape is handled: a public top
+ * level interface that directly extends {@code NativeInterface} and declares abstract methods whose
+ * types are primitives, {@code String}, arrays of those or {@code PeerComponent}. Anything whose
+ * meaning depends on other types, such as further super interfaces, generics, default methods or
+ * types that might be shadowed by the user's own classes, is left to the compiler.
+ */
+final class NativeInterfaceSource {
+  private static final String NATIVE_INTERFACE = "com.codename1.system.NativeInterface";
+  private static final String PEER_COMPONENT = "com.codename1.ui.PeerComponent";
+
+  private static final Map<PrimitiveType.Primitive, Class<?>> PRIMITIVES =
+      Map.of(
+          PrimitiveType.Primitive.BOOLEAN, boolean.class,
+          PrimitiveType.Primitive.BYTE, byte.class,
+          PrimitiveType.Primitive.CHAR, char.class,
+          PrimitiveType.Primitive.SHORT, short.class,
+          PrimitiveType.Primitive.INT, int.class,
+          PrimitiveType.Primitive.LONG, long.class,
+          PrimitiveType.Primitive.FLOAT, float.class,
+          PrimitiveType.Primitive.DOUBLE, double.class);
+
+  private final Map<String, String> sources;
+  private final String packageName;
+  private final CompilationUnit unit;
+
+  private NativeInterfaceSource(
+      Map<String, String> sources, String packageName, CompilationUnit unit) {
+    this.sources = sources;
+    this.packageName = packageName;
+    this.unit = unit;
+  }
+
+  /**
+   * Builds a generator from the interface's source.
+   *
+   * @param sources source text keyed by its {@code /} separated path
+   * @param interfaceName fully qualified name of the native interface
+   * @return the generator, or empty if the interface has to be compiled to be understood
+   */
+  static Optional<NativeStubGenerator> read(Map<String, String> sources, String interfaceName) {
+    int dot = interfaceName.lastIndexOf('.');
+    String source = sources.get(interfaceName.replace('.', '/') + ".java");
+    if (dot < 0 || source == null) {
+      return Optional.empty();
+    }
+    ParseResult<CompilationUnit> parsed = new JavaParser().parse(source);
+    if (!parsed.isSuccessful() || parsed.getResult().isEmpty()) {
+      return Optional.empty();
+    }
+    CompilationUnit unit = parsed.getResult().get();
+    String packageName = interfaceName.substring(0, dot);
+    String simpleName = interfaceName.substring(dot + 1);
+    if (unit.getPackageDeclaration().isEmpty()
+        || !unit.getPackageDeclaration().get().getNameAsString().equals(packageName)) {
+      return Optional.empty();
+    }
+    NativeInterfaceSource reader = new NativeInterfaceSource(sources, packageName, unit);
+    return unit.getTypes().stream()
+        .filter(t -> t.getNameAsString().equals(simpleName))
+        .findFirst()
+        .flatMap(reader::methods)
+        .map(methods -> new NativeStubGenerator(interfaceName, methods));
+  }
+
+  private Optional<List<NativeStubGenerator.StubMethod>> methods(TypeDeclaration<?> type) {
+    if (!(type instanceof ClassOrInterfaceDeclaration iface)
+        || !iface.isInterface()
+        || !iface.isPublic()
+        || !iface.getTypeParameters().isEmpty()
+        || iface.getExtendedTypes().size() != 1
+        || !resolvesTo(iface.getExtendedTypes(0), NATIVE_INTERFACE)) {
+      return Optional.empty();
+    }
+    List<NativeStubGenerator.StubMethod> methods = new ArrayList<>();
+    boolean redeclaresIsSupported = false;
+    for (BodyDeclaration<?> member : iface.getMembers()) {
+      if (member instanceof FieldDeclaration) {
+        continue;
+      }
+      if (!(member instanceof MethodDeclaration method)
+          || method.getBody().isPresent()
+          || method.isDefault()
+          || method.isStatic()
+          || method.isPrivate()
+          || !method.getTypeParameters().isEmpty()) {
+        return Optional.empty();
+      }
+      Class<?> returnType = method.getType().isVoidType() ? void.class : resolve(method.getType());
+      if (returnType == null) {
+        return Optional.empty();
+      }
+      List<Class<?>> parameterTypes = new ArrayList<>();
+      for (Parameter parameter : method.getParameters()) {
+        Class<?> parameterType = resolve(parameter.getType());
+        if (parameterType == null) {
+          return Optional.empty();
+        }
+        parameterTypes.add(parameter.isVarArgs() ? parameterType.arrayType() : parameterType);
+      }
+      String name = method.getNameAsString();
+      redeclaresIsSupported |= name.equals("isSupported") && parameterTypes.isEmpty();
+      methods.add(
+          new NativeStubGenerator.StubMethod(
+              name, returnType, parameterTypes, method.getThrownExceptions().isNonEmpty()));
+    }
+    if (!redeclaresIsSupported) {
+      // Inherited from NativeInterface, just as reflection reports it.
+      methods.add(
+          new NativeStubGenerator.StubMethod("isSupported", boolean.class, List.of(), false));
+    }
+    return Optional.of(methods);
+  }
+
+  /** Returns the class standing for the type, or {@code null} if it cannot be told from source. */
+  private Class<?> resolve(Type type) {
+    if (type instanceof PrimitiveType primitive) {
+      return PRIMITIVES.get(primitive.getType());
+    }
+    if (type instanceof ArrayType array) {
+      Class<?> component = resolve(array.getComponentType());
+      return component == null ? null : component.arrayType();
+    }
+    if (type instanceof ClassOrInterfaceType named && named.getTypeArguments().isEmpty()) {
+      if (resolvesTo(named, "java.lang.String")) {
+        return String.class;
+      }
+      if (resolvesTo(named, PEER_COMPONENT)) {
+        return NativeStubGenerator.PeerComponent.class;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns {@code true} if the type certainly names the given class: it is written fully
+   * qualified, or its simple name is imported, inherited from the package or on demand, and no
+   * type of the user's in the same package or imported by name shadows it.
+   */
+  private boolean resolvesTo(ClassOrInterfaceType type, String qualifiedName) {
+    if (type.getTypeArguments().isPresent()) {
+      return false;
+    }
+    String written = type.getNameWithScope();
+    if (type.getScope().isPresent()) {
+      return written.equals(qualifiedName);
+    }
+    int dot = qualifiedName.lastIndexOf('.');
+    if (!written.equals(qualifiedName.substring(dot + 1))) {
+      return false;
+    }
+    String owner = qualifiedName.substring(0, dot);
+    boolean onDemand = owner.equals("java.lang") || owner.equals(packageName);
+    for (ImportDeclaration imported : unit.getImports()) {
+      if (imported.isStatic()) {
+        continue;
+      }
+      String name = imported.getNameAsString();
+      if (!imported.isAsterisk() && name.endsWith("." + written)) {
+        return name.equals(qualifiedName);
+      }
+      onDemand |= imported.isAsterisk() && name.equals(owner);
+    }
+    if (!owner.equals(packageName)
+        && (sources.containsKey(packageName.replace('.', '/') + "/" + written + ".java")
+            || unit.getTypes().stream().anyMatch(t -> t.getNameAsString().equals(written)))) {
+      return false;
+    }
+    return onDemand;
+  }
+}
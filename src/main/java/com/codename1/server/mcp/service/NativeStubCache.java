@@ -0,0 +1,116 @@
+package com.codename1.server.mcp.service;
+
+import com.codename1.server.mcp.dto.FileEntry;
+import com.codename1.server.mcp.util.Digests;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Remembers the stubs generated for a native interface. Entries are keyed by the interface name
+ * and the requested platforms together with its source and the sources it transitively depends
+ * on, so an interface whose sources are unchanged is answered without parsing or compiling
+ * anything, however the rest of the submitted files change.
+ */
+final class NativeStubCache {
+  /** Changes whenever the generated stubs change for the same sources. */
+  private static final String GENERATOR_VERSION = "1";
+
+  private static final Pattern IDENTIFIER = Pattern.compile("[\\p{L}_$][\\p{L}\\p{N}_$]*");
+
+  private final Map<String, List<FileEntry>> stubs;
+
+  /**
+   * Creates a cache remembering the stubs of at most {@code maxEntries} interfaces.
+   *
+   * @param maxEntries number of interfaces kept, least recently used are evicted first
+   */
+  NativeStubCache(int maxEntries) {
+    this.stubs =
+        Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+              @Override
+              protected boolean removeEldestEntry(Map.Entry<String, List<FileEntry>> eldest) {
+                return size() > maxEntries;
+              }
+            });
+  }
+
+  /**
+   * Computes the cache key of an interface. Its dependencies are the submitted sources whose type
+   * name appears anywhere in the interface's source, and so on transitively. Matching names rather
+   * than resolving them may pull in sources that are not really used, which only costs a cache
+   * hit now and then. If the interface is not in a file of its own name, every source counts.
+   *
+   * @param sources source text keyed by its {@code /} separated path
+   * @param interfaceName fully qualified name of the native interface
+   * @param platforms the platforms stubs are generated for
+   * @return the hex encoded key
+   */
+  static String key(
+      Map<String, String> sources,
+      String interfaceName,
+      Set<NativeStubGenerator.Platform> platforms) {
+    Map<String, List<String>> pathsByName = new HashMap<>();
+    for (String path : sources.keySet()) {
+      String file = path.substring(path.lastIndexOf('/') + 1);
+      String name = file.endsWith(".java") ? file.substring(0, file.length() - 5) : file;
+      pathsByName.computeIfAbsent(name, n -> new ArrayList<>()).add(path);
+    }
+    String root = interfaceName.replace('.', '/') + ".java";
+    Set<String> dependencies = new TreeSet<>();
+    if (sources.containsKey(root)) {
+      Deque<String> pending = new ArrayDeque<>(List.of(root));
+      Set<String> seen = new HashSet<>();
+      while (!pending.isEmpty()) {
+        String path = pending.pop();
+        dependencies.add(path);
+        String source = sources.get(path);
+        Matcher matcher = IDENTIFIER.matcher(source == null ? "" : source);
+        while (matcher.find()) {
+          if (seen.add(matcher.group())) {
+            for (String dependency : pathsByName.getOrDefault(matcher.group(), List.of())) {
+              if (!dependencies.contains(dependency)) {
+                pending.push(dependency);
+              }
+            }
+          }
+        }
+      }
+    } else {
+      dependencies.addAll(sources.keySet());
+    }
+
+    MessageDigest md = Digests.sha256();
+    Digests.update(md, GENERATOR_VERSION);
+    Digests.update(md, interfaceName);
+    Digests.update(md, new TreeSet<>(platforms).toString());
+    for (String path : dependencies) {
+      Digests.update(md, path);
+      Digests.update(md, sources.get(path));
+    }
+    return HexFormat.of().formatHex(md.digest());
+  }
+
+  /** Returns the cached stubs for the key, or {@code null} on a miss. */
+  List<FileEntry> get(String key) {
+    return stubs.get(key);
+  }
+
+  /** Stores the stubs generated for the key. */
+  void put(String key, List<FileEntry> files) {
+    stubs.put(key, List.copyOf(files));
+  }
+}
@@ -1,18 +1,17 @@
 package com.codename1.server.mcp.service;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
-import java.io.IOException;
-import java.io.UncheckedIOException;
-import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.IntStream;
 
 /**
  * Port of the Codename One native stub generator that operates purely in
@@ -22,19 +21,76 @@ import java.util.stream.IntStream;
  */
 class NativeStubGenerator {
     private static final String NATIVE_INTERFACE_FQN = "com.codename1.system.NativeInterface";
+    private static final String PEER_COMPONENT_FQN = "com.codename1.ui.PeerComponent";
+    private static final int INITIAL_BUILDER = 4096;
+    private static final int MAX_POOLED_BUILDER = 256 * 1024;
+    private static final ThreadLocal<StringBuilder> BUILDERS =
+            ThreadLocal.withInitial(() -> new StringBuilder(INITIAL_BUILDER));
+    private static final ClassValue<TypeNames> TYPE_NAMES = new ClassValue<>() {
+        @Override
+        protected TypeNames computeValue(Class<?> type) {
+            return TypeNames.of(type);
+        }
+    };
+    private static final Comparator<StubMethod> METHOD_ORDER = Comparator.comparing(StubMethod::name)
+            .thenComparingInt(m -> m.parameterTypes().size());
+
+    private final String packageName;
+    private final String simpleName;
+    private final String interfaceName;
+    private final List<StubMethod> declaredMethods;
+    private final String structureError;
+
+    /**
+     * A method of the native interface. Methods are emitted in name order so the output does not
+     * depend on the order reflection happens to report them in.
+     *
+     * @param name the method name
+     * @param returnType the return type, {@link PeerComponent} for Codename One peer components
+     * @param parameterTypes the parameter types, {@link PeerComponent} for peer components
+     * @param declaresExceptions whether the method has a {@code throws} clause
+     */
+    record StubMethod(String name, Class<?> returnType, List<Class<?>> parameterTypes, boolean declaresExceptions) {
+        StubMethod {
+            parameterTypes = List.copyOf(parameterTypes);
+        }
+    }
 
-    private final Class<?> nativeInterface;
-    private final List<Method> declaredMethods;
+    /** Stands for {@code com.codename1.ui.PeerComponent} in signatures read without loading it. */
+    interface PeerComponent {
+    }
 
     @SuppressFBWarnings(value = "CT_CONSTRUCTOR_THROW", justification = "Reflection failures should surface to the caller")
     NativeStubGenerator(Class<?> nativeInterface) {
-        this.nativeInterface = nativeInterface;
+        this.simpleName = nativeInterface.getSimpleName();
+        this.interfaceName = nativeInterface.getName();
+        this.packageName = nativeInterface.getPackage() == null ? null : nativeInterface.getPackage().getName();
+        this.structureError = verifyStructure(nativeInterface);
         this.declaredMethods = Arrays.stream(nativeInterface.getMethods())
                 .filter(m -> !m.getDeclaringClass().equals(Object.class))
+                .map(m -> new StubMethod(m.getName(), m.getReturnType(), List.of(m.getParameterTypes()),
+                        m.getExceptionTypes().length > 0))
+                .sorted(METHOD_ORDER)
                 .toList();
     }
 
-    String verify() {
+    /**
+     * Creates a generator for a public top level interface extending {@code NativeInterface} whose
+     * methods, including the inherited ones, were read without loading it.
+     *
+     * @param interfaceName the fully qualified interface name
+     * @param methods all methods of the interface
+     */
+    NativeStubGenerator(String interfaceName, List<StubMethod> methods) {
+        int dot = interfaceName.lastIndexOf('.');
+        this.interfaceName = interfaceName;
+        this.simpleName = interfaceName.substring(dot + 1);
+        this.packageName = dot < 0 ? null : interfaceName.substring(0, dot);
+        this.structureError = packageName == null ? "The interface must declare a package" : null;
+        this.declaredMethods = methods.stream().sorted(METHOD_ORDER).toList();
+    }
+
+    private static String verifyStructure(Class<?> nativeInterface) {
         if (!nativeInterface.isInterface()) {
             return "Not an interface! Native interfaces must be interfaces.";
         }
@@ -54,30 +110,37 @@ class NativeStubGenerator {
         if (nativeInterface.getPackage() == null) {
             return "The interface must declare a package";
         }
+        return null;
+    }
+
+    String verify() {
+        if (structureError != null) {
+            return structureError;
+        }
 
         Set<String> methodNames = new HashSet<>();
-        for (Method m : declaredMethods) {
-            String lowerCaseName = m.getName().toLowerCase(Locale.ROOT);
+        for (StubMethod m : declaredMethods) {
+            String lowerCaseName = m.name().toLowerCase(Locale.ROOT);
             if (!methodNames.add(lowerCaseName)) {
-                return "A method with the same name exists for the method " + m.getName()
+                return "A method with the same name exists for the method " + m.name()
                         + ", notice that duplicate names (even with different case) aren't supported!";
             }
 
-            if (m.getExceptionTypes().length > 0) {
-                return "Exceptions aren't supported when communicating with native interfaces, in the method " + m.getName();
+            if (m.declaresExceptions()) {
+                return "Exceptions aren't supported when communicating with native interfaces, in the method " + m.name();
             }
 
-            if (m.getName().equalsIgnoreCase("init")) {
+            if (m.name().equalsIgnoreCase("init")) {
                 return "init() is a reserved method in iOS (a constructor of sort) naming a method init will not work properly.";
             }
 
-            if (!isValidType(m.getReturnType())) {
-                return "Unsupported return type  " + m.getReturnType().getSimpleName() + " in the method " + m.getName();
+            if (!isValidType(m.returnType())) {
+                return "Unsupported return type  " + m.returnType().getSimpleName() + " in the method " + m.name();
             }
 
-            for (Class<?> arg : m.getParameterTypes()) {
+            for (Class<?> arg : m.parameterTypes()) {
                 if (!isValidType(arg)) {
-                    return "Unsupported argument type  " + arg.getSimpleName() + " in the method " + m.getName();
+                    return "Unsupported argument type  " + arg.getSimpleName() + " in the method " + m.name();
                 }
             }
         }
@@ -85,164 +148,187 @@ class NativeStubGenerator {
         return null;
     }
 
+    /** Generates the stubs for every platform. */
     Map<String, String> generate() {
+        return generate(EnumSet.allOf(Platform.class));
+    }
+
+    /**
+     * Generates the stubs for the given platforms, in the order of {@link Platform}.
+     *
+     * @param platforms the platforms to emit files for
+     * @return file contents keyed by their path
+     */
+    Map<String, String> generate(Set<Platform> platforms) {
         Map<String, String> files = new LinkedHashMap<>();
-        try {
-            addJavaFile(files, "android", "android.view.View", false);
-            addJavaFile(files, "javase", "com.codename1.ui.PeerComponent", true);
-            addJavaFile(files, "rim", "net.rim.device.api.ui.Field", false);
-            addJavaFile(files, "j2me", "Object", false);
-            addCSFile(files, "win");
-            addIOSFiles(files);
-            addJavaScriptFile(files);
-        } catch (IOException ex) {
-            throw new UncheckedIOException(ex);
+        for (Platform platform : EnumSet.copyOf(platforms.isEmpty() ? EnumSet.allOf(Platform.class) : platforms)) {
+            switch (platform) {
+                case ANDROID -> addJavaFile(files, platform.id(), "android.view.View", false);
+                case JAVASE -> addJavaFile(files, platform.id(), PEER_COMPONENT_FQN, true);
+                case RIM -> addJavaFile(files, platform.id(), "net.rim.device.api.ui.Field", false);
+                case J2ME -> addJavaFile(files, platform.id(), "Object", false);
+                case WIN -> addCSFile(files, platform.id());
+                case IOS -> addIOSFiles(files);
+                case JAVASCRIPT -> addJavaScriptFile(files);
+            }
         }
         return files;
     }
 
-    private void addJavaFile(Map<String, String> files, String platformDir, String peerComponentType, boolean impl) throws IOException {
-        String pkg = nativeInterface.getPackage().getName();
-        String className = nativeInterface.getSimpleName() + "Impl";
-        StringBuilder builder = new StringBuilder("package " + pkg + ";\n\n");
-        builder.append("public class ").append(className);
-        builder.append(impl ? " implements " + nativeInterface.getName() + "{\n" : " {\n");
-
-        for (Method m : declaredMethods) {
-            builder.append("    public ");
-            Class<?> returnType = m.getReturnType();
-            builder.append(returnType.getName().equals("com.codename1.ui.PeerComponent") ? peerComponentType : getJavaTypeName(returnType));
-            builder.append(' ').append(m.getName()).append('(');
-
-            Class<?>[] params = m.getParameterTypes();
-            builder.append(IntStream.range(0, params.length)
-                    .mapToObj(i -> {
-                        Class<?> arg = params[i];
-                        String typeName = arg.getName().equals("com.codename1.ui.PeerComponent") ? peerComponentType : getJavaTypeName(arg);
-                        return typeName + " param" + (i == 0 ? "" : Integer.toString(i));
-                    })
-                    .collect(java.util.stream.Collectors.joining(", ")));
-            builder.append(") {\n");
+    /** The platforms stubs are generated for, in the order their files are emitted. */
+    enum Platform {
+        ANDROID("android"),
+        JAVASE("javase"),
+        RIM("rim"),
+        J2ME("j2me"),
+        WIN("win"),
+        IOS("ios"),
+        JAVASCRIPT("javascript");
+
+        private final String id;
+
+        Platform(String id) {
+            this.id = id;
+        }
+
+        /** The directory the platform's stubs are placed in, also used to select it. */
+        String id() {
+            return id;
+        }
+
+        /**
+         * Parses platform identifiers such as {@code android} or {@code ios}.
+         *
+         * @param ids identifiers to parse, {@code null} or empty for all platforms
+         * @return the selected platforms
+         * @throws IllegalArgumentException if an identifier is unknown
+         */
+        static Set<Platform> parse(Collection<String> ids) {
+            if (ids == null || ids.isEmpty()) {
+                return EnumSet.allOf(Platform.class);
+            }
+            Set<Platform> platforms = EnumSet.noneOf(Platform.class);
+            for (String id : ids) {
+                Platform platform = Arrays.stream(values())
+                        .filter(p -> id != null && p.id.equals(id.trim().toLowerCase(Locale.ROOT)))
+                        .findFirst()
+                        .orElseThrow(() -> new IllegalArgumentException("Unknown platform " + id + ", expected one of "
+                                + Arrays.stream(values()).map(Platform::id).toList()));
+                platforms.add(platform);
+            }
+            return platforms;
+        }
+    }
 
-            builder.append("        ").append(defaultReturnStatement(returnType));
+    private void addJavaFile(Map<String, String> files, String platformDir, String peerComponentType, boolean impl) {
+        String className = simpleName + "Impl";
+        StringBuilder builder = builder();
+        builder.append("package ").append(packageName).append(";\n\n");
+        builder.append("public class ").append(className);
+        if (impl) {
+            builder.append(" implements ").append(interfaceName).append("{\n");
+        } else {
+            builder.append(" {\n");
+        }
 
+        for (StubMethod m : declaredMethods) {
+            TypeNames returnType = TYPE_NAMES.get(m.returnType());
+            builder.append("    public ").append(returnType.peerComponent() ? peerComponentType : returnType.java());
+            builder.append(' ').append(m.name()).append('(');
+            List<Class<?>> params = m.parameterTypes();
+            for (int i = 0; i < params.size(); i++) {
+                TypeNames arg = TYPE_NAMES.get(params.get(i));
+                appendParameter(builder, i, arg.peerComponent() ? peerComponentType : arg.java());
+            }
+            builder.append(") {\n");
+            builder.append("        ").append(returnType.javaDefault());
             builder.append("    }\n\n");
         }
         builder.append("}\n");
 
-        String path = platformDir + "/" + pkg.replace('.', '/') + "/" + className + ".java";
-        files.put(path, builder.toString());
+        files.put(platformDir + "/" + packagePath() + "/" + className + ".java", builder.toString());
     }
 
-    private void addCSFile(Map<String, String> files, String platformDir) throws IOException {
-        String pkg = nativeInterface.getPackage().getName();
-        StringBuilder builder = new StringBuilder();
-        builder.append("namespace ").append(pkg).append("{\r\n\r\n");
-        builder.append("public class ").append(nativeInterface.getSimpleName()).append("Impl : I")
-                .append(nativeInterface.getSimpleName()).append("Impl {\r\n");
-
-        for (Method m : declaredMethods) {
-            builder.append("    public ");
-            builder.append(javaTypeToCSharpType(m.getReturnType()));
-            builder.append(' ').append(m.getName()).append('(');
-            Class<?>[] params = m.getParameterTypes();
-            builder.append(IntStream.range(0, params.length)
-                    .mapToObj(i -> {
-                        Class<?> arg = params[i];
-                        String typeName = switch (arg.getName()) {
-                            case "com.codename1.ui.PeerComponent" -> "object";
-                            default -> switch (arg) {
-                                case Class<?> t when t == boolean.class || t == Boolean.class || t == Boolean.TYPE -> "bool";
-                                default -> getJavaTypeName(arg);
-                            };
-                        };
-                        return typeName + " param" + (i == 0 ? "" : Integer.toString(i));
-                    })
-                    .collect(java.util.stream.Collectors.joining(", ")));
+    private void addCSFile(Map<String, String> files, String platformDir) {
+        StringBuilder builder = builder();
+        builder.append("namespace ").append(packageName).append("{\r\n\r\n");
+        builder.append("public class ").append(simpleName).append("Impl : I")
+                .append(simpleName).append("Impl {\r\n");
+
+        for (StubMethod m : declaredMethods) {
+            TypeNames returnType = TYPE_NAMES.get(m.returnType());
+            builder.append("    public ").append(returnType.cSharp());
+            builder.append(' ').append(m.name()).append('(');
+            List<Class<?>> params = m.parameterTypes();
+            for (int i = 0; i < params.size(); i++) {
+                appendParameter(builder, i, TYPE_NAMES.get(params.get(i)).cSharpParameter());
+            }
             builder.append(") {\n");
-            builder.append("        ").append(defaultReturnStatement(m.getReturnType()));
+            builder.append("        ").append(returnType.javaDefault());
             builder.append("    }\n\n");
         }
         builder.append("}\r\n}\r\n");
 
-        String path = platformDir + "/" + pkg.replace('.', '/') + "/" + nativeInterface.getSimpleName() + "Impl.cs";
-        files.put(path, builder.toString());
+        files.put(platformDir + "/" + packagePath() + "/" + simpleName + "Impl.cs", builder.toString());
     }
 
-    private void addIOSFiles(Map<String, String> files) throws IOException {
-        String prefix = nativeInterface.getName().replace('.', '_') + "Impl";
-        StringBuilder header = new StringBuilder();
+    private void addIOSFiles(Map<String, String> files) {
+        String prefix = interfaceName.replace('.', '_') + "Impl";
+        List<String> selectors = declaredMethods.stream().map(NativeStubGenerator::objectiveCSelector).toList();
+
+        StringBuilder header = builder();
         header.append("#import <Foundation/Foundation.h>\n\n");
         header.append("@interface ").append(prefix).append(" : NSObject {\n}\n\n");
-        for (Method m : declaredMethods) {
-            header.append("-(").append(javaTypeToObjectiveCType(m.getReturnType())).append(')').append(m.getName());
-            Class<?>[] params = m.getParameterTypes();
-            if (params.length == 0) {
-                header.append(";\n");
-            } else {
-                header.append(":(").append(javaTypeToObjectiveCType(params[0])).append(")param");
-                if (params.length == 1) {
-                    header.append(";\n");
-                } else {
-                    for (int i = 1; i < params.length; i++) {
-                        header.append(" param").append(i).append(":(").append(javaTypeToObjectiveCType(params[i])).append(")param").append(i);
-                    }
-                    header.append(";\n");
-                }
-            }
+        for (String selector : selectors) {
+            header.append(selector).append(";\n");
         }
         header.append("@end\n");
+        files.put("ios/" + prefix + ".h", header.toString());
 
-        StringBuilder impl = new StringBuilder();
+        StringBuilder impl = builder();
         impl.append("#import \"").append(prefix).append(".h\"\n\n");
         impl.append("@implementation ").append(prefix).append("\n\n");
-
-        for (Method m : declaredMethods) {
-            impl.append("-(").append(javaTypeToObjectiveCType(m.getReturnType())).append(')').append(m.getName());
-            Class<?>[] params = m.getParameterTypes();
-            if (params.length == 0) {
-                impl.append("{\n");
-            } else {
-                impl.append(":(").append(javaTypeToObjectiveCType(params[0])).append(")param");
-                if (params.length == 1) {
-                    impl.append("{\n");
-                } else {
-                    for (int i = 1; i < params.length; i++) {
-                        impl.append(" param").append(i).append(":(").append(javaTypeToObjectiveCType(params[i])).append(")param").append(i);
-                    }
-                    impl.append("{\n");
-                }
-            }
-            impl.append("    ").append(defaultObjectiveCReturnStatement(m.getReturnType()));
+        for (int i = 0; i < declaredMethods.size(); i++) {
+            impl.append(selectors.get(i)).append("{\n");
+            impl.append("    ").append(TYPE_NAMES.get(declaredMethods.get(i).returnType()).objectiveCDefault());
             impl.append("}\n\n");
         }
         impl.append("@end\n");
-
-        files.put("ios/" + prefix + ".h", header.toString());
         files.put("ios/" + prefix + ".m", impl.toString());
     }
 
-    private void addJavaScriptFile(Map<String, String> files) throws IOException {
-        StringBuilder builder = new StringBuilder();
+    private static String objectiveCSelector(StubMethod m) {
+        StringBuilder selector = new StringBuilder(32 + 24 * m.parameterTypes().size());
+        selector.append("-(").append(TYPE_NAMES.get(m.returnType()).objectiveC()).append(')').append(m.name());
+        List<Class<?>> params = m.parameterTypes();
+        for (int i = 0; i < params.size(); i++) {
+            String type = TYPE_NAMES.get(params.get(i)).objectiveC();
+            if (i == 0) {
+                selector.append(":(").append(type).append(")param");
+            } else {
+                selector.append(" param").append(i).append(":(").append(type).append(")param").append(i);
+            }
+        }
+        return selector.toString();
+    }
+
+    private void addJavaScriptFile(Map<String, String> files) {
+        String exportName = interfaceName.replace('.', '_');
+        StringBuilder builder = builder();
         builder.append("(function(exports){\n\n");
         builder.append("var o = {};\n\n");
 
-        for (Method m : declaredMethods) {
-            builder.append("    o.").append(m.getName());
+        for (StubMethod m : declaredMethods) {
+            builder.append("    o.").append(m.name());
             builder.append('_');
-            for (Class<?> param : m.getParameterTypes()) {
-                builder.append('_');
-                if (param.getName().equals("com.codename1.ui.PeerComponent")) {
-                    builder.append("com_codename1_ui_PeerComponent");
-                } else {
-                    builder.append(typeToXMLVMJavaName(param));
-                }
+            for (Class<?> param : m.parameterTypes()) {
+                builder.append('_').append(TYPE_NAMES.get(param).xmlvm());
             }
             builder.append(" = function(");
-            Class<?>[] params = m.getParameterTypes();
-            if (params.length > 0) {
+            int params = m.parameterTypes().size();
+            if (params > 0) {
                 builder.append("param1");
-                for (int i = 1; i < params.length; i++) {
+                for (int i = 1; i < params; i++) {
                     builder.append(", param").append(i + 1);
                 }
                 builder.append(", callback) {\n");
@@ -251,14 +337,72 @@ class NativeStubGenerator {
             }
 
             builder.append("        ");
-            builder.append(m.getName().equals("isSupported") ? "callback.complete(false);" : "callback.error(new Error(\"Not implemented yet\"));");
+            builder.append(m.name().equals("isSupported") ? "callback.complete(false);" : "callback.error(new Error(\"Not implemented yet\"));");
             builder.append("\n");
             builder.append("    };\n\n");
         }
-        builder.append("exports.").append(nativeInterface.getName().replace('.', '_')).append("= o;\n\n");
+        builder.append("exports.").append(exportName).append("= o;\n\n");
         builder.append("})(cn1_get_native_interfaces());\n");
 
-        files.put("javascript/" + nativeInterface.getName().replace('.', '_') + ".js", builder.toString());
+        files.put("javascript/" + exportName + ".js", builder.toString());
+    }
+
+    private String packagePath() {
+        return packageName.replace('.', '/');
+    }
+
+    private static void appendParameter(StringBuilder builder, int index, String typeName) {
+        if (index > 0) {
+            builder.append(", ");
+        }
+        builder.append(typeName).append(" param");
+        if (index > 0) {
+            builder.append(index);
+        }
+    }
+
+    /**
+     * Returns this thread's stub builder, emptied. Files are copied out of it with {@code toString()},
+     * so one builder per thread serves every file; one that grew unusually large is dropped.
+     */
+    private static StringBuilder builder() {
+        StringBuilder builder = BUILDERS.get();
+        if (builder.capacity() > MAX_POOLED_BUILDER) {
+            builder = new StringBuilder(INITIAL_BUILDER);
+            BUILDERS.set(builder);
+        }
+        builder.setLength(0);
+        return builder;
+    }
+
+    /**
+     * How a type is written in each stub language, worked out once per type instead of for every
+     * method of every platform.
+     */
+    private record TypeNames(
+            boolean peerComponent,
+            String java,
+            String javaDefault,
+            String cSharp,
+            String cSharpParameter,
+            String objectiveC,
+            String objectiveCDefault,
+            String xmlvm) {
+
+        static TypeNames of(Class<?> type) {
+            boolean peer = isPeerComponent(type);
+            String java = getJavaTypeName(type);
+            boolean bool = type == Boolean.class || type == Boolean.TYPE;
+            return new TypeNames(
+                    peer,
+                    java,
+                    defaultReturnStatement(type),
+                    javaTypeToCSharpType(type),
+                    peer ? "object" : bool ? "bool" : java,
+                    javaTypeToObjectiveCType(type),
+                    defaultObjectiveCReturnStatement(type),
+                    peer ? "com_codename1_ui_PeerComponent" : typeToXMLVMJavaName(type));
+        }
     }
 
     private static boolean isSubinterfaceOfNativeInterface(Class<?> iface) {
@@ -273,12 +417,16 @@ class NativeStubGenerator {
         return false;
     }
 
+    private static boolean isPeerComponent(Class<?> type) {
+        return type == PeerComponent.class || type.getName().equals(PEER_COMPONENT_FQN);
+    }
+
     private static boolean isValidType(Class<?> cls) {
         return switch (cls) {
             case Class<?> type when type.isPrimitive() -> true;
             case Class<?> type when type.isArray() -> type.getComponentType().isPrimitive();
             case Class<?> type when type == String.class -> true;
-            case Class<?> type when type.getName().equals("com.codename1.ui.PeerComponent") -> true;
+            case Class<?> type when isPeerComponent(type) -> true;
             default -> false;
         };
     }
@@ -287,7 +435,7 @@ class NativeStubGenerator {
         return switch (returnType) {
             case Class<?> type when type == Void.TYPE || type == Void.class -> "// TODO implement\n";
             case Class<?> type when type == String.class
-                    || type.getName().equals("com.codename1.ui.PeerComponent")
+                    || isPeerComponent(type)
                     || type.isArray() -> "return null;\n";
             case Class<?> type when type == Boolean.class || type == Boolean.TYPE -> "return false;\n";
             case Class<?> type when type == Character.class || type == Character.TYPE -> "return (char)0;\n";
@@ -301,7 +449,7 @@ class NativeStubGenerator {
         return switch (returnType) {
             case Class<?> type when type == Void.TYPE || type == Void.class -> "// TODO implement\n";
             case Class<?> type when type == String.class || type.isArray() -> "return nil;\n";
-            case Class<?> type when type.getName().equals("com.codename1.ui.PeerComponent") -> "return NULL;\n";
+            case Class<?> type when isPeerComponent(type) -> "return NULL;\n";
             case Class<?> type when type == Boolean.class || type == Boolean.TYPE -> "return NO;\n";
             default -> "return 0;\n";
         };
@@ -333,7 +481,7 @@ class NativeStubGenerator {
 
     private static String javaTypeToCSharpType(Class<?> type) {
         return switch (type) {
-            case Class<?> t when t.getName().equals("com.codename1.ui.PeerComponent") -> "object";
+            case Class<?> t when isPeerComponent(t) -> "object";
             case Class<?> t when t == String.class -> "string";
             case Class<?> t when t.isArray() -> javaTypeToCSharpType(t.getComponentType()) + "[]";
             case Class<?> t when t == Boolean.class || t == Boolean.TYPE -> "bool";
@@ -1,38 +1,120 @@
 package com.codename1.server.mcp.service;
 
 import com.codename1.server.mcp.dto.FileEntry;
+import com.codename1.server.mcp.dto.NativeStubBatchRequest;
+import com.codename1.server.mcp.dto.NativeStubBatchResponse;
 import com.codename1.server.mcp.dto.NativeStubRequest;
 import com.codename1.server.mcp.dto.NativeStubResponse;
+import com.codename1.server.mcp.dto.NativeStubResult;
+import com.codename1.server.mcp.tools.GlobalExtractor;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import jakarta.annotation.PreDestroy;
 import java.io.IOException;
 import java.net.URL;
 import java.net.URLClassLoader;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.AccessController;
-import java.security.PrivilegedActionException;
-import java.security.PrivilegedExceptionAction;
+import java.security.PrivilegedAction;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
-import javax.tools.DiagnosticCollector;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import javax.tools.JavaCompiler;
-import javax.tools.JavaFileObject;
-import javax.tools.StandardJavaFileManager;
 import javax.tools.ToolProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-/** Compiles user-provided Java sources and generates Codename One native interface stubs. */
+/**
+ * Generates Codename One native interface stubs from user-provided Java sources. Plain interfaces
+ * are read straight from source; anything else is compiled and loaded in memory, and nothing is
+ * written to disk. Compilation sees only the platform and small precompiled stubs of {@code
+ * NativeInterface} and {@code PeerComponent}, or {@code CodenameOne.jar} when the sources use
+ * other Codename One types, never the server's own class path.
+ */
 @Service
 public class NativeStubService {
   private static final Logger LOG = LoggerFactory.getLogger(NativeStubService.class);
 
+  /** Root the requested paths are resolved against; nothing is ever written below it. */
+  private static final Path WORKSPACE = Path.of("workspace");
+
+  private static final String NATIVE_INTERFACE_PATH = "com/codename1/system/NativeInterface.java";
+  private static final String PEER_COMPONENT_PATH = "com/codename1/ui/PeerComponent.java";
+  private static final Set<String> STUB_TYPES =
+      Set.of("com.codename1.system.NativeInterface", "com.codename1.ui.PeerComponent");
+  private static final Pattern CODENAME_ONE_REFERENCE =
+      Pattern.compile("\\bcom\\.codename1\\.[\\w.]*[\\w*]");
+  private static final String CODENAME_ONE_JAR = "/cn1libs/CodenameOne.jar";
+
+  private static final String NATIVE_INTERFACE =
+      """
+      package com.codename1.system;
+
+      public interface NativeInterface {
+        boolean isSupported();
+      }
+      """;
+
+  private static final String PEER_COMPONENT =
+      """
+      package com.codename1.ui;
+
+      public class PeerComponent {}
+      """;
+
+  private final GlobalExtractor extractor;
+  private final NativeStubCache cache;
+  private final int batchParallelism;
+  private InMemoryCompiler compiler;
+  private Map<String, byte[]> stubClasses;
+  private URLClassLoader codenameOneLoader;
+  private Path codenameOneLoaderJar;
+  private final List<URLClassLoader> retiredLoaders = new ArrayList<>();
+
+  /** Creates a service that always compiles against the bundled stubs. */
+  public NativeStubService() {
+    this(null);
+  }
+
+  /**
+   * Creates a service with the default cache size and batch parallelism.
+   *
+   * @param extractor provides {@code CodenameOne.jar}, or {@code null} to always use the stubs
+   */
+  public NativeStubService(GlobalExtractor extractor) {
+    this(extractor, 256, 4);
+  }
+
+  /**
+   * Creates a service.
+   *
+   * @param extractor provides {@code CodenameOne.jar} for interfaces that use more of Codename One
+   *     than the bundled stubs, or {@code null} to always use the stubs
+   * @param cacheEntries number of interfaces whose generated stubs are remembered
+   * @param batchParallelism maximum number of interfaces of one batch generated at the same time
+   */
+  @Autowired
+  public NativeStubService(
+      GlobalExtractor extractor,
+      @Value("${cn1.nativeStubs.cacheEntries:256}") int cacheEntries,
+      @Value("${cn1.nativeStubs.batch.parallelism:4}") int batchParallelism) {
+    this.extractor = extractor;
+    this.cache = new NativeStubCache(Math.max(0, cacheEntries));
+    this.batchParallelism = Math.max(1, batchParallelism);
+  }
+
   /**
    * Generates native stubs for the given request.
    *
@@ -44,177 +126,360 @@ public class NativeStubService {
     if (request.interfaceName() == null || request.interfaceName().isBlank()) {
       throw new IllegalArgumentException("interfaceName is required");
     }
-    if (request.files() == null || request.files().isEmpty()) {
-      throw new IllegalArgumentException("At least one source file is required");
+    Set<NativeStubGenerator.Platform> platforms =
+        NativeStubGenerator.Platform.parse(request.platforms());
+    Map<String, String> sources = sources(request.files());
+    Outcome outcome = generateAll(sources, List.of(request.interfaceName()), platforms).get(0);
+    if (outcome.failure() != null) {
+      throw outcome.failure();
     }
+    return new NativeStubResponse(outcome.files());
+  }
 
-    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
-    if (compiler == null) {
-      throw new IllegalStateException("A JDK is required to generate native stubs");
+  /**
+   * Generates native stubs for several interfaces sharing one set of source files. Interfaces whose
+   * sources are unchanged since an earlier request come from the stub cache; of the rest, those
+   * that cannot be read from source are compiled together in a single compilation, and the stubs
+   * are generated in parallel, at most {@code cn1.nativeStubs.batch.parallelism} at a time.
+   *
+   * @param request the source files and the interfaces to generate stubs for
+   * @return one result per interface, in request order
+   */
+  public NativeStubBatchResponse generateBatch(NativeStubBatchRequest request) {
+    Objects.requireNonNull(request, "request");
+    List<String> names = request.interfaceNames() == null ? List.of() : request.interfaceNames();
+    if (names.isEmpty() || names.stream().anyMatch(n -> n == null || n.isBlank())) {
+      throw new IllegalArgumentException("interfaceNames are required");
     }
+    Set<NativeStubGenerator.Platform> platforms =
+        NativeStubGenerator.Platform.parse(request.platforms());
+    Map<String, String> sources = sources(request.files());
+    List<Outcome> outcomes = generateAll(sources, names, platforms);
+    List<NativeStubResult> results = new ArrayList<>(names.size());
+    for (int i = 0; i < names.size(); i++) {
+      Outcome outcome = outcomes.get(i);
+      results.add(
+          outcome.failure() == null
+              ? new NativeStubResult(names.get(i), true, null, outcome.cached(), outcome.files())
+              : new NativeStubResult(
+                  names.get(i), false, outcome.failure().getMessage(), false, List.of()));
+    }
+    boolean ok = results.stream().allMatch(NativeStubResult::ok);
+    LOG.info(
+        "Generated native stubs for {} interfaces, {} from cache, {} failed",
+        results.size(),
+        results.stream().filter(NativeStubResult::cached).count(),
+        results.stream().filter(r -> !r.ok()).count());
+    return new NativeStubBatchResponse(ok, results);
+  }
 
-    Path sourceDir;
-    Path classesDir;
-    try {
-      sourceDir = Files.createTempDirectory("cn1-native-src");
-      classesDir = Files.createTempDirectory("cn1-native-classes");
-    } catch (IOException e) {
-      throw new IllegalStateException("Failed to allocate temporary workspace", e);
+  /** Normalizes the requested files into Java sources keyed by their workspace path. */
+  private static Map<String, String> sources(List<FileEntry> files) {
+    if (files == null || files.isEmpty()) {
+      throw new IllegalArgumentException("At least one source file is required");
+    }
+    Map<String, String> sources = new LinkedHashMap<>();
+    for (FileEntry entry : files) {
+      if (entry.path() == null || entry.path().isBlank()) {
+        throw new IllegalArgumentException("File path is required");
+      }
+      String path = relativePath(entry.path());
+      if (path.endsWith(".java")) {
+        sources.put(path, entry.content());
+      }
     }
+    return sources;
+  }
 
-    try {
-      Map<String, FileEntry> provided = new LinkedHashMap<>();
-      for (FileEntry entry : request.files()) {
-        if (entry.path() == null || entry.path().isBlank()) {
-          throw new IllegalArgumentException("File path is required");
-        }
-        Path dest = resolveRelativePath(sourceDir, entry.path());
-        Path parent = dest.getParent();
-        if (parent != null) {
-          Files.createDirectories(parent);
-        }
-        // SpotBugs: top-level files resolve without parents; no directories are required in that
-        // case.
-        Files.writeString(dest, entry.content(), StandardCharsets.UTF_8);
-        provided.put(entry.path(), entry);
-      }
-
-      ensureStub(
-          sourceDir,
-          provided,
-          "com/codename1/system/NativeInterface.java",
-          """
-                            package com.codename1.system;
-
-                            public interface NativeInterface {
-                              boolean isSupported();
-                            }
-                            """
-              .replace("\n", System.lineSeparator()));
-      ensureStub(
-          sourceDir,
-          provided,
-          "com/codename1/ui/PeerComponent.java",
-          """
-                            package com.codename1.ui;
-
-                            public class PeerComponent {}
-                            """
-              .replace("\n", System.lineSeparator()));
-
-      List<Path> sources = new ArrayList<>();
-      try (var stream = Files.walk(sourceDir)) {
-        stream.filter(p -> p.toString().endsWith(".java")).forEach(sources::add);
-      }
-
-      DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
-      try (StandardJavaFileManager fileManager =
-          compiler.getStandardFileManager(diagnostics, Locale.ROOT, StandardCharsets.UTF_8)) {
-        Iterable<? extends JavaFileObject> compilationUnits =
-            fileManager.getJavaFileObjectsFromPaths(sources);
-        List<String> options =
-            List.of(
-                "-classpath", System.getProperty("java.class.path"), "-d", classesDir.toString());
-        JavaCompiler.CompilationTask task =
-            compiler.getTask(null, fileManager, diagnostics, options, null, compilationUnits);
-        Boolean ok = task.call();
-        if (!Boolean.TRUE.equals(ok)) {
-          StringBuilder message = new StringBuilder("Compilation failed:" + System.lineSeparator());
-          diagnostics
-              .getDiagnostics()
-              .forEach(d -> message.append(d).append(System.lineSeparator()));
-          throw new IllegalArgumentException(message.toString());
+  /**
+   * Generates the stubs of every interface, answering from the cache where possible and compiling
+   * the sources at most once for the interfaces that cannot be read from source.
+   */
+  private List<Outcome> generateAll(
+      Map<String, String> sources,
+      List<String> interfaceNames,
+      Set<NativeStubGenerator.Platform> platforms) {
+    int count = interfaceNames.size();
+    Outcome[] outcomes = new Outcome[count];
+    String[] keys = new String[count];
+    NativeStubGenerator[] generators = new NativeStubGenerator[count];
+    List<Integer> uncompiled = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      keys[i] = NativeStubCache.key(sources, interfaceNames.get(i), platforms);
+      List<FileEntry> cached = cache.get(keys[i]);
+      if (cached != null) {
+        outcomes[i] = new Outcome(cached, true, null);
+        continue;
+      }
+      generators[i] = NativeInterfaceSource.read(sources, interfaceNames.get(i)).orElse(null);
+      if (generators[i] == null) {
+        uncompiled.add(i);
+      }
+    }
+
+    if (!uncompiled.isEmpty()) {
+      LOG.debug("Compiling sources to read {} native interfaces", uncompiled.size());
+      try {
+        ClassLoader loader = compileAndLoad(sources);
+        for (int i : uncompiled) {
+          try {
+            generators[i] =
+                new NativeStubGenerator(Class.forName(interfaceNames.get(i), true, loader));
+          } catch (ClassNotFoundException e) {
+            outcomes[i] =
+                failed(
+                    new IllegalArgumentException(
+                        "Interface not found after compilation: " + interfaceNames.get(i), e));
+          }
         }
+      } catch (IllegalArgumentException | IllegalStateException e) {
+        uncompiled.forEach(i -> outcomes[i] = failed(e));
+      } catch (IOException e) {
+        IllegalStateException failure =
+            new IllegalStateException("Failed to generate native stubs", e);
+        uncompiled.forEach(i -> outcomes[i] = failed(failure));
       }
+    }
 
-      try (URLClassLoader loader =
-          AccessController.doPrivileged(
-              // SpotBugs: creating the class loader under doPrivileged avoids
-              // DP_CREATE_CLASSLOADER_INSIDE_DO_PRIVILEGED.
-              (PrivilegedExceptionAction<URLClassLoader>)
-                  () ->
-                      new URLClassLoader(
-                          new URL[] {classesDir.toUri().toURL()}, getClass().getClassLoader()))) {
-        Class<?> iface;
+    List<Integer> pending = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      if (outcomes[i] == null) {
+        pending.add(i);
+      }
+    }
+    if (pending.size() == 1) {
+      int i = pending.get(0);
+      outcomes[i] = generate(keys[i], generators[i], interfaceNames.get(i), platforms);
+    } else if (!pending.isEmpty()) {
+      generateParallel(keys, generators, interfaceNames, platforms, pending, outcomes);
+    }
+    return List.of(outcomes);
+  }
+
+  private void generateParallel(
+      String[] keys,
+      NativeStubGenerator[] generators,
+      List<String> interfaceNames,
+      Set<NativeStubGenerator.Platform> platforms,
+      List<Integer> pending,
+      Outcome[] outcomes) {
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            Math.min(batchParallelism, pending.size()),
+            r -> {
+              Thread t = new Thread(r, "cn1-native-stubs");
+              t.setDaemon(true);
+              return t;
+            });
+    try {
+      Map<Integer, Future<Outcome>> futures = new LinkedHashMap<>();
+      for (int i : pending) {
+        futures.put(
+            i,
+            executor.submit(
+                () -> generate(keys[i], generators[i], interfaceNames.get(i), platforms)));
+      }
+      for (Map.Entry<Integer, Future<Outcome>> future : futures.entrySet()) {
         try {
-          iface = Class.forName(request.interfaceName(), true, loader);
-        } catch (ClassNotFoundException e) {
-          throw new IllegalArgumentException(
-              "Interface not found after compilation: " + request.interfaceName(), e);
+          outcomes[future.getKey()] = future.getValue().get();
+        } catch (ExecutionException e) {
+          Throwable cause = e.getCause() == null ? e : e.getCause();
+          LOG.error(
+              "Native stub generation for {} failed",
+              interfaceNames.get(future.getKey()),
+              cause);
+          outcomes[future.getKey()] =
+              failed(new IllegalStateException("Failed to generate native stubs", cause));
         }
-        NativeStubGenerator generator = new NativeStubGenerator(iface);
-        String validation = generator.verify();
-        if (validation != null) {
-          throw new IllegalArgumentException(validation);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      IllegalStateException failure =
+          new IllegalStateException("Native stub generation interrupted", e);
+      for (int i : pending) {
+        if (outcomes[i] == null) {
+          outcomes[i] = failed(failure);
         }
-        Map<String, String> generated = generator.generate();
-        LOG.info(
-            "Generated {} native stub files for interface {}",
-            generated.size(),
-            request.interfaceName());
-        List<FileEntry> files =
-            generated.entrySet().stream()
-                .sorted(Map.Entry.comparingByKey())
-                .map(e -> new FileEntry(e.getKey(), e.getValue()))
-                .toList();
-        return new NativeStubResponse(files);
-      }
-    } catch (PrivilegedActionException e) {
-      throw new IllegalStateException(
-          "Failed to open class loader for generated sources", e.getException());
-    } catch (IOException e) {
-      throw new IllegalStateException("Failed to generate native stubs", e);
+      }
     } finally {
-      cleanup(sourceDir);
-      cleanup(classesDir);
+      executor.shutdownNow();
+    }
+  }
+
+  /** Verifies one interface and generates its stubs, remembering them under the cache key. */
+  private Outcome generate(
+      String key,
+      NativeStubGenerator generator,
+      String interfaceName,
+      Set<NativeStubGenerator.Platform> platforms) {
+    String validation = generator.verify();
+    if (validation != null) {
+      return failed(new IllegalArgumentException(validation));
+    }
+    Map<String, String> generated = generator.generate(platforms);
+    LOG.info("Generated {} native stub files for interface {}", generated.size(), interfaceName);
+    List<FileEntry> files =
+        generated.entrySet().stream()
+            .sorted(Map.Entry.comparingByKey())
+            .map(e -> new FileEntry(e.getKey(), e.getValue()))
+            .toList();
+    cache.put(key, files);
+    return new Outcome(files, false, null);
+  }
+
+  private static Outcome failed(RuntimeException failure) {
+    return new Outcome(List.of(), false, failure);
+  }
+
+  /** Compiles the sources and returns a class loader for the compiled classes. */
+  private ClassLoader compileAndLoad(Map<String, String> sources) throws IOException {
+    InMemoryCompiler compiler = compiler();
+    Path jar = needsCodenameOne(sources) ? codenameOneJar() : null;
+    List<Path> classPath;
+    Map<String, byte[]> libraries = new HashMap<>();
+    ClassLoader parent;
+    if (jar != null) {
+      classPath = List.of(jar);
+      parent = codenameOneLoader(jar);
+    } else {
+      classPath = List.of();
+      stubClasses(compiler)
+          .forEach(
+              (name, bytes) -> {
+                if (!sources.containsKey(name.replace('.', '/') + ".java")) {
+                  libraries.put(name, bytes);
+                }
+              });
+      parent = getClass().getClassLoader();
+    }
+    Map<String, byte[]> classes = new HashMap<>(libraries);
+    classes.putAll(compiler.compile(sources, classPath, libraries, List.of()));
+
+    return AccessController.doPrivileged(
+        // SpotBugs: creating the class loader under doPrivileged avoids
+        // DP_CREATE_CLASSLOADER_INSIDE_DO_PRIVILEGED.
+        (PrivilegedAction<ClassLoader>)
+            () -> new InMemoryCompiler.BytesClassLoader(classes, parent));
+  }
+
+  /** Releases the compiler's file manager and the Codename One class loaders. */
+  @PreDestroy
+  public synchronized void close() {
+    try {
+      if (compiler != null) {
+        compiler.close();
+      }
+      if (codenameOneLoader != null) {
+        retiredLoaders.add(codenameOneLoader);
+      }
+      for (URLClassLoader loader : retiredLoaders) {
+        loader.close();
+      }
+    } catch (IOException e) {
+      LOG.debug("Failed to close native stub compiler", e);
+    }
+    compiler = null;
+    stubClasses = null;
+    codenameOneLoader = null;
+    retiredLoaders.clear();
+  }
+
+  private synchronized InMemoryCompiler compiler() {
+    if (compiler == null) {
+      JavaCompiler system = ToolProvider.getSystemJavaCompiler();
+      if (system == null) {
+        throw new IllegalStateException("A JDK is required to generate native stubs");
+      }
+      compiler = new InMemoryCompiler(system);
     }
+    return compiler;
   }
 
-  private static void ensureStub(
-      Path sourceDir, Map<String, FileEntry> provided, String relativePath, String content)
+  /** The bundled stubs, compiled once and offered to every compilation from memory. */
+  private synchronized Map<String, byte[]> stubClasses(InMemoryCompiler compiler)
       throws IOException {
-    if (provided.containsKey(relativePath)) {
-      return;
+    if (stubClasses == null) {
+      stubClasses =
+          compiler.compile(
+              Map.of(
+                  NATIVE_INTERFACE_PATH, NATIVE_INTERFACE, PEER_COMPONENT_PATH, PEER_COMPONENT),
+              List.of(),
+              Map.of(),
+              List.of());
     }
-    Path dest = resolveRelativePath(sourceDir, relativePath);
-    Path parent = dest.getParent();
-    if (parent != null) {
-      Files.createDirectories(parent);
+    return stubClasses;
+  }
+
+  /**
+   * Returns {@code true} if the sources use Codename One types beyond the bundled stubs. Sources
+   * that provide the stubs themselves are not considered.
+   */
+  static boolean needsCodenameOne(Map<String, String> sources) {
+    for (Map.Entry<String, String> source : sources.entrySet()) {
+      if (source.getKey().equals(NATIVE_INTERFACE_PATH)
+          || source.getKey().equals(PEER_COMPONENT_PATH)
+          || source.getValue() == null) {
+        continue;
+      }
+      Matcher matcher = CODENAME_ONE_REFERENCE.matcher(source.getValue());
+      while (matcher.find()) {
+        if (!STUB_TYPES.contains(matcher.group())) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /** Returns the extracted {@code CodenameOne.jar}, or {@code null} if it is unavailable. */
+  private Path codenameOneJar() {
+    if (extractor == null) {
+      return null;
+    }
+    try {
+      return extractor.ensureFile(CODENAME_ONE_JAR);
+    } catch (IOException e) {
+      LOG.warn("CodenameOne.jar unavailable, using the bundled stubs: {}", e.getMessage());
+      return null;
     }
-    // SpotBugs: bundled stubs might live at the workspace root; those require no parent
-    // directories.
-    Files.writeString(dest, content, StandardCharsets.UTF_8);
   }
 
-  private static Path resolveRelativePath(Path sourceDir, String requestedPath) {
+  @SuppressFBWarnings(
+      value = "DP_CREATE_CLASSLOADER_INSIDE_DO_PRIVILEGED",
+      justification = "No security manager is installed and AccessController is going away")
+  private synchronized ClassLoader codenameOneLoader(Path jar) throws IOException {
+    if (codenameOneLoader == null || !jar.equals(codenameOneLoaderJar)) {
+      if (codenameOneLoader != null) {
+        // Requests that started with the previous jar may still load classes through it.
+        retiredLoaders.add(codenameOneLoader);
+      }
+      codenameOneLoader =
+          new URLClassLoader(new URL[] {jar.toUri().toURL()}, getClass().getClassLoader());
+      codenameOneLoaderJar = jar;
+    }
+    return codenameOneLoader;
+  }
+
+  /**
+   * Normalizes a requested source path to a {@code /} separated path inside the virtual
+   * workspace.
+   */
+  private static String relativePath(String requestedPath) {
     Path relative = Path.of(requestedPath);
     if (relative.isAbsolute()) {
       throw new IllegalArgumentException("File path must be relative: " + requestedPath);
     }
-    Path normalized = sourceDir.resolve(relative).normalize();
-    if (!normalized.startsWith(sourceDir)) {
+    Path normalized = WORKSPACE.resolve(relative).normalize();
+    if (!normalized.startsWith(WORKSPACE) || normalized.equals(WORKSPACE)) {
       throw new IllegalArgumentException("File path escapes workspace: " + requestedPath);
     }
-    return normalized;
-  }
-
-  private static void cleanup(Path dir) {
-    if (dir == null) {
-      return;
-    }
-    try (var stream = Files.walk(dir)) {
-      stream
-          .sorted(Comparator.reverseOrder())
-          .forEach(
-              path -> {
-                try {
-                  Files.deleteIfExists(path);
-                } catch (IOException ex) {
-                  LOG.debug("Failed to delete native stub temp file {}", path, ex);
-                }
-              });
-    } catch (IOException ex) {
-      LOG.debug("Failed to clean native stub temp directory {}", dir, ex);
+    List<String> parts = new ArrayList<>();
+    for (Path part : WORKSPACE.relativize(normalized)) {
+      parts.add(part.toString());
     }
+    return String.join("/", parts);
   }
+
+  /** The stubs of one interface, or why they could not be generated. */
+  private record Outcome(List<FileEntry> files, boolean cached, RuntimeException failure) {}
 }
@@ -0,0 +1,255 @@
+package com.codename1.server.mcp.service;
+
+import com.codename1.server.mcp.util.OsUtils;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Small pool of long-lived Xvfb servers used to give the CSS compiler a headless display without
+ * paying for {@code xvfb-run} on every request. Displays are leased exclusively, health-checked on
+ * every lease and restarted when their server has died. Linux only.
+ */
+final class XvfbDisplayPool implements AutoCloseable {
+  private static final Logger LOG = LoggerFactory.getLogger(XvfbDisplayPool.class);
+  private static final Path X11_SOCKET_DIR = Path.of("/tmp/.X11-unix");
+  private static final long STARTUP_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+  private static final long LEASE_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(5);
+  private static final int MAX_DISPLAY_PROBES = 100;
+
+  private final Path xvfb;
+  private final Path socketDir;
+  private final int firstDisplay;
+  private final long leaseTimeoutMillis;
+  private final BlockingQueue<Display> idle;
+  private final List<Display> all = new ArrayList<>();
+  private volatile boolean closed;
+
+  /**
+   * Creates a pool of lazily started displays.
+   *
+   * @param xvfb the {@code Xvfb} binary
+   * @param socketDir directory in which servers create their {@code X<n>} sockets; their lock
+   *     files are expected next to it
+   * @param size number of displays
+   * @param firstDisplay lowest display number the pool may claim
+   * @param leaseTimeoutMillis how long a lease waits for a free display
+   */
+  XvfbDisplayPool(
+      Path xvfb, Path socketDir, int size, int firstDisplay, long leaseTimeoutMillis) {
+    this.xvfb = xvfb;
+    this.socketDir = socketDir;
+    this.firstDisplay = firstDisplay;
+    this.leaseTimeoutMillis = leaseTimeoutMillis;
+    this.idle = new ArrayBlockingQueue<>(size, true);
+    for (int i = 0; i < size; i++) {
+      Display display = new Display();
+      all.add(display);
+      idle.add(display);
+    }
+  }
+
+  /**
+   * Creates a pool when running on Linux with {@code Xvfb} on the {@code PATH}.
+   *
+   * @param size number of displays, {@code 0} disables the pool
+   * @param firstDisplay lowest display number the pool may claim
+   * @return the pool, or {@code null} when shared displays are unavailable
+   */
+  static XvfbDisplayPool createIfAvailable(int size, int firstDisplay) {
+    if (size < 1 || !OsUtils.isLinux()) {
+      return null;
+    }
+    Path xvfb = OsUtils.locateOnPath("Xvfb");
+    if (xvfb == null) {
+      LOG.info("Xvfb not found on PATH, CSS compiles will use xvfb-run");
+      return null;
+    }
+    return new XvfbDisplayPool(xvfb, X11_SOCKET_DIR, size, firstDisplay, LEASE_TIMEOUT_MILLIS);
+  }
+
+  /**
+   * Arranges for a process to run against a headless display. With a pool, a display is leased
+   * and exported through {@code DISPLAY}; without one, or when no display is free in time,
+   * {@code xvfb-run -a} is prepended to the command on Linux.
+   *
+   * @param pool the display pool, may be {@code null}
+   * @param command command under construction, receives any launcher prefix
+   * @param environment environment overrides for the process
+   * @return the lease to close once the process no longer needs the display
+   */
+  static Lease headless(
+      XvfbDisplayPool pool, List<String> command, Map<String, String> environment)
+      throws IOException, InterruptedException {
+    if (pool != null) {
+      Lease lease = pool.lease();
+      if (lease != null) {
+        environment.put("DISPLAY", lease.display());
+        return lease;
+      }
+      LOG.debug("No shared Xvfb display free, falling back to xvfb-run");
+    }
+    if (OsUtils.isLinux()) {
+      Path xvfbRun = OsUtils.locateOnPath("xvfb-run");
+      if (xvfbRun == null) {
+        throw new IOException("xvfb-run command not available on PATH");
+      }
+      command.add(xvfbRun.toString());
+      command.add("-a");
+    }
+    return Lease.NONE;
+  }
+
+  /**
+   * Leases a healthy display, waiting a bounded time for one to become free.
+   *
+   * @return the lease, or {@code null} if every display stayed in use
+   */
+  Lease lease() throws IOException, InterruptedException {
+    if (closed) {
+      throw new IOException("Xvfb display pool is closed");
+    }
+    Display display = idle.poll(leaseTimeoutMillis, TimeUnit.MILLISECONDS);
+    if (display == null) {
+      return null;
+    }
+    try {
+      display.ensureRunning();
+    } catch (IOException | RuntimeException e) {
+      idle.add(display);
+      throw e;
+    }
+    return new Lease(":" + display.number, () -> idle.add(display));
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    for (Display display : all) {
+      display.stop();
+    }
+  }
+
+  /** Exclusive use of a display; closing it hands the display back to the pool. */
+  static final class Lease implements AutoCloseable {
+    static final Lease NONE = new Lease(null, () -> {});
+
+    private final String display;
+    private final Runnable release;
+    private boolean released;
+
+    private Lease(String display, Runnable release) {
+      this.display = display;
+      this.release = release;
+    }
+
+    /** Returns the value for {@code DISPLAY}, or {@code null} when no display was leased. */
+    String display() {
+      return display;
+    }
+
+    @Override
+    public synchronized void close() {
+      if (!released) {
+        released = true;
+        release.run();
+      }
+    }
+  }
+
+  /** One Xvfb server, started lazily and restarted when found dead. */
+  private final class Display {
+    private volatile Process process;
+    private volatile int number = -1;
+
+    synchronized void ensureRunning() throws IOException, InterruptedException {
+      if (process != null && process.isAlive() && Files.exists(socket(number))) {
+        return;
+      }
+      if (process != null) {
+        LOG.warn("Xvfb display :{} is not healthy, restarting it", number);
+        stop();
+      }
+      int candidate = number >= 0 ? number : firstDisplay;
+      for (int probe = 0; probe < MAX_DISPLAY_PROBES; probe++, candidate++) {
+        Path lock = socketDir.resolveSibling(".X" + candidate + "-lock");
+        if (claimed(candidate) || Files.exists(lock)) {
+          continue;
+        }
+        if (start(candidate)) {
+          return;
+        }
+      }
+      throw new IOException("Unable to start an Xvfb display from :" + firstDisplay);
+    }
+
+    private boolean start(int candidate) throws IOException, InterruptedException {
+      ProcessBuilder pb =
+          new ProcessBuilder(
+              xvfb.toString(),
+              ":" + candidate,
+              "-screen",
+              "0",
+              "1280x1024x24",
+              "-nolisten",
+              "tcp",
+              "-noreset");
+      pb.redirectErrorStream(true);
+      pb.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+      Process started = pb.start();
+      long deadline = System.currentTimeMillis() + STARTUP_TIMEOUT_MILLIS;
+      while (System.currentTimeMillis() < deadline) {
+        if (!started.isAlive()) {
+          // Usually another X server grabbed the display number first.
+          LOG.debug("Xvfb exited while claiming display :{}", candidate);
+          return false;
+        }
+        if (Files.exists(socket(candidate))) {
+          process = started;
+          number = candidate;
+          LOG.info("Started Xvfb on display :{}", candidate);
+          return true;
+        }
+        Thread.sleep(25);
+      }
+      started.destroyForcibly();
+      return false;
+    }
+
+    synchronized void stop() {
+      if (process != null) {
+        process.destroy();
+        try {
+          if (!process.waitFor(2, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          process.destroyForcibly();
+        }
+        process = null;
+      }
+    }
+  }
+
+  private boolean claimed(int candidate) {
+    for (Display display : all) {
+      if (display.number == candidate && display.process != null) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private Path socket(int number) {
+    return socketDir.resolve("X" + number);
+  }
+}
@@ -0,0 +1,254 @@
+package com.codename1.server.mcp.tools;
+
+import com.codename1.server.mcp.util.Digests;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Content-addressed store of binary blobs kept in the shared cache. A blob is written once under
+ * its SHA-256 and can afterwards be referenced by that hash from any request. Serving or uploading
+ * a blob again refreshes its modification time, which {@link CacheJanitor} evicts by.
+ */
+public class BlobStore {
+  private static final Logger LOG = LoggerFactory.getLogger(BlobStore.class);
+  private static final Pattern SHA256 = Pattern.compile("[0-9a-f]{64}");
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final Path root;
+
+  /**
+   * Creates a store rooted at the given directory.
+   *
+   * @param root directory holding the blobs, created on first write
+   */
+  public BlobStore(Path root) {
+    this.root = Objects.requireNonNull(root, "root");
+  }
+
+  /** Result of storing a blob. */
+  public record Stored(String sha256, long size, boolean existed) {}
+
+  /**
+   * Returns {@code true} if a blob with the given hash is stored.
+   *
+   * @param sha256 hex encoded SHA-256
+   */
+  public boolean contains(String sha256) {
+    return isHash(sha256) && Files.isRegularFile(path(sha256));
+  }
+
+  /**
+   * Returns the location of a stored blob.
+   *
+   * @param sha256 hex encoded SHA-256
+   * @return the blob path
+   * @throws IOException if the hash is malformed or no such blob is stored
+   */
+  public Path require(String sha256) throws IOException {
+    if (!isHash(sha256)) {
+      throw new IOException("Not a SHA-256 hash: " + sha256);
+    }
+    Path blob = path(sha256);
+    if (!Files.isRegularFile(blob)) {
+      throw new IOException("Unknown blob " + sha256 + ", upload it first");
+    }
+    touch(blob);
+    return blob;
+  }
+
+  /**
+   * Decodes base64 content and stores it. The text is decoded while it is hashed and written, so
+   * the decoded bytes are never held in memory as a whole.
+   *
+   * @param base64 base64 (or MIME base64) encoded content
+   * @return the stored blob
+   */
+  public Stored putBase64(CharSequence base64) throws IOException {
+    Objects.requireNonNull(base64, "base64");
+    try (InputStream in = Base64.getMimeDecoder().wrap(new AsciiInputStream(base64))) {
+      return put(in);
+    } catch (IllegalArgumentException e) {
+      throw new IOException("Invalid base64 content", e);
+    }
+  }
+
+  /**
+   * Streams content into the store.
+   *
+   * @param in the content, read to its end but not closed
+   * @return the stored blob
+   */
+  public Stored put(InputStream in) throws IOException {
+    Files.createDirectories(root);
+    MessageDigest md = Digests.sha256();
+    Path tmp = Files.createTempFile(root, ".blob", ".tmp");
+    try {
+      long size;
+      try (DigestInputStream digesting = new DigestInputStream(in, md);
+          OutputStream out = Files.newOutputStream(tmp)) {
+        size = digesting.transferTo(out);
+      }
+      String sha256 = HexFormat.of().formatHex(md.digest());
+      Path target = path(sha256);
+      if (Files.exists(target)) {
+        touch(target);
+        return new Stored(sha256, size, true);
+      }
+      Files.createDirectories(target.getParent());
+      try {
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+      } catch (IOException e) {
+        if (!Files.exists(target)) {
+          throw e;
+        }
+        // A concurrent upload of the same content won the race.
+        return new Stored(sha256, size, true);
+      }
+      LOG.debug("Stored blob {} ({} bytes)", sha256, size);
+      return new Stored(sha256, size, false);
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  /**
+   * Makes {@code target} a hard link to the stored blob with the given hash, replacing any file
+   * already there.
+   *
+   * @param sha256 hex encoded SHA-256
+   * @param target path to link
+   * @return {@code false} if no such blob is stored or the file system cannot link
+   */
+  public boolean linkTo(String sha256, Path target) throws IOException {
+    if (!contains(sha256)) {
+      return false;
+    }
+    return link(path(sha256), target);
+  }
+
+  /**
+   * Shares the content of a file with every other file of the same content. The file becomes the
+   * stored blob if none exists yet, otherwise it is replaced by a hard link to the stored blob. On
+   * file systems without hard links the file is left as a private copy.
+   *
+   * @param file file whose content has the given hash
+   * @param sha256 hex encoded SHA-256 of the file
+   * @return {@code true} if the file now shares the stored blob
+   */
+  public boolean dedupe(Path file, String sha256) throws IOException {
+    if (!isHash(sha256)) {
+      throw new IOException("Not a SHA-256 hash: " + sha256);
+    }
+    Path blob = path(sha256);
+    if (!Files.exists(blob)) {
+      Files.createDirectories(blob.getParent());
+      try {
+        Files.createLink(blob, file);
+        return true;
+      } catch (FileAlreadyExistsException e) {
+        // Stored concurrently; link to that copy below.
+      } catch (IOException | UnsupportedOperationException e) {
+        LOG.debug("Cannot hard link {} into {}", file, root, e);
+        return false;
+      }
+    }
+    return Files.isSameFile(blob, file) || link(blob, file);
+  }
+
+  /**
+   * Drops a blob from the store. Files already linked to it keep their content.
+   *
+   * @param sha256 hex encoded SHA-256
+   */
+  public void remove(String sha256) throws IOException {
+    if (isHash(sha256)) {
+      Files.deleteIfExists(path(sha256));
+    }
+  }
+
+  /** Returns {@code true} if the value is a lower case hex encoded SHA-256. */
+  public static boolean isHash(String sha256) {
+    return sha256 != null && SHA256.matcher(sha256).matches();
+  }
+
+  /** Normalizes a user supplied hash to the lower case form used by the store. */
+  public static String normalize(String sha256) {
+    return sha256 == null ? null : sha256.trim().toLowerCase(Locale.ROOT);
+  }
+
+  private static boolean link(Path blob, Path target) throws IOException {
+    Path parent = target.toAbsolutePath().getParent();
+    Files.createDirectories(parent);
+    Path tmp = parent.resolve(".link-" + UUID.randomUUID());
+    try {
+      Files.createLink(tmp, blob);
+      Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      return true;
+    } catch (IOException | UnsupportedOperationException e) {
+      LOG.debug("Cannot hard link {} to {}", target, blob, e);
+      return false;
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  private static void touch(Path blob) {
+    try {
+      Files.setLastModifiedTime(blob, FileTime.fromMillis(System.currentTimeMillis()));
+    } catch (IOException e) {
+      // Only the eviction order suffers.
+      LOG.debug("Failed to mark use of {}", blob, e);
+    }
+  }
+
+  private Path path(String sha256) {
+    return root.resolve(sha256.substring(0, 2)).resolve(sha256);
+  }
+
+  /** Reads the characters of a base64 string as bytes without copying the string. */
+  private static final class AsciiInputStream extends InputStream {
+    private final CharSequence text;
+    private int pos;
+
+    AsciiInputStream(CharSequence text) {
+      this.text = text;
+    }
+
+    @Override
+    public int read() {
+      return pos < text.length() ? text.charAt(pos++) & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) {
+      Objects.checkFromIndexSize(offset, length, buffer.length);
+      if (length == 0) {
+        return 0;
+      }
+      if (pos >= text.length()) {
+        return -1;
+      }
+      int n = Math.min(Math.min(length, BUFFER_SIZE), text.length() - pos);
+      for (int i = 0; i < n; i++) {
+        buffer[offset + i] = (byte) text.charAt(pos++);
+      }
+      return n;
+    }
+  }
+}
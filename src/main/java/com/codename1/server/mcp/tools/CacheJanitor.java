@@ -0,0 +1,402 @@
+package com.codename1.server.mcp.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the extracted toolchains below {@code libs/} and {@code jdks/} of the shared cache, the
+ * uploaded {@code blobs/} and the compiled {@code css-themes/} within a size budget. Entries are
+ * evicted least recently used first, ordered by the access marker that {@link GlobalExtractor}
+ * touches whenever it hands out an entry, or by the modification time of stored files, which
+ * their stores touch when serving them. An entry whose extraction lock is held, by this process or
+ * another one, is never evicted. Stored objects that no remaining entry links to are dropped
+ * afterwards.
+ *
+ * <p>Extracted files are hard links to stored objects and may be shared by several entries, so
+ * sizes count every file once however many links it has, and evicting an entry only frees the
+ * files that nothing but the object store links to any more.
+ */
+public final class CacheJanitor {
+  private static final Logger LOG = LoggerFactory.getLogger(CacheJanitor.class);
+
+  /** File touched inside a cache entry each time the entry is used. */
+  static final String ACCESS_MARKER = ".last-access";
+
+  static final String LOCK_FILE = ".extract.lock";
+  private static final List<String> AREAS = List.of("libs", "jdks");
+
+  /** Stores of plain files; the files sharing a name up to its first dot are one entry. */
+  private static final List<String> STORES = List.of("blobs", "css-themes");
+
+  private static final String TRASH = ".trash";
+
+  private final Path cacheDir;
+  private final long maxBytes;
+  private final Duration minIdle;
+
+  /** Outcome of a sweep. */
+  public record Report(
+      long bytesBefore, long bytesAfter, List<String> evicted, List<String> skipped) {
+    /** Defensive copies keep the report immutable. */
+    public Report {
+      // SpotBugs: store immutable copies rather than caller-provided lists.
+      evicted = evicted == null ? List.of() : List.copyOf(evicted);
+      skipped = skipped == null ? List.of() : List.copyOf(skipped);
+    }
+  }
+
+  /**
+   * A cache entry: an extracted tree, or the files of a store entry, with their total {@code
+   * size}, when {@code files} is not empty.
+   */
+  private record Entry(Path dir, String name, long size, long lastAccess, List<Path> files) {}
+
+  /**
+   * Creates a janitor for the given cache.
+   *
+   * @param cacheDir root of the shared cache
+   * @param maxBytes size the cached entries should be trimmed to
+   * @param minIdle entries used more recently than this are never evicted
+   */
+  public CacheJanitor(Path cacheDir, long maxBytes, Duration minIdle) {
+    this.cacheDir = Objects.requireNonNull(cacheDir, "cacheDir");
+    this.maxBytes = Math.max(0, maxBytes);
+    this.minIdle = Objects.requireNonNull(minIdle, "minIdle");
+  }
+
+  /**
+   * Evicts least recently used entries until the cached entries fit the budget.
+   *
+   * @return what was evicted and what had to be kept
+   */
+  public Report sweep() throws IOException {
+    emptyTrash();
+    List<Entry> entries = new ArrayList<>();
+    for (String area : AREAS) {
+      Path dir = cacheDir.resolve(area);
+      if (!Files.isDirectory(dir)) {
+        continue;
+      }
+      try (Stream<Path> children = Files.list(dir)) {
+        for (Path child : (Iterable<Path>) children::iterator) {
+          if (Files.isDirectory(child)) {
+            String name = area + "/" + child.getFileName();
+            entries.add(new Entry(child, name, 0, lastAccess(child), List.of()));
+          }
+        }
+      }
+    }
+    for (String store : STORES) {
+      Path dir = cacheDir.resolve(store);
+      if (Files.isDirectory(dir)) {
+        entries.addAll(storeEntries(store, dir));
+      }
+    }
+    long before = usage();
+    long total = before;
+    long cutoff = System.currentTimeMillis() - minIdle.toMillis();
+    List<String> evicted = new ArrayList<>();
+    List<String> skipped = new ArrayList<>();
+    entries.sort(Comparator.comparingLong(Entry::lastAccess));
+    for (Entry entry : entries) {
+      if (total <= maxBytes) {
+        break;
+      }
+      if (entry.lastAccess() > cutoff) {
+        skipped.add(entry.name());
+        continue;
+      }
+      long freed = evict(entry);
+      if (freed >= 0) {
+        evicted.add(entry.name());
+        total -= freed;
+      } else {
+        skipped.add(entry.name());
+      }
+    }
+    if (!evicted.isEmpty()) {
+      collectObjects();
+      total = usage();
+      LOG.info(
+          "Evicted {} cache entries, {} bytes -> {} bytes (budget {})",
+          evicted.size(),
+          before,
+          total,
+          maxBytes);
+    }
+    return new Report(before, total, evicted, skipped);
+  }
+
+  /**
+   * Moves the entry out of the cache while holding its extraction lock, so an extractor either
+   * sees the complete entry or none at all, then deletes it.
+   *
+   * @return the bytes freed, or {@code -1} if the entry is in use and was kept
+   */
+  private long evict(Entry entry) throws IOException {
+    if (!entry.files().isEmpty()) {
+      // Stores replace their files atomically; a reader racing us sees a miss.
+      for (Path file : entry.files()) {
+        Files.deleteIfExists(file);
+      }
+      LOG.debug("Evicted stored files {} ({} bytes)", entry.name(), entry.size());
+      return entry.size();
+    }
+    Path lockPath = entry.dir().resolve(LOCK_FILE);
+    ReentrantLock local = GlobalExtractor.localLock(lockPath);
+    if (!local.tryLock()) {
+      return -1;
+    }
+    Path trashed;
+    try {
+      if (GlobalExtractor.inUse(entry.dir())) {
+        // A compiler or CSS worker of this process runs from it.
+        return -1;
+      }
+      if (Files.exists(lockPath)) {
+        try (FileChannel channel = FileChannel.open(lockPath, StandardOpenOption.WRITE);
+            FileLock lock = channel.tryLock()) {
+          if (lock == null) {
+            return -1;
+          }
+          trashed = moveToTrash(entry);
+        } catch (OverlappingFileLockException e) {
+          return -1;
+        } catch (NoSuchFileException e) {
+          // Evicted concurrently by another janitor.
+          return -1;
+        }
+      } else {
+        trashed = moveToTrash(entry);
+      }
+    } finally {
+      local.unlock();
+    }
+    // Measured once the entry is out of the cache, so links of entries evicted earlier are gone.
+    long freed = exclusiveSize(trashed);
+    deleteTree(trashed);
+    LOG.debug("Evicted cache entry {} ({} bytes)", entry.name(), freed);
+    return freed;
+  }
+
+  private Path moveToTrash(Entry entry) throws IOException {
+    Path trash = cacheDir.resolve(TRASH);
+    Files.createDirectories(trash);
+    Path target =
+        trash.resolve(entry.name().replace('/', '-') + "-" + Long.toHexString(System.nanoTime()));
+    Files.move(entry.dir(), target, StandardCopyOption.ATOMIC_MOVE);
+    return target;
+  }
+
+  /** Removes entries a previous sweep moved aside but did not finish deleting. */
+  private void emptyTrash() throws IOException {
+    Path trash = cacheDir.resolve(TRASH);
+    if (!Files.isDirectory(trash)) {
+      return;
+    }
+    try (Stream<Path> children = Files.list(trash)) {
+      for (Path child : (Iterable<Path>) children::iterator) {
+        deleteTree(child);
+      }
+    }
+  }
+
+  /**
+   * Drops stored objects that no cached tree links to any more. Linking to an object while it is
+   * collected is harmless: the new link keeps the content alive.
+   */
+  private void collectObjects() {
+    Path root = cacheDir.resolve(GlobalExtractor.OBJECTS);
+    if (!Files.isDirectory(root)) {
+      return;
+    }
+    long[] freed = {0};
+    try (Stream<Path> walk = Files.walk(root)) {
+      walk.filter(Files::isRegularFile)
+          .forEach(
+              object -> {
+                try {
+                  if (((Number) Files.getAttribute(object, "unix:nlink")).intValue() == 1) {
+                    long size = Files.size(object);
+                    Files.delete(object);
+                    freed[0] += size;
+                  }
+                } catch (IOException e) {
+                  LOG.debug("Failed to collect {}", object, e);
+                }
+              });
+    } catch (UnsupportedOperationException e) {
+      // Without link counts there is no way to tell unused objects apart; keep them all.
+      LOG.debug("Link counts unavailable, not collecting {}", root);
+      return;
+    } catch (IOException e) {
+      LOG.debug("Failed to walk {}", root, e);
+    }
+    LOG.debug("Collected {} bytes of unreferenced objects", freed[0]);
+  }
+
+  /** Groups the files of a store into entries, skipping dot files that are still being written. */
+  private static List<Entry> storeEntries(String store, Path dir) throws IOException {
+    Map<String, List<Path>> byName = new TreeMap<>();
+    try (Stream<Path> walk = Files.walk(dir)) {
+      for (Path file : (Iterable<Path>) walk::iterator) {
+        String name = file.getFileName().toString();
+        if (name.startsWith(".") || !Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS)) {
+          continue;
+        }
+        int dot = name.indexOf('.');
+        Path stem = file.resolveSibling(dot < 0 ? name : name.substring(0, dot));
+        String key = store + "/" + dir.relativize(stem).toString().replace(File.separatorChar, '/');
+        byName.computeIfAbsent(key, k -> new ArrayList<>()).add(file);
+      }
+    }
+    List<Entry> entries = new ArrayList<>();
+    for (Map.Entry<String, List<Path>> group : byName.entrySet()) {
+      long size = 0;
+      long lastAccess = 0;
+      try {
+        for (Path file : group.getValue()) {
+          size += Files.size(file);
+          lastAccess = Math.max(lastAccess, Files.getLastModifiedTime(file).toMillis());
+        }
+      } catch (NoSuchFileException e) {
+        // Replaced or removed while we looked; the next sweep sees its new state.
+        continue;
+      }
+      entries.add(new Entry(dir, group.getKey(), size, lastAccess, group.getValue()));
+    }
+    return entries;
+  }
+
+  private static long lastAccess(Path entry) throws IOException {
+    Path marker = entry.resolve(ACCESS_MARKER);
+    Path source = Files.exists(marker) ? marker : entry;
+    return Files.getLastModifiedTime(source).toMillis();
+  }
+
+  /** Size of the extracted entries, stores and stored objects, counting each file once. */
+  private long usage() throws IOException {
+    Set<Object> seen = new HashSet<>();
+    long[] total = {0};
+    List<String> roots = new ArrayList<>(AREAS);
+    roots.addAll(STORES);
+    roots.add(GlobalExtractor.OBJECTS);
+    for (String name : roots) {
+      Path root = cacheDir.resolve(name);
+      if (Files.isDirectory(root)) {
+        walkFiles(
+            root,
+            (file, attrs) -> {
+              Object key = attrs.fileKey();
+              if (key == null || seen.add(key)) {
+                total[0] += attrs.size();
+              }
+            });
+      }
+    }
+    return total[0];
+  }
+
+  /**
+   * Bytes freed by deleting the tree: files whose links all lie inside it, apart from at most one
+   * in the object store, which is collected afterwards.
+   */
+  private static long exclusiveSize(Path root) throws IOException {
+    Map<Object, long[]> files = new HashMap<>();
+    long[] total = {0};
+    walkFiles(
+        root,
+        (file, attrs) -> {
+          Object key = attrs.fileKey();
+          int links = linkCount(file);
+          if (key == null || links < 0) {
+            total[0] += attrs.size();
+            return;
+          }
+          // Size, link count and links seen inside the tree.
+          files.computeIfAbsent(key, k -> new long[] {attrs.size(), links, 0})[2]++;
+        });
+    for (long[] file : files.values()) {
+      if (file[1] - file[2] <= 1) {
+        total[0] += file[0];
+      }
+    }
+    return total[0];
+  }
+
+  /** Returns the number of hard links to the file, or {@code -1} if the file system cannot tell. */
+  private static int linkCount(Path file) {
+    try {
+      return ((Number) Files.getAttribute(file, "unix:nlink", LinkOption.NOFOLLOW_LINKS))
+          .intValue();
+    } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+      return -1;
+    }
+  }
+
+  @FunctionalInterface
+  private interface FileAction {
+    void visit(Path file, BasicFileAttributes attrs);
+  }
+
+  private static void walkFiles(Path root, FileAction action) throws IOException {
+    Files.walkFileTree(
+        root,
+        new SimpleFileVisitor<>() {
+          @Override
+          public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+            if (attrs.isRegularFile()) {
+              action.visit(file, attrs);
+            }
+            return FileVisitResult.CONTINUE;
+          }
+
+          @Override
+          public FileVisitResult visitFileFailed(Path file, IOException exc) {
+            return FileVisitResult.CONTINUE;
+          }
+        });
+  }
+
+  private static void deleteTree(Path root) {
+    try (Stream<Path> walk = Files.walk(root)) {
+      walk.sorted(Comparator.reverseOrder())
+          .forEach(
+              path -> {
+                try {
+                  Files.deleteIfExists(path);
+                } catch (IOException e) {
+                  LOG.debug("Failed to delete {}", path, e);
+                }
+              });
+    } catch (IOException e) {
+      LOG.debug("Failed to delete {}", root, e);
+    }
+  }
+}
@@ -0,0 +1,311 @@
+package com.codename1.server.mcp.tools;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Class Data Sharing archives for launches of an extracted JDK 8. JDK 8 ships no default archive
+ * and its open source builds only share classes of the boot class path, so {@code tools.jar} is
+ * appended to the boot class path of {@code javac} launches to let its classes be shared too.
+ *
+ * <p>The first launch of each kind is the training run: it records the classes it loads. Once it
+ * exits successfully the archive is dumped in the background and checked with {@code
+ * -Xshare:on}; later launches map it with {@code -Xshare:auto}, which silently falls back to
+ * regular class loading if the archive cannot be used. A kind whose archive cannot be built is
+ * disabled until the JDK is extracted again.
+ */
+public final class ClassDataSharing {
+  private static final Logger LOG = LoggerFactory.getLogger(ClassDataSharing.class);
+  private static final String DIRECTORY = ".cn1-cds";
+  private static final String UNLOCK = "-XX:+UnlockDiagnosticVMOptions";
+
+  /** The kinds of launch that get an archive of their own. */
+  public enum Kind {
+    /** {@code javac} launches; JVM options are passed with {@code -J}. */
+    JAVAC("-J"),
+    /** {@code java} launches of the designer. */
+    JAVA("");
+
+    private final String prefix;
+
+    Kind(String prefix) {
+      this.prefix = prefix;
+    }
+  }
+
+  /** Options for one launch, and the hook that finishes a training run. */
+  public static final class Launch {
+    private static final Launch NONE = new Launch(List.of(), null);
+
+    private final List<String> options;
+    private final Consumer<Boolean> onExit;
+    private final AtomicBoolean done = new AtomicBoolean();
+
+    private Launch(List<String> options, Consumer<Boolean> onExit) {
+      this.options = List.copyOf(options);
+      this.onExit = onExit;
+    }
+
+    /** A launch without class data sharing. */
+    public static Launch none() {
+      return NONE;
+    }
+
+    /** Returns the options to insert right after the executable. */
+    public List<String> options() {
+      return options;
+    }
+
+    /**
+     * Tracks a short-lived process. When this launch was a training run that exits successfully,
+     * its archive is built in the background.
+     *
+     * @param process the process started with {@link #options()}
+     */
+    public void attach(Process process) {
+      if (onExit != null) {
+        process.onExit().thenAccept(p -> completed(p.exitValue() == 0));
+      }
+    }
+
+    /**
+     * Reports the outcome of a training run explicitly, for long-lived processes that are never
+     * expected to exit cleanly. The JVM writes the class list as it loads classes, so it is
+     * complete enough once the process has done representative work. Only the first report
+     * counts.
+     *
+     * @param success whether the process did representative work
+     */
+    public void completed(boolean success) {
+      if (onExit != null && done.compareAndSet(false, true)) {
+        onExit.accept(success);
+      }
+    }
+  }
+
+  private final Path java;
+  private final Path toolsJar;
+  private final Path directory;
+  private final Map<Kind, AtomicBoolean> training = new EnumMap<>(Kind.class);
+  private final ExecutorService dumper =
+      Executors.newSingleThreadExecutor(
+          r -> {
+            Thread t = new Thread(r, "cn1-cds-dump");
+            t.setDaemon(true);
+            return t;
+          });
+
+  /**
+   * Creates the archives of an extracted JDK, kept inside the JDK.
+   *
+   * @param java the {@code java} executable of the JDK
+   */
+  public ClassDataSharing(Path java) {
+    this(java, null);
+  }
+
+  /**
+   * Creates the archives of a JDK.
+   *
+   * @param java the {@code java} executable of the JDK
+   * @param directory where the archives are kept, or {@code null} for a directory inside the JDK
+   */
+  public ClassDataSharing(Path java, Path directory) {
+    this.java = Objects.requireNonNull(java, "java");
+    Path bin = java.toAbsolutePath().getParent();
+    Path root = bin == null ? null : bin.getParent();
+    if (root == null) {
+      throw new IllegalArgumentException("java is not inside a JDK: " + java);
+    }
+    this.toolsJar = root.resolve("lib").resolve("tools.jar");
+    this.directory = directory != null ? directory : root.resolve(DIRECTORY);
+    for (Kind kind : Kind.values()) {
+      training.put(kind, new AtomicBoolean());
+    }
+  }
+
+  /** Returns the {@code java} executable the archives belong to. */
+  public Path java() {
+    return java;
+  }
+
+  /**
+   * Returns the options for the next launch of the given kind: the archive if it is ready, the
+   * training options if nobody has trained yet, and nothing otherwise.
+   */
+  public Launch launch(Kind kind) {
+    Path archive = archive(kind);
+    if (Files.exists(archive)) {
+      List<String> options = new ArrayList<>(bootClassPath(kind));
+      options.add(UNLOCK);
+      options.add("-Xshare:auto");
+      options.add("-XX:SharedArchiveFile=" + archive);
+      return new Launch(prefixed(kind, options), null);
+    }
+    if (Files.exists(disabledMarker(kind)) || !training.get(kind).compareAndSet(false, true)) {
+      return Launch.none();
+    }
+    Path classList;
+    try {
+      Files.createDirectories(directory);
+      // Named per training run: processes sharing the cache must not record into the same list.
+      classList = Files.createTempFile(directory, name(kind) + "-", ".classlist");
+    } catch (IOException e) {
+      LOG.debug("Cannot prepare class data sharing directory {}", directory, e);
+      training.get(kind).set(false);
+      return Launch.none();
+    }
+    List<String> options = new ArrayList<>(bootClassPath(kind));
+    options.add("-XX:DumpLoadedClassList=" + classList);
+    LOG.info("Recording classes of the first {} launch for class data sharing", kind);
+    return new Launch(
+        prefixed(kind, options),
+        success -> {
+          if (success) {
+            dumper.execute(() -> dump(kind, classList));
+          } else {
+            delete(classList);
+            // The next launch records the classes instead.
+            training.get(kind).set(false);
+          }
+        });
+  }
+
+  /**
+   * Builds and checks the archive from a recorded class list. The archive is dumped and moved
+   * into place under the lock of the cache entry holding the JDK, so that processes sharing the
+   * cache build it once and {@link CacheJanitor} does not evict the JDK meanwhile.
+   */
+  private void dump(Kind kind, Path classList) {
+    Path archive = archive(kind);
+    Path lockPath = lockFile();
+    ReentrantLock local = GlobalExtractor.localLock(lockPath);
+    Path tmp = null;
+    local.lock();
+    try (FileChannel channel =
+            FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock ignored = channel.lock()) {
+      if (Files.exists(archive) || Files.exists(disabledMarker(kind))) {
+        // Another process finished its training run first.
+        return;
+      }
+      tmp = Files.createTempFile(directory, name(kind) + "-", ".jsa.tmp");
+      List<String> command = new ArrayList<>();
+      command.add(java.toString());
+      command.add(UNLOCK);
+      command.add("-Xshare:dump");
+      command.addAll(bootClassPath(kind));
+      command.add("-XX:SharedClassListFile=" + classList);
+      command.add("-XX:SharedArchiveFile=" + tmp);
+      run(command, "dump");
+
+      List<String> check = new ArrayList<>();
+      check.add(java.toString());
+      check.addAll(bootClassPath(kind));
+      check.add(UNLOCK);
+      check.add("-Xshare:on");
+      check.add("-XX:SharedArchiveFile=" + tmp);
+      check.add("-version");
+      run(check, "check");
+
+      Files.move(tmp, archive, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      LOG.info("Built class data sharing archive {} ({} bytes)", archive, Files.size(archive));
+    } catch (IOException e) {
+      LOG.warn("Class data sharing disabled for {} launches: {}", kind, e.getMessage());
+      try {
+        Files.writeString(disabledMarker(kind), e.toString(), StandardCharsets.UTF_8);
+      } catch (IOException ex) {
+        LOG.debug("Cannot record disabled class data sharing for {}", kind, ex);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      local.unlock();
+      if (tmp != null) {
+        delete(tmp);
+      }
+      delete(classList);
+      training.get(kind).set(false);
+    }
+  }
+
+  /**
+   * Returns the lock file of the cache entry the archives live in, or one of their own when they
+   * are kept outside the extraction cache.
+   */
+  private Path lockFile() {
+    for (Path dir = directory.toAbsolutePath().getParent(); dir != null; dir = dir.getParent()) {
+      if (Files.exists(dir.resolve(CacheJanitor.LOCK_FILE))) {
+        return dir.resolve(CacheJanitor.LOCK_FILE);
+      }
+    }
+    return directory.resolve(CacheJanitor.LOCK_FILE);
+  }
+
+  private static void delete(Path file) {
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      LOG.debug("Failed to delete {}", file, e);
+    }
+  }
+
+  private static void run(List<String> command, String step)
+      throws IOException, InterruptedException {
+    ProcessBuilder pb = new ProcessBuilder(command);
+    pb.redirectErrorStream(true);
+    Process process = pb.start();
+    String log;
+    try (InputStream in = process.getInputStream()) {
+      log = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+    int exit = process.waitFor();
+    if (exit != 0) {
+      throw new IOException("Archive " + step + " exited with " + exit + ": " + log.strip());
+    }
+  }
+
+  private List<String> bootClassPath(Kind kind) {
+    // The archive is only valid with the boot class path it was dumped with.
+    if (kind == Kind.JAVAC && Files.exists(toolsJar)) {
+      return List.of("-Xbootclasspath/a:" + toolsJar);
+    }
+    return List.of();
+  }
+
+  private static List<String> prefixed(Kind kind, List<String> options) {
+    return options.stream().map(option -> kind.prefix + option).toList();
+  }
+
+  private Path archive(Kind kind) {
+    return directory.resolve(name(kind) + ".jsa");
+  }
+
+  private Path disabledMarker(Kind kind) {
+    return directory.resolve(name(kind) + ".disabled");
+  }
+
+  private static String name(Kind kind) {
+    return kind.name().toLowerCase(Locale.ROOT);
+  }
+}
@@ -1,8 +1,12 @@
 package com.codename1.server.mcp.tools;
 
+import com.codename1.server.mcp.dto.AssetUploadResponse;
 import com.codename1.server.mcp.dto.AutoFixResponse;
+import com.codename1.server.mcp.dto.CacheMaintenanceResponse;
 import com.codename1.server.mcp.dto.CompileRequest;
 import com.codename1.server.mcp.dto.CompileResponse;
+import com.codename1.server.mcp.dto.CssBatchCompileRequest;
+import com.codename1.server.mcp.dto.CssBatchCompileResponse;
 import com.codename1.server.mcp.dto.CssCompileRequest;
 import com.codename1.server.mcp.dto.CssCompileResponse;
 import com.codename1.server.mcp.dto.ExplainResponse;
@@ -10,12 +14,16 @@ import com.codename1.server.mcp.dto.FileEntry;
 import com.codename1.server.mcp.dto.LintDiag;
 import com.codename1.server.mcp.dto.LintRequest;
 import com.codename1.server.mcp.dto.LintResponse;
+import com.codename1.server.mcp.dto.NativeStubBatchRequest;
+import com.codename1.server.mcp.dto.NativeStubBatchResponse;
 import com.codename1.server.mcp.dto.NativeStubRequest;
 import com.codename1.server.mcp.dto.NativeStubResponse;
 import com.codename1.server.mcp.dto.Patch;
 import com.codename1.server.mcp.dto.ScaffoldRequest;
 import com.codename1.server.mcp.dto.ScaffoldResponse;
 import com.codename1.server.mcp.dto.SnippetsResponse;
+import com.codename1.server.mcp.service.AssetService;
+import com.codename1.server.mcp.service.CacheMaintenanceService;
 import com.codename1.server.mcp.service.CssCompileService;
 import com.codename1.server.mcp.service.ExternalCompileService;
 import com.codename1.server.mcp.service.LintService;
@@ -44,6 +52,8 @@ public class CodenameOneMcpTools {
   private final ScaffoldService scaffoldService;
   private final SnippetService snippetService;
   private final NativeStubService nativeStubService;
+  private final AssetService assetService;
+  private final CacheMaintenanceService cacheMaintenanceService;
   private final ObjectMapper objectMapper;
 
   /**
@@ -55,6 +65,8 @@ public class CodenameOneMcpTools {
    * @param scaffoldService Codename One project scaffolding service
    * @param snippetService Codename One snippet retrieval service
    * @param nativeStubService Codename One native stub generation service
+   * @param assetService binary asset upload service
+   * @param cacheMaintenanceService shared cache maintenance service
    * @param objectMapper Jackson mapper used to serialise tool payloads
    */
   public CodenameOneMcpTools(
@@ -64,6 +76,8 @@ public class CodenameOneMcpTools {
       ScaffoldService scaffoldService,
       SnippetService snippetService,
       NativeStubService nativeStubService,
+      AssetService assetService,
+      CacheMaintenanceService cacheMaintenanceService,
       ObjectMapper objectMapper) {
     this.lintService = Objects.requireNonNull(lintService, "lintService");
     this.compileService = Objects.requireNonNull(compileService, "compileService");
@@ -71,6 +85,9 @@ public class CodenameOneMcpTools {
     this.scaffoldService = Objects.requireNonNull(scaffoldService, "scaffoldService");
     this.snippetService = Objects.requireNonNull(snippetService, "snippetService");
     this.nativeStubService = Objects.requireNonNull(nativeStubService, "nativeStubService");
+    this.assetService = Objects.requireNonNull(assetService, "assetService");
+    this.cacheMaintenanceService =
+        Objects.requireNonNull(cacheMaintenanceService, "cacheMaintenanceService");
     this.objectMapper = Objects.requireNonNull(objectMapper, "objectMapper");
   }
 
@@ -125,6 +142,62 @@ public class CodenameOneMcpTools {
     return structuredResult(response);
   }
 
+  /**
+   * Compiles several Codename One CSS themes that share one set of files.
+   *
+   * @param files CSS files and assets shared by every theme
+   * @param themes themes to compile, each naming its input and optional output path
+   * @return structured batch CSS compile payload
+   */
+  @McpTool(
+      name = "cn1_compile_css_batch",
+      description = "Compile several Codename One CSS themes sharing one file set")
+  public McpSchema.CallToolResult compileCssBatch(
+      @McpToolParam(description = "CSS files shared by all themes", required = true)
+          List<FileEntry> files,
+      @McpToolParam(
+              description = "Themes to compile, each with inputPath and optional outputPath",
+              required = true)
+          List<CssCompileRequest> themes) {
+    CssBatchCompileResponse response =
+        cssCompileService.compileBatch(new CssBatchCompileRequest(files, themes));
+    return structuredResult(response);
+  }
+
+  /**
+   * Uploads a binary asset, such as an image or font, for use by later requests.
+   *
+   * @param base64 base64 encoded asset content
+   * @param sha256 optional expected SHA-256; if already stored the content is not needed
+   * @return structured upload payload carrying the asset hash
+   */
+  @McpTool(
+      name = "cn1_upload_asset",
+      description =
+          "Upload a binary asset once and reference it by SHA-256 as blobSha256 in file entries")
+  public McpSchema.CallToolResult uploadAsset(
+      @McpToolParam(description = "Base64 encoded asset content") String base64,
+      @McpToolParam(description = "Expected SHA-256 of the content; checks for a stored copy")
+          String sha256) {
+    AssetUploadResponse response = assetService.upload(base64, sha256);
+    return structuredResult(response);
+  }
+
+  /**
+   * Trims the shared cache to its size budget.
+   *
+   * @return structured sweep payload listing evicted entries
+   */
+  @McpTool(
+      name = "cn1_cache_maintenance",
+      description =
+          "Evict least recently used toolchains, uploaded assets and compiled themes until the"
+              + " cache fits its size budget")
+  public McpSchema.CallToolResult cacheMaintenance() {
+    CacheMaintenanceResponse response = cacheMaintenanceService.sweep();
+    return structuredResult(response);
+  }
+
   /**
    * Scaffolds a new Codename One project structure.
    *
@@ -209,6 +282,7 @@ public class CodenameOneMcpTools {
    *
    * @param files compilation unit source files
    * @param interfaceName fully qualified native interface name
+   * @param platforms platforms to generate stubs for, or {@code null} for all
    * @return structured native stub payload
    */
   @McpTool(
@@ -218,9 +292,40 @@ public class CodenameOneMcpTools {
       @McpToolParam(description = "Compilation unit source files", required = true)
           List<FileEntry> files,
       @McpToolParam(description = "Fully qualified native interface name", required = true)
-          String interfaceName) {
+          String interfaceName,
+      // Optional, so that existing callers of the tool keep working without it.
+      @McpToolParam(
+              description = "Platforms to generate, e.g. android, ios, javase; all when omitted",
+              required = false)
+          List<String> platforms) {
     NativeStubResponse response =
-        nativeStubService.generate(new NativeStubRequest(files, interfaceName));
+        nativeStubService.generate(new NativeStubRequest(files, interfaceName, platforms));
+    return structuredResult(response);
+  }
+
+  /**
+   * Generates the stubs of several native interfaces from one set of source files.
+   *
+   * @param files compilation unit source files shared by every interface
+   * @param interfaceNames fully qualified native interface names
+   * @param platforms platforms to generate stubs for, or {@code null} for all
+   * @return structured batch native stub payload
+   */
+  @McpTool(
+      name = "cn1_generate_native_stubs_batch",
+      description = "Generate native interface stubs for several Codename One interfaces at once")
+  public McpSchema.CallToolResult generateNativeStubsBatch(
+      @McpToolParam(description = "Compilation unit source files", required = true)
+          List<FileEntry> files,
+      @McpToolParam(description = "Fully qualified native interface names", required = true)
+          List<String> interfaceNames,
+      @McpToolParam(
+              description = "Platforms to generate, e.g. android, ios, javase; all when omitted",
+              required = false)
+          List<String> platforms) {
+    NativeStubBatchResponse response =
+        nativeStubService.generateBatch(
+            new NativeStubBatchRequest(files, interfaceNames, platforms));
     return structuredResult(response);
   }
 
@@ -0,0 +1,174 @@
+package com.codename1.server.mcp.tools;
+
+import com.codename1.server.mcp.util.Digests;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Record of the files an extraction produced: size, modification time and SHA-256 of each file,
+ * keyed by its {@code /} separated path below the extraction root. The size and time give a
+ * cheap staleness check; the digests confirm which files actually need repairing.
+ */
+final class ExtractionManifest {
+  private static final String HEADER = "# cn1 extraction manifest v1";
+
+  /** A single file of the extraction. */
+  record Entry(long size, long mtime, String sha256) {}
+
+  private final Map<String, Entry> entries;
+
+  private ExtractionManifest(Map<String, Entry> entries) {
+    this.entries = Collections.unmodifiableMap(new TreeMap<>(entries));
+  }
+
+  /**
+   * Creates a manifest from known digests, reading sizes and times from the extracted files.
+   *
+   * @param root extraction root
+   * @param digests SHA-256 per relative path
+   * @return the manifest
+   */
+  static ExtractionManifest of(Path root, Map<String, String> digests) throws IOException {
+    Map<String, Entry> entries = new TreeMap<>();
+    for (Map.Entry<String, String> digest : digests.entrySet()) {
+      BasicFileAttributes attrs =
+          Files.readAttributes(
+              root.resolve(digest.getKey()), BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+      entries.put(
+          digest.getKey(),
+          new Entry(attrs.size(), attrs.lastModifiedTime().toMillis(), digest.getValue()));
+    }
+    return new ExtractionManifest(entries);
+  }
+
+  /**
+   * Reads a manifest file.
+   *
+   * @param file the manifest
+   * @return the manifest, or {@code null} if it is missing or unreadable
+   */
+  static ExtractionManifest read(Path file) {
+    try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      if (!HEADER.equals(reader.readLine())) {
+        return null;
+      }
+      Map<String, Entry> entries = new TreeMap<>();
+      String line;
+      while ((line = reader.readLine()) != null) {
+        String[] parts = line.split("\t", 4);
+        if (parts.length != 4) {
+          return null;
+        }
+        entries.put(
+            parts[3],
+            new Entry(Long.parseLong(parts[1]), Long.parseLong(parts[2]), parts[0]));
+      }
+      return new ExtractionManifest(entries);
+    } catch (IOException | RuntimeException e) {
+      // Missing or damaged manifests are rebuilt by the caller.
+      return null;
+    }
+  }
+
+  /** Writes the manifest atomically. */
+  void write(Path file) throws IOException {
+    StringBuilder out = new StringBuilder(HEADER).append('\n');
+    for (Map.Entry<String, Entry> e : entries.entrySet()) {
+      Entry entry = e.getValue();
+      out.append(entry.sha256())
+          .append('\t')
+          .append(entry.size())
+          .append('\t')
+          .append(entry.mtime())
+          .append('\t')
+          .append(e.getKey())
+          .append('\n');
+    }
+    Path tmp = Files.createTempFile(file.getParent(), ".manifest", ".tmp");
+    try {
+      Files.writeString(tmp, out, StandardCharsets.UTF_8);
+      Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  /** Returns the digests of all recorded files. */
+  Map<String, String> digests() {
+    return entries.entrySet().stream()
+        .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().sha256()));
+  }
+
+  /**
+   * Cheap validation comparing sizes and modification times only.
+   *
+   * @param root extraction root
+   * @return {@code true} if every recorded file is present with its recorded size and time
+   */
+  boolean matchesAttributes(Path root) {
+    return entries.entrySet().parallelStream()
+        .allMatch(
+            e -> {
+              try {
+                BasicFileAttributes attrs =
+                    Files.readAttributes(
+                        root.resolve(e.getKey()),
+                        BasicFileAttributes.class,
+                        LinkOption.NOFOLLOW_LINKS);
+                return attrs.size() == e.getValue().size()
+                    && attrs.lastModifiedTime().toMillis() == e.getValue().mtime();
+              } catch (IOException ex) {
+                return false;
+              }
+            });
+  }
+
+  /**
+   * Hashes the expected files in parallel and returns those that are missing or whose content
+   * differs from the expected digest.
+   *
+   * @param root extraction root
+   * @param expected SHA-256 per relative path
+   * @return paths needing repair
+   */
+  static Set<String> corruptPaths(Path root, Map<String, String> expected) {
+    return expected.entrySet().parallelStream()
+        .filter(e -> !e.getValue().equals(digestOrNull(root.resolve(e.getKey()))))
+        .map(Map.Entry::getKey)
+        .collect(Collectors.toCollection(TreeSet::new));
+  }
+
+  /** Hex encoded SHA-256 of a file, or {@code null} if it cannot be read. */
+  static String digestOrNull(Path file) {
+    try {
+      return digest(file);
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  static String digest(Path file) throws IOException {
+    MessageDigest md = Digests.sha256();
+    try (InputStream in = new DigestInputStream(Files.newInputStream(file), md)) {
+      in.transferTo(OutputStream.nullOutputStream());
+    }
+    return HexFormat.of().formatHex(md.digest());
+  }
+}
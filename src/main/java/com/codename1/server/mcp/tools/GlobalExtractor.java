@@ -1,31 +1,62 @@
 package com.codename1.server.mcp.tools;
 
-import java.io.ByteArrayInputStream;
+import com.codename1.server.mcp.util.Digests;
+import java.io.BufferedInputStream;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.reflect.Method;
+import java.net.JarURLConnection;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
 import java.security.MessageDigest;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.HexFormat;
 import java.util.Locale;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.jar.JarEntry;
+import java.util.regex.Pattern;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
 import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.commons.compress.compressors.xz.XZCompressorInputStream;
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -34,14 +65,42 @@ public class GlobalExtractor {
   private static final Logger LOG = LoggerFactory.getLogger(GlobalExtractor.class);
   private static final ConcurrentHashMap<String, ReentrantLock> LOCAL_LOCKS =
       new ConcurrentHashMap<>();
+  /** Cache entries that processes of this JVM run from, with the number of such uses. */
+  private static final ConcurrentHashMap<Path, Integer> IN_USE = new ConcurrentHashMap<>();
   private static final Method ZIP_GET_UNIX_MODE = resolveMethod("getUnixMode");
   private static final Method ZIP_GET_EXTERNAL_ATTRIBUTES = resolveMethod("getExternalAttributes");
+  private static final int MAX_EXTRACTION_THREADS = 8;
+  private static final int QUEUED_WRITES_PER_THREAD = 4;
+  private static final long INLINE_WRITE_LIMIT = 1024 * 1024;
+  private static final int DECODER_BUFFER_SIZE = 64 * 1024;
+  private static final String MANIFEST_SUFFIX = ".manifest";
+  private static final String DIGEST_SUFFIX = ".sha256.txt";
+  private static final Pattern SHA256_HEX = Pattern.compile("[0-9a-f]{64}");
+  private static final long ACCESS_MARK_INTERVAL_MILLIS = 60_000;
+  static final String OBJECTS = "objects";
+  private static final String PARTIAL_SUFFIX = ".partial";
+  private static final int DOWNLOAD_PARALLELISM = 4;
+  private static final long DOWNLOAD_MIN_SEGMENT_BYTES = 8L * 1024 * 1024;
 
   private final Path cacheDir;
   private final String versionTag;
+  private final ConcurrentHashMap<String, String> resourceDigests = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, String> archiveStamps = new ConcurrentHashMap<>();
+  private final Set<Path> verified = ConcurrentHashMap.newKeySet();
+  private final ConcurrentHashMap<Path, Long> accessMarks = new ConcurrentHashMap<>();
+  private final AtomicLong generation = new AtomicLong();
+  private final BlobStore objects;
+  private final Set<Path> backgroundCompletions = ConcurrentHashMap.newKeySet();
+  private volatile Map<String, Path> resolved = Map.of();
+  private ExecutorService background;
+  private final BlobStore executableObjects;
+  private final RangeDownloader downloader =
+      new RangeDownloader(DOWNLOAD_PARALLELISM, DOWNLOAD_MIN_SEGMENT_BYTES);
 
   /**
-   * Creates a new extractor rooted at the given cache directory.
+   * Creates a new extractor rooted at the given cache directory. Extracted files are stored once
+   * per content below {@code objects/} and every cached tree hard links to them, so versions that
+   * share files share their disk space. Executables are kept apart because links share modes.
    *
    * @param cacheDir the directory used to store cached artifacts
    * @param versionTag a tag appended to cache directories to prevent collisions
@@ -49,16 +108,122 @@ public class GlobalExtractor {
   public GlobalExtractor(String cacheDir, String versionTag) {
     this.cacheDir = Paths.get(Objects.requireNonNull(cacheDir));
     this.versionTag = Objects.requireNonNull(versionTag);
+    this.objects = new BlobStore(this.cacheDir.resolve(OBJECTS).resolve("data"));
+    this.executableObjects = new BlobStore(this.cacheDir.resolve(OBJECTS).resolve("exec"));
+  }
+
+  /** Returns the root directory of the shared cache. */
+  public Path cacheDir() {
+    return cacheDir;
+  }
+
+  /**
+   * Forgets every resolved path, so the next request for each artifact checks the cache on disk
+   * again and repairs or re-extracts it as needed. The {@link #generation()} advances so that
+   * anything derived from those paths is resolved again too.
+   */
+  public synchronized void invalidate() {
+    resolved = Map.of();
+    verified.clear();
+    generation.incrementAndGet();
+  }
+
+  /**
+   * Returns a counter advanced by every {@link #invalidate()}. State derived from resolved paths
+   * is stale once the counter differs from the value it was derived under.
+   */
+  public long generation() {
+    return generation.get();
+  }
+
+  /** Make overridable for tests. */
+  protected InputStream openResource(String path) throws IOException {
+    InputStream in = GlobalExtractor.class.getResourceAsStream(path);
+    if (in == null) {
+      throw new FileNotFoundException("Resource not found: " + path);
+    }
+    return in;
   }
 
   /** Make overridable for tests. */
-  protected byte[] readResource(String path) throws IOException {
-    try (InputStream in = GlobalExtractor.class.getResourceAsStream(path)) {
-      if (in == null) {
-        throw new FileNotFoundException("Resource not found: " + path);
+  protected URL resourceUrl(String path) {
+    return GlobalExtractor.class.getResource(path);
+  }
+
+  /**
+   * Returns a stamp that changes whenever the content of a bundled archive does. An archive
+   * packaged in a jar is identified by the CRC-32 and size its jar entry records, which costs a
+   * lookup in the jar's central directory instead of reading the whole archive. Other archives
+   * fall back to their {@link #resourceDigest(String) digest}.
+   */
+  private String archiveStamp(String path) throws IOException {
+    String cached = archiveStamps.get(path);
+    if (cached != null) {
+      return cached;
+    }
+    String stamp = jarEntryStamp(path);
+    if (stamp == null) {
+      stamp = resourceDigest(path);
+    }
+    archiveStamps.putIfAbsent(path, stamp);
+    return stamp;
+  }
+
+  private String jarEntryStamp(String path) {
+    URL url = resourceUrl(path);
+    if (url == null || !"jar".equals(url.getProtocol())) {
+      return null;
+    }
+    try {
+      if (url.openConnection() instanceof JarURLConnection connection) {
+        JarEntry entry = connection.getJarEntry();
+        if (entry != null && entry.getCrc() != -1 && entry.getSize() != -1) {
+          return String.format(Locale.ROOT, "crc32-%08x-%d", entry.getCrc(), entry.getSize());
+        }
       }
-      return in.readAllBytes();
+    } catch (IOException e) {
+      LOG.trace("No jar entry for {}", path, e);
     }
+    return null;
+  }
+
+  /**
+   * Returns the SHA-256 of a classpath resource. A digest published next to the resource as
+   * {@code <resource>.sha256.txt}, as Adoptium does for its archives, is used when present;
+   * otherwise the resource is streamed through the digest. Bundled resources cannot change while
+   * the process runs, so either way each one is resolved only once.
+   */
+  private String resourceDigest(String path) throws IOException {
+    String cached = resourceDigests.get(path);
+    if (cached != null) {
+      return cached;
+    }
+    String digest = publishedDigest(path);
+    if (digest == null) {
+      MessageDigest md = Digests.sha256();
+      try (InputStream in = new DigestInputStream(openResource(path), md)) {
+        in.transferTo(OutputStream.nullOutputStream());
+      }
+      digest = HexFormat.of().formatHex(md.digest());
+    }
+    resourceDigests.putIfAbsent(path, digest);
+    return digest;
+  }
+
+  private String publishedDigest(String path) {
+    String sidecar = path + DIGEST_SUFFIX;
+    try (InputStream in = openResource(sidecar)) {
+      byte[] head = in.readNBytes(256);
+      String text = new String(head, StandardCharsets.US_ASCII).trim();
+      String token = text.split("\\s+", 2)[0].toLowerCase(Locale.ROOT);
+      if (SHA256_HEX.matcher(token).matches()) {
+        return token;
+      }
+      LOG.debug("Ignoring malformed digest file {}", sidecar);
+    } catch (IOException e) {
+      LOG.trace("No published digest for {}", path, e);
+    }
+    return null;
   }
 
   /**
@@ -68,41 +233,73 @@ public class GlobalExtractor {
    * @return the cached file path
    */
   public Path ensureFile(String resourcePath) throws IOException {
-    byte[] bytes = readResource(resourcePath);
-    String hash = sha256(bytes).substring(0, 12);
-
-    Path base = cacheDir.resolve("libs").resolve(versionTag + "-" + hash);
-    Files.createDirectories(base);
+    String key = "file:" + resourcePath;
+    Path known = resolved.get(key);
+    if (known != null) {
+      return markAccess(known.getParent(), known);
+    }
+    return publish(key, extractFile(resourcePath));
+  }
 
+  private Path extractFile(String resourcePath) throws IOException {
     Path fileName = Path.of(resourcePath).getFileName();
     if (fileName == null) {
       throw new IOException("Resource path has no filename: " + resourcePath);
     }
+    String hash = resourceDigest(resourcePath).substring(0, 12);
+
+    Path base = cacheDir.resolve("libs").resolve(versionTag + "-" + hash);
     Path out = base.resolve(fileName.toString());
-    if (Files.exists(out)) {
+    Path manifestPath = base.resolve(fileName + MANIFEST_SUFFIX);
+    if (Files.exists(out) && isIntact(out.getParent(), manifestPath, out)) {
       LOG.debug("Resource {} already extracted at {}", resourcePath, out);
-      return out;
+      return markAccess(base, out);
     }
+    Files.createDirectories(base);
 
-    Path lockPath = base.resolve(".extract.lock");
-    ReentrantLock local =
-        LOCAL_LOCKS.computeIfAbsent(lockPath.toString(), key -> new ReentrantLock());
+    Path lockPath = base.resolve(CacheJanitor.LOCK_FILE);
+    ReentrantLock local = localLock(lockPath);
 
     local.lock();
     try (FileChannel channel =
             FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
         FileLock ignored = channel.lock()) {
-      // OS-level lock for cross-process safety.
+      // OS-level lock for cross-process safety. The janitor may have evicted the entry while we
+      // waited for the lock.
+      Files.createDirectories(base);
+      if (Files.exists(out) && !isIntact(base, manifestPath, out)) {
+        String digest = resourceDigest(resourcePath);
+        if (!digest.equals(ExtractionManifest.digestOrNull(out))) {
+          LOG.warn("Cached resource {} is corrupt, extracting it again", out);
+          Files.delete(out);
+          // A linked copy shares the damage, so the stored content must not be reused.
+          objects.remove(digest);
+        } else {
+          ExtractionManifest.of(base, Map.of(fileName.toString(), digest)).write(manifestPath);
+          verified.add(out);
+        }
+      }
       if (!Files.exists(out)) {
-        LOG.info("Extracting resource {} to {}", resourcePath, out);
-        Path tmp = Files.createTempFile(base, ".res", ".tmp");
-        Files.write(tmp, bytes, StandardOpenOption.TRUNCATE_EXISTING);
-        Files.move(tmp, out, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        String digest = resourceDigest(resourcePath);
+        if (objects.linkTo(digest, out)) {
+          LOG.info("Linked resource {} to its stored copy at {}", resourcePath, out);
+        } else {
+          LOG.info("Extracting resource {} to {}", resourcePath, out);
+          Path tmp = Files.createTempFile(base, ".res", ".tmp");
+          try (InputStream in = openResource(resourcePath)) {
+            Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+          }
+          Files.move(
+              tmp, out, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+          objects.dedupe(out, digest);
+        }
+        ExtractionManifest.of(base, Map.of(fileName.toString(), digest)).write(manifestPath);
+        verified.add(out);
       }
     } finally {
       local.unlock();
     }
-    return out;
+    return markAccess(base, out);
   }
 
   /**
@@ -114,75 +311,428 @@ public class GlobalExtractor {
    */
   public Path ensureArchiveExtracted(String archiveResourcePath, String folderName)
       throws IOException {
-    byte[] bytes = readResource(archiveResourcePath);
+    return ensureArchiveExtracted(archiveResourcePath, folderName, null);
+  }
+
+  /**
+   * Ensures the essential files of the given classpath archive are extracted into the cache.
+   *
+   * @param archiveResourcePath the classpath resource representing the archive
+   * @param folderName the target directory name within the cache
+   * @param profile files to extract first, or {@code null} to extract the whole archive now
+   * @return the extracted archive root
+   */
+  public Path ensureArchiveExtracted(
+      String archiveResourcePath, String folderName, ToolchainProfile profile)
+      throws IOException {
+    String key = "archive:" + archiveResourcePath + "/" + folderName + profileKey(profile);
+    Path known = resolved.get(key);
+    if (known != null) {
+      return markAccess(known.getParent(), known);
+    }
     ArchiveType type = ArchiveType.fromName(archiveResourcePath);
-    String identifier = archiveResourcePath + ":" + sha256(bytes);
-    return ensureArchiveExtracted(
-        identifier, type, () -> new ByteArrayInputStream(bytes), folderName);
+    String identifier = archiveResourcePath + ":" + archiveStamp(archiveResourcePath);
+    return publish(
+        key,
+        ensureArchiveExtracted(
+            identifier,
+            type,
+            target -> copyArchive(openResource(archiveResourcePath), target, identifier),
+            folderName,
+            profile));
   }
 
+  /**
+   * Extracts an archive into {@code jdks/}. With a profile only the essential files are extracted
+   * before returning and a {@code <folder>.partial} marker records that the rest is missing. The
+   * rest is then extracted in the background, or, for a skipping profile, as soon as a caller
+   * asks for the whole tree.
+   */
   private Path ensureArchiveExtracted(
-      String identifier, ArchiveType type, IoSupplier<InputStream> supplier, String folderName)
+      String identifier,
+      ArchiveType type,
+      ArchiveFetch fetch,
+      String folderName,
+      ToolchainProfile profile)
       throws IOException {
-    String hash = sha256(identifier).substring(0, 12);
+    String hash = Digests.sha256Hex(identifier).substring(0, 12);
 
     Path parent = cacheDir.resolve("jdks").resolve(versionTag + "-" + hash);
     Path destRoot = parent.resolve(folderName);
-    if (Files.exists(destRoot)) {
+    Path manifestPath = parent.resolve(folderName + MANIFEST_SUFFIX);
+    Path partialMarker = parent.resolve(folderName + PARTIAL_SUFFIX);
+    Path archivePath = parent.resolve("archive" + type.extension);
+    if (Files.exists(destRoot)
+        && isIntact(destRoot, manifestPath)
+        && (profile != null || !Files.exists(partialMarker))) {
       LOG.debug("Archive {} already extracted at {}", identifier, destRoot);
-      return destRoot;
+      completeInBackground(profile, type, parent, folderName);
+      return markAccess(parent, destRoot);
     }
 
-    Path lockPath = parent.resolve(".extract.lock");
-    ReentrantLock local =
-        LOCAL_LOCKS.computeIfAbsent(lockPath.toString(), key -> new ReentrantLock());
+    withEntryLock(
+        parent,
+        () -> {
+          if (Files.exists(destRoot)) {
+            if (isIntact(destRoot, manifestPath)
+                || (Files.exists(archivePath)
+                    && repair(archivePath, type, destRoot, manifestPath))) {
+              if (profile == null && Files.exists(partialMarker)) {
+                if (Files.exists(archivePath)) {
+                  completeExtraction(archivePath, type, destRoot, manifestPath, partialMarker);
+                  return null;
+                }
+              } else {
+                return null;
+              }
+            }
+            LOG.warn("Cannot repair {} in place, extracting it again", destRoot);
+            cleanupDirectory(destRoot);
+          }
+
+          if (!Files.exists(archivePath)) {
+            fetch.to(archivePath);
+            LOG.info("Fetched archive {} into {}", identifier, archivePath);
+          }
 
+          Path tmpRoot = Files.createTempDirectory(parent, "tmp-extract-");
+          boolean success = false;
+          try {
+            Map<String, String> digests = new ConcurrentHashMap<>();
+            Predicate<String> include = profile == null ? name -> true : profile::isEssential;
+            extractArchive(archivePath, type, tmpRoot, include, digests);
+            // The marker goes first: a tree without it is taken to be complete.
+            if (profile == null) {
+              Files.deleteIfExists(partialMarker);
+            } else {
+              Files.writeString(partialMarker, identifier, StandardCharsets.UTF_8);
+            }
+            Files.move(tmpRoot, destRoot, StandardCopyOption.ATOMIC_MOVE);
+            ExtractionManifest.of(destRoot, digests).write(manifestPath);
+            verified.add(destRoot);
+            LOG.info(
+                "Extracted {} files of archive {} to {}", digests.size(), identifier, destRoot);
+            success = true;
+          } finally {
+            if (!success) {
+              cleanupDirectory(tmpRoot);
+            }
+          }
+          return null;
+        });
+    completeInBackground(profile, type, parent, folderName);
+    return markAccess(parent, destRoot);
+  }
+
+  /**
+   * Extracts the files a profile deferred, that is every file of the archive missing from the
+   * manifest, and records the completed tree. Must be called while holding the entry lock.
+   */
+  private void completeExtraction(
+      Path archivePath, ArchiveType type, Path destRoot, Path manifestPath, Path partialMarker)
+      throws IOException {
+    ExtractionManifest manifest = ExtractionManifest.read(manifestPath);
+    Map<String, String> digests = new ConcurrentHashMap<>();
+    if (manifest != null) {
+      digests.putAll(manifest.digests());
+    }
+    Set<String> present = Set.copyOf(digests.keySet());
+    extractArchive(archivePath, type, destRoot, name -> !present.contains(name), digests);
+    ExtractionManifest.of(destRoot, digests).write(manifestPath);
+    Files.deleteIfExists(partialMarker);
+    LOG.info(
+        "Completed extraction of {} with {} deferred files",
+        destRoot,
+        digests.size() - present.size());
+  }
+
+  /** Schedules the deferred files of a partially extracted tree, once per tree and process. */
+  private void completeInBackground(
+      ToolchainProfile profile, ArchiveType type, Path parent, String folderName) {
+    if (profile == null || profile.rest() != ToolchainProfile.Rest.BACKGROUND) {
+      return;
+    }
+    Path destRoot = parent.resolve(folderName);
+    Path partialMarker = parent.resolve(folderName + PARTIAL_SUFFIX);
+    if (!Files.exists(partialMarker) || !backgroundCompletions.add(destRoot)) {
+      return;
+    }
+    backgroundExtractor()
+        .execute(
+            () -> {
+              try {
+                withEntryLock(
+                    parent,
+                    () -> {
+                      Path archivePath = parent.resolve("archive" + type.extension);
+                      if (Files.exists(partialMarker)
+                          && Files.exists(destRoot)
+                          && Files.exists(archivePath)) {
+                        completeExtraction(
+                            archivePath,
+                            type,
+                            destRoot,
+                            parent.resolve(folderName + MANIFEST_SUFFIX),
+                            partialMarker);
+                      }
+                      return null;
+                    });
+              } catch (IOException | RuntimeException e) {
+                LOG.warn("Background extraction into {} failed", destRoot, e);
+              } finally {
+                backgroundCompletions.remove(destRoot);
+              }
+            });
+  }
+
+  private synchronized ExecutorService backgroundExtractor() {
+    if (background == null) {
+      background =
+          Executors.newSingleThreadExecutor(
+              r -> {
+                Thread t = new Thread(r, "cn1-extract-background");
+                t.setDaemon(true);
+                return t;
+              });
+    }
+    return background;
+  }
+
+  /**
+   * Runs an action holding both the in-process and the cross-process lock of a cache entry.
+   * {@link CacheJanitor} takes the same locks before evicting the entry.
+   */
+  private <T> T withEntryLock(Path entry, IoSupplier<T> action) throws IOException {
+    Path lockPath = entry.resolve(CacheJanitor.LOCK_FILE);
+    ReentrantLock local = localLock(lockPath);
     local.lock();
     try {
-      Files.createDirectories(parent);
+      Files.createDirectories(entry);
       try (FileChannel channel =
               FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
           FileLock ignored = channel.lock()) {
-        if (Files.exists(destRoot)) {
-          return destRoot;
+        // The janitor may have evicted the entry while we waited for the lock.
+        Files.createDirectories(entry);
+        return action.get();
+      }
+    } finally {
+      local.unlock();
+    }
+  }
+
+  /**
+   * Records another use of a path handed out earlier, for callers that remember resolved paths
+   * instead of asking again. Paths outside the cache are ignored. Throttled like every access.
+   *
+   * @param path a file or directory inside a cache entry
+   */
+  public void markUsed(Path path) {
+    Path entry = entryOf(path);
+    if (entry != null) {
+      markAccess(entry, path);
+    }
+  }
+
+  /**
+   * Keeps {@link CacheJanitor} from evicting the cache entries holding the paths until the
+   * returned handle is closed. Meant for processes that run from cached files, such as compilers
+   * and CSS workers, which the extraction lock does not cover. Paths outside the cache are
+   * ignored.
+   *
+   * @param paths files or directories the process runs from
+   * @return the handle to close once the process has exited
+   */
+  public InUse use(Path... paths) {
+    List<Path> entries = new ArrayList<>();
+    for (Path path : paths) {
+      Path entry = entryOf(path);
+      if (entry == null) {
+        continue;
+      }
+      // Taken under the entry's local lock, so a sweep either sees the use or has moved the
+      // entry out of the cache already.
+      ReentrantLock local = localLock(entry.resolve(CacheJanitor.LOCK_FILE));
+      local.lock();
+      try {
+        IN_USE.merge(entry.toAbsolutePath().normalize(), 1, Integer::sum);
+      } finally {
+        local.unlock();
+      }
+      entries.add(entry);
+      markAccess(entry, path);
+    }
+    return new InUse(entries);
+  }
+
+  /** Returns {@code true} if a process of this JVM runs from the cache entry. */
+  static boolean inUse(Path entry) {
+    return IN_USE.containsKey(entry.toAbsolutePath().normalize());
+  }
+
+  /** Marks cache entries as used by a running process until closed. */
+  public static final class InUse implements AutoCloseable {
+    private final List<Path> entries;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private InUse(List<Path> entries) {
+      this.entries = entries;
+    }
+
+    /** Releases the entries; closing again has no effect. */
+    @Override
+    public void close() {
+      if (closed.compareAndSet(false, true)) {
+        for (Path entry : entries) {
+          IN_USE.computeIfPresent(
+              entry.toAbsolutePath().normalize(), (key, count) -> count > 1 ? count - 1 : null);
         }
+      }
+    }
+  }
 
-        Path archivePath = parent.resolve("archive" + type.extension);
-        if (!Files.exists(archivePath)) {
-          Path tmpArchive = Files.createTempFile(parent, "download-", type.extension);
-          try (InputStream in = supplier.get();
-              OutputStream out =
-                  Files.newOutputStream(tmpArchive, StandardOpenOption.TRUNCATE_EXISTING)) {
-            if (in == null) {
-              throw new IOException("Archive supplier returned null stream for " + identifier);
-            }
-            in.transferTo(out);
-          }
-          Files.move(
-              tmpArchive,
-              archivePath,
-              StandardCopyOption.ATOMIC_MOVE,
-              StandardCopyOption.REPLACE_EXISTING);
-          LOG.info("Fetched archive {} into {}", identifier, archivePath);
+  /** Returns the cache entry holding the path, or {@code null} if it is not in the cache. */
+  private Path entryOf(Path path) {
+    Path root = cacheDir.toAbsolutePath().normalize();
+    Path absolute = path.toAbsolutePath().normalize();
+    if (!absolute.startsWith(root)) {
+      return null;
+    }
+    Path relative = root.relativize(absolute);
+    return relative.getNameCount() < 2
+        ? null
+        : cacheDir.resolve(relative.getName(0)).resolve(relative.getName(1));
+  }
+
+  /**
+   * Records that a cache entry was used so that {@link CacheJanitor} evicts the least recently
+   * used entries first. Touching the marker is throttled to once a minute per entry.
+   */
+  private Path markAccess(Path entry, Path result) {
+    long now = System.currentTimeMillis();
+    Long last = accessMarks.get(entry);
+    if (last != null && now - last < ACCESS_MARK_INTERVAL_MILLIS) {
+      return result;
+    }
+    accessMarks.put(entry, now);
+    Path marker = entry.resolve(CacheJanitor.ACCESS_MARKER);
+    try {
+      if (Files.exists(marker)) {
+        Files.setLastModifiedTime(marker, FileTime.fromMillis(now));
+      } else {
+        Files.createFile(marker);
+      }
+    } catch (IOException e) {
+      // The marker only orders eviction; a missing one falls back to the directory time.
+      LOG.debug("Failed to mark access to {}", entry, e);
+    }
+    return result;
+  }
+
+  /** Returns the in-process lock guarding the cache entry that owns the given lock file. */
+  static ReentrantLock localLock(Path lockPath) {
+    return LOCAL_LOCKS.computeIfAbsent(lockPath.toString(), key -> new ReentrantLock());
+  }
+
+  /**
+   * Cheap check run once per process for each cached tree: every file in the manifest must still
+   * have its recorded size and modification time.
+   */
+  private boolean isIntact(Path destRoot, Path manifestPath) {
+    return isIntact(destRoot, manifestPath, destRoot);
+  }
+
+  private boolean isIntact(Path manifestRoot, Path manifestPath, Path target) {
+    if (verified.contains(target)) {
+      return true;
+    }
+    ExtractionManifest manifest = ExtractionManifest.read(manifestPath);
+    if (manifest != null && manifest.matchesAttributes(manifestRoot)) {
+      verified.add(target);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Verifies an extracted tree by digest and re-extracts only the files that are missing or
+   * corrupt. Trees extracted before manifests existed are checked against the kept archive.
+   *
+   * @return {@code true} if the tree was verified and repaired in place
+   */
+  private boolean repair(Path archivePath, ArchiveType type, Path destRoot, Path manifestPath)
+      throws IOException {
+    ExtractionManifest manifest = ExtractionManifest.read(manifestPath);
+    Map<String, String> expected;
+    if (manifest == null) {
+      LOG.info("No manifest for {}, verifying it against {}", destRoot, archivePath);
+      expected = archiveDigests(archivePath, type, destRoot);
+    } else {
+      expected = manifest.digests();
+    }
+    Set<String> corrupt = ExtractionManifest.corruptPaths(destRoot, expected);
+    if (!corrupt.isEmpty()) {
+      LOG.warn("Repairing {} missing or corrupt files in {}", corrupt.size(), destRoot);
+      for (String name : corrupt) {
+        // A linked copy shares the damage, so the stored content must not be reused.
+        objects.remove(expected.get(name));
+        executableObjects.remove(expected.get(name));
+      }
+      Map<String, String> repaired = new ConcurrentHashMap<>();
+      extractArchive(archivePath, type, destRoot, corrupt::contains, repaired);
+      for (String name : corrupt) {
+        if (!expected.get(name).equals(repaired.get(name))) {
+          LOG.warn("Archive {} no longer matches the manifest for {}", archivePath, name);
+          return false;
         }
+      }
+    }
+    ExtractionManifest.of(destRoot, expected).write(manifestPath);
+    verified.add(destRoot);
+    return true;
+  }
 
-        Path tmpRoot = Files.createTempDirectory(parent, "tmp-extract-");
-        boolean success = false;
-        try {
-          extractArchive(archivePath, type, tmpRoot);
-          Files.move(tmpRoot, destRoot, StandardCopyOption.ATOMIC_MOVE);
-          LOG.info("Extracted archive {} to {}", identifier, destRoot);
-          success = true;
-        } finally {
-          if (!success) {
-            cleanupDirectory(tmpRoot);
-          }
+  /** Streams an archive and returns the digest of every file it contains. */
+  private static Map<String, String> archiveDigests(
+      Path archivePath, ArchiveType type, Path destRoot) throws IOException {
+    Map<String, String> digests = new HashMap<>();
+    try (InputStream in = Files.newInputStream(archivePath);
+        InputStream entries =
+            type == ArchiveType.ZIP
+                ? new ZipInputStream(in)
+                : new TarArchiveInputStream(decompress(in, type))) {
+      String entryName;
+      while ((entryName = nextFile(entries)) != null) {
+        Path out = destRoot.resolve(entryName).normalize();
+        if (!out.startsWith(destRoot)) {
+          throw new IOException("Zip Slip detected: " + out);
         }
+        MessageDigest md = Digests.sha256();
+        entries.transferTo(new DigestOutputStream(OutputStream.nullOutputStream(), md));
+        digests.put(relativeName(destRoot, out), HexFormat.of().formatHex(md.digest()));
       }
-    } finally {
-      local.unlock();
     }
-    return destRoot;
+    return digests;
+  }
+
+  /** Advances to the next file entry of a tar or zip stream and returns its name. */
+  private static String nextFile(InputStream entries) throws IOException {
+    if (entries instanceof TarArchiveInputStream tar) {
+      TarArchiveEntry entry;
+      while ((entry = tar.getNextTarEntry()) != null) {
+        if (!entry.isDirectory()) {
+          return entry.getName();
+        }
+      }
+      return null;
+    }
+    ZipInputStream zip = (ZipInputStream) entries;
+    ZipEntry entry;
+    while ((entry = zip.getNextEntry()) != null) {
+      if (!entry.isDirectory()) {
+        return entry.getName();
+      }
+    }
+    return null;
   }
 
   /**
@@ -193,23 +743,99 @@ public class GlobalExtractor {
    * @return the extracted archive root
    */
   public Path ensureArchiveExtractedFromUrl(String url, String folderName) throws IOException {
+    return ensureArchiveExtractedFromUrl(url, folderName, null);
+  }
+
+  /**
+   * Ensures the essential files of the given remote archive are downloaded and extracted.
+   *
+   * @param url the URL pointing to the archive to download
+   * @param folderName the target directory name within the cache
+   * @param profile files to extract first, or {@code null} to extract the whole archive now
+   * @return the extracted archive root
+   */
+  public Path ensureArchiveExtractedFromUrl(
+      String url, String folderName, ToolchainProfile profile) throws IOException {
+    return ensureArchiveExtractedFromUrl(url, folderName, profile, null);
+  }
+
+  /**
+   * Ensures the given remote archive is downloaded, checked and extracted. The download runs in
+   * parallel ranges where the server supports them and resumes after an interruption.
+   *
+   * @param url the URL pointing to the archive to download
+   * @param folderName the target directory name within the cache
+   * @param profile files to extract first, or {@code null} to extract the whole archive now
+   * @param sha256 expected hex encoded SHA-256 of the archive, or {@code null} to skip the check
+   * @return the extracted archive root
+   */
+  public Path ensureArchiveExtractedFromUrl(
+      String url, String folderName, ToolchainProfile profile, String sha256)
+      throws IOException {
+    String key = "url:" + url + "/" + folderName + profileKey(profile);
+    Path known = resolved.get(key);
+    if (known != null) {
+      return markAccess(known.getParent(), known);
+    }
     ArchiveType type = ArchiveType.fromName(url);
-    return ensureArchiveExtracted("url:" + url, type, () -> openUrl(url), folderName);
+    return publish(
+        key,
+        ensureArchiveExtracted(
+            "url:" + url, type, target -> download(url, target, sha256), folderName, profile));
   }
 
-  private void extractArchive(Path archivePath, ArchiveType type, Path destRoot)
+  private static String profileKey(ToolchainProfile profile) {
+    return profile == null ? "" : "#essential";
+  }
+
+  /**
+   * Publishes a resolved path. Writers copy the map, so readers need nothing but the volatile
+   * read of {@link #resolved}.
+   */
+  private synchronized Path publish(String key, Path path) {
+    Map<String, Path> next = new HashMap<>(resolved);
+    next.put(key, path);
+    resolved = Map.copyOf(next);
+    return path;
+  }
+
+  /**
+   * Extracts the archive entries accepted by {@code include} into {@code destRoot}.
+   *
+   * @param include filter on the {@code /} separated path of each file below the root
+   * @param digests receives the SHA-256 of every file written, keyed by the same path
+   */
+  private void extractArchive(
+      Path archivePath,
+      ArchiveType type,
+      Path destRoot,
+      Predicate<String> include,
+      Map<String, String> digests)
       throws IOException {
     switch (type) {
-      case TAR_GZ -> extractTarGz(archivePath, destRoot);
-      case ZIP -> extractZip(archivePath, destRoot);
+      case TAR_GZ, TAR_ZST, TAR_XZ ->
+          extractTar(archivePath, type, destRoot, include, digests);
+      case ZIP -> extractZip(archivePath, destRoot, include, digests);
       default -> throw new IllegalArgumentException("Unsupported archive type: " + type);
     }
   }
 
-  private void extractTarGz(Path archivePath, Path destRoot) throws IOException {
+  /**
+   * Streams a compressed tar archive on the calling thread and hands the decompressed files to a
+   * pool of writers through a bounded queue. Large entries are written by the reader itself so
+   * that the amount of buffered data stays small.
+   */
+  private void extractTar(
+      Path archivePath,
+      ArchiveType type,
+      Path destRoot,
+      Predicate<String> include,
+      Map<String, String> digests)
+      throws IOException {
     try (InputStream in = Files.newInputStream(archivePath);
-        GzipCompressorInputStream gzi = new GzipCompressorInputStream(in);
-        TarArchiveInputStream tar = new TarArchiveInputStream(gzi)) {
+        InputStream decompressed = decompress(in, type);
+        TarArchiveInputStream tar = new TarArchiveInputStream(decompressed);
+        ParallelWriter writer = new ParallelWriter(extractionThreads())) {
 
       TarArchiveEntry e;
       while ((e = tar.getNextTarEntry()) != null) {
@@ -219,49 +845,211 @@ public class GlobalExtractor {
         }
         if (e.isDirectory()) {
           Files.createDirectories(out);
+          continue;
+        }
+        String name = relativeName(destRoot, out);
+        if (!include.test(name)) {
+          continue;
+        }
+        boolean executable = (e.getMode() & 0x40) != 0;
+        if (e.getSize() > INLINE_WRITE_LIMIT) {
+          digests.put(name, writeFile(out, tar, executable));
         } else {
-          Path parent = out.getParent();
-          if (parent != null) {
-            Files.createDirectories(parent);
-          }
-          try (OutputStream os = Files.newOutputStream(out)) {
-            tar.transferTo(os);
-          }
-          if ((e.getMode() & 0x40) != 0) {
-            out.toFile().setExecutable(true);
-          }
+          byte[] data = tar.readNBytes((int) e.getSize());
+          writer.submit(() -> digests.put(name, writeFile(out, data, executable)));
         }
       }
+      writer.await();
     }
   }
 
-  private void extractZip(Path archivePath, Path destRoot) throws IOException {
-    try (InputStream in = Files.newInputStream(archivePath);
-        ZipInputStream zip = new ZipInputStream(in)) {
-      ZipEntry entry;
-      while ((entry = zip.getNextEntry()) != null) {
+  /**
+   * Wraps the compressed stream of a tar archive in its decoder. zstd is the fastest of the three
+   * to decode, xz the most compact; gzip remains for archives published that way.
+   */
+  private static InputStream decompress(InputStream in, ArchiveType type) throws IOException {
+    InputStream buffered = new BufferedInputStream(in, DECODER_BUFFER_SIZE);
+    return switch (type) {
+      case TAR_GZ -> new GzipCompressorInputStream(buffered);
+      case TAR_ZST -> new ZstdCompressorInputStream(buffered);
+      case TAR_XZ -> new XZCompressorInputStream(buffered);
+      case ZIP -> throw new IllegalArgumentException("Not a tar archive: " + type);
+    };
+  }
+
+  /** Extracts zip entries fully in parallel through the random access of {@link ZipFile}. */
+  private void extractZip(
+      Path archivePath, Path destRoot, Predicate<String> include, Map<String, String> digests)
+      throws IOException {
+    try (ZipFile zip = new ZipFile(archivePath.toFile());
+        ParallelWriter writer = new ParallelWriter(extractionThreads())) {
+      Enumeration<? extends ZipEntry> entries = zip.entries();
+      while (entries.hasMoreElements()) {
+        ZipEntry entry = entries.nextElement();
         Path out = destRoot.resolve(entry.getName()).normalize();
         if (!out.startsWith(destRoot)) {
           throw new IOException("Zip Slip detected: " + out);
         }
         if (entry.isDirectory()) {
           Files.createDirectories(out);
-        } else {
-          Path parent = out.getParent();
-          if (parent != null) {
-            Files.createDirectories(parent);
-          }
-          try (OutputStream os = Files.newOutputStream(out)) {
-            zip.transferTo(os);
-          }
-          if (isExecutable(entry)) {
-            out.toFile().setExecutable(true);
-          }
+          continue;
+        }
+        String name = relativeName(destRoot, out);
+        if (!include.test(name)) {
+          continue;
+        }
+        writer.submit(
+            () -> {
+              try (InputStream in = zip.getInputStream(entry)) {
+                digests.put(name, writeFile(out, in, isExecutable(entry)));
+              }
+            });
+      }
+      writer.await();
+    }
+  }
+
+  /**
+   * Writes a file, shares it with identical files through the object store and returns the
+   * SHA-256 of what was written.
+   */
+  private String writeFile(Path out, InputStream in, boolean executable) throws IOException {
+    createParent(out);
+    MessageDigest md = Digests.sha256();
+    try (OutputStream os = new DigestOutputStream(Files.newOutputStream(out), md)) {
+      in.transferTo(os);
+    }
+    if (executable) {
+      out.toFile().setExecutable(true);
+    }
+    String digest = HexFormat.of().formatHex(md.digest());
+    objects(executable).dedupe(out, digest);
+    return digest;
+  }
+
+  /** Buffered entries are hashed first, so content already stored is linked without writing. */
+  private String writeFile(Path out, byte[] data, boolean executable) throws IOException {
+    String digest = Digests.sha256Hex(data);
+    BlobStore store = objects(executable);
+    if (store.linkTo(digest, out)) {
+      return digest;
+    }
+    createParent(out);
+    Files.write(out, data);
+    if (executable) {
+      out.toFile().setExecutable(true);
+    }
+    store.dedupe(out, digest);
+    return digest;
+  }
+
+  private BlobStore objects(boolean executable) {
+    return executable ? executableObjects : objects;
+  }
+
+  private static String relativeName(Path root, Path file) {
+    return root.relativize(file).toString().replace(File.separatorChar, '/');
+  }
+
+  private static void createParent(Path out) throws IOException {
+    Path parent = out.getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+  }
+
+  private static int extractionThreads() {
+    int cpus = Runtime.getRuntime().availableProcessors();
+    return Math.max(1, Math.min(MAX_EXTRACTION_THREADS, cpus));
+  }
+
+  /**
+   * Runs file writes on a fixed pool fed through a bounded queue. When the queue is full the
+   * submitting thread waits, which keeps the reader from running far ahead of the writers.
+   */
+  private static final class ParallelWriter implements AutoCloseable {
+    private final ExecutorService pool;
+    private final Semaphore slots;
+    private final AtomicReference<IOException> failure = new AtomicReference<>();
+    private final Phaser pending = new Phaser(1);
+
+    ParallelWriter(int threads) {
+      AtomicInteger counter = new AtomicInteger();
+      this.pool =
+          Executors.newFixedThreadPool(
+              threads,
+              r -> {
+                Thread t = new Thread(r, "cn1-extract-" + counter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+              });
+      this.slots = new Semaphore(threads * QUEUED_WRITES_PER_THREAD);
+    }
+
+    void submit(IoRunnable task) throws IOException {
+      rethrow();
+      try {
+        slots.acquire();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while extracting");
+      }
+      pending.register();
+      pool.execute(
+          () -> {
+            try {
+              if (failure.get() == null) {
+                task.run();
+              }
+            } catch (IOException | RuntimeException e) {
+              failure.compareAndSet(
+                  null, e instanceof IOException io ? io : new IOException(e));
+            } finally {
+              slots.release();
+              pending.arriveAndDeregister();
+            }
+          });
+    }
+
+    /** Waits for all submitted writes and reports the first failure. */
+    void await() throws IOException {
+      pending.arriveAndAwaitAdvance();
+      rethrow();
+    }
+
+    private void rethrow() throws IOException {
+      IOException e = failure.get();
+      if (e != null) {
+        throw e;
+      }
+    }
+
+    /**
+     * Stops the writers and waits for those already running, so nothing is written once the
+     * caller cleans up or releases the entry lock.
+     */
+    @Override
+    public void close() {
+      pool.shutdownNow();
+      boolean interrupted = false;
+      while (!pool.isTerminated()) {
+        try {
+          pool.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+          interrupted = true;
         }
       }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
     }
   }
 
+  @FunctionalInterface
+  private interface IoRunnable {
+    void run() throws IOException;
+  }
+
   private static Method resolveMethod(String name) {
     try {
       return ZipEntry.class.getMethod(name);
@@ -310,13 +1098,44 @@ public class GlobalExtractor {
     }
   }
 
-  protected InputStream openUrl(String url) throws IOException {
-    return new URL(url).openStream();
+  /**
+   * Downloads a remote archive to {@code target}, which only appears once it is complete and
+   * checked. Overridable for tests.
+   */
+  protected void download(String url, Path target, String sha256) throws IOException {
+    try {
+      downloader.download(new URI(url), target, sha256);
+    } catch (URISyntaxException e) {
+      throw new IOException("Invalid archive URL " + url, e);
+    }
+  }
+
+  /** Copies a bundled archive to {@code target} through a temporary file. */
+  private static void copyArchive(InputStream source, Path target, String identifier)
+      throws IOException {
+    Path parent = Objects.requireNonNull(target.getParent());
+    Path tmpArchive = Files.createTempFile(parent, "download-", ".tmp");
+    try {
+      try (InputStream in = source;
+          OutputStream out =
+              Files.newOutputStream(tmpArchive, StandardOpenOption.TRUNCATE_EXISTING)) {
+        if (in == null) {
+          throw new IOException("Archive supplier returned null stream for " + identifier);
+        }
+        in.transferTo(out);
+      }
+      Files.move(
+          tmpArchive, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(tmpArchive);
+    }
   }
 
   /** Supported archive formats that can be extracted into the local cache. */
   public enum ArchiveType {
     TAR_GZ(".tar.gz"),
+    TAR_ZST(".tar.zst"),
+    TAR_XZ(".tar.xz"),
     ZIP(".zip");
 
     private final String extension;
@@ -330,6 +1149,12 @@ public class GlobalExtractor {
       if (lower.endsWith(".tar.gz") || lower.endsWith(".tgz")) {
         return TAR_GZ;
       }
+      if (lower.endsWith(".tar.zst") || lower.endsWith(".tzst")) {
+        return TAR_ZST;
+      }
+      if (lower.endsWith(".tar.xz") || lower.endsWith(".txz")) {
+        return TAR_XZ;
+      }
       if (lower.endsWith(".zip")) {
         return ZIP;
       }
@@ -342,16 +1167,9 @@ public class GlobalExtractor {
     T get() throws IOException;
   }
 
-  private static String sha256(String s) {
-    return sha256(s.getBytes(java.nio.charset.StandardCharsets.UTF_8));
-  }
-
-  private static String sha256(byte[] data) {
-    try {
-      MessageDigest md = MessageDigest.getInstance("SHA-256");
-      return HexFormat.of().formatHex(md.digest(data));
-    } catch (Exception e) {
-      throw new RuntimeException(e);
-    }
+  /** Places an archive at the given path. */
+  @FunctionalInterface
+  private interface ArchiveFetch {
+    void to(Path archivePath) throws IOException;
   }
 }
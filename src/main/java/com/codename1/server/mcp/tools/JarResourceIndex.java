@@ -0,0 +1,109 @@
+package com.codename1.server.mcp.tools;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+/**
+ * Random-access view of a cached jar. The jar's central directory is read once by {@link ZipFile}
+ * and individual entries are inflated on demand, so looking up a resource never touches unrelated
+ * entries.
+ */
+public final class JarResourceIndex {
+  private static final ConcurrentHashMap<Path, JarResourceIndex> INDEXES =
+      new ConcurrentHashMap<>();
+
+  private final long size;
+  private final long lastModified;
+  private final ZipFile zip;
+
+  private JarResourceIndex(long size, long lastModified, ZipFile zip) {
+    this.size = size;
+    this.lastModified = lastModified;
+    this.zip = zip;
+  }
+
+  /**
+   * Returns the shared index for the given jar, opening it on first use. The index is reopened,
+   * and the stale one closed, if the file's size or modification time has changed since it was
+   * opened.
+   *
+   * @param jar the jar file to index
+   * @return the index
+   */
+  public static JarResourceIndex of(Path jar) throws IOException {
+    Path key = jar.toAbsolutePath().normalize();
+    BasicFileAttributes attrs = Files.readAttributes(key, BasicFileAttributes.class);
+    long size = attrs.size();
+    long modified = attrs.lastModifiedTime().toMillis();
+    JarResourceIndex existing = INDEXES.get(key);
+    if (existing != null && existing.matches(size, modified)) {
+      return existing;
+    }
+    synchronized (INDEXES) {
+      existing = INDEXES.get(key);
+      if (existing != null && existing.matches(size, modified)) {
+        return existing;
+      }
+      if (existing != null) {
+        // Close first: ZipFile shares one central directory per path and mtime, so a jar
+        // rewritten within the same timestamp would otherwise be read through the stale one.
+        INDEXES.remove(key);
+        existing.zip.close();
+      }
+      JarResourceIndex opened = open(key, size, modified);
+      INDEXES.put(key, opened);
+      return opened;
+    }
+  }
+
+  private boolean matches(long size, long modified) {
+    return this.size == size && lastModified == modified;
+  }
+
+  /** Returns {@code true} if the jar contains a file entry with the given name. */
+  public boolean contains(String name) {
+    ZipEntry entry = zip.getEntry(name);
+    return entry != null && !entry.isDirectory();
+  }
+
+  /** Returns the names of all file entries in the jar. */
+  public Set<String> names() {
+    return zip.stream()
+        .filter(entry -> !entry.isDirectory())
+        .map(ZipEntry::getName)
+        .collect(Collectors.toUnmodifiableSet());
+  }
+
+  /**
+   * Reads a single entry.
+   *
+   * @param name the entry name, for example {@code com/codename1/impl/javase/Roboto-Regular.ttf}
+   * @return the uncompressed entry contents, or {@code null} if the jar has no such entry
+   */
+  public byte[] read(String name) throws IOException {
+    ZipEntry entry = zip.getEntry(name);
+    if (entry == null || entry.isDirectory()) {
+      return null;
+    }
+    try (InputStream in = zip.getInputStream(entry)) {
+      return in.readAllBytes();
+    }
+  }
+
+  private static JarResourceIndex open(Path jar, long size, long modified) throws IOException {
+    try {
+      return new JarResourceIndex(size, modified, new ZipFile(jar.toFile()));
+    } catch (ZipException e) {
+      throw new IOException("Not a zip file: " + jar, e);
+    }
+  }
+}
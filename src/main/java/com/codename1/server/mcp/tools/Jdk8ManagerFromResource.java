@@ -5,7 +5,10 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,30 +17,116 @@ import org.springframework.stereotype.Component;
 
 /**
  * Extracts bundled or remote JDK 8 archives and exposes convenience helpers for locating binaries.
+ * A JDK 8 already installed on the host is preferred when a {@link ToolchainRegistry} finds one.
  */
 @Component
 public class Jdk8ManagerFromResource {
   private static final Logger LOG = LoggerFactory.getLogger(Jdk8ManagerFromResource.class);
+  private static final List<String> ARCHIVE_EXTENSIONS =
+      List.of(".tar.gz", ".tgz", ".tar.zst", ".tzst", ".tar.xz", ".txz", ".zip");
 
   private final GlobalExtractor extractor;
   private final String linuxArchiveResource;
   private final String macArchiveUrl;
   private final String windowsArchiveUrl;
+  private final String macArchiveSha256;
+  private final String windowsArchiveSha256;
   private final String rootMarker; // e.g. "release"
+  private final ToolchainProfile profile;
+  private final boolean classDataSharing;
+  private final ToolchainRegistry toolchains;
+  private volatile ClassDataSharing sharing;
+  private volatile Map<String, Path> binaries = Map.of();
+  // The extractor generation the binaries were resolved under.
+  private volatile long generation;
 
-  /** Creates a manager that resolves the bundled JDK archives using Spring configuration. */
+  /**
+   * Creates a manager that resolves the bundled JDK archives using Spring configuration.
+   *
+   * @param macArchiveSha256 expected SHA-256 of the macOS download, or blank to skip the check
+   * @param windowsArchiveSha256 expected SHA-256 of the Windows download, or blank to skip it
+   * @param extraction {@code full} extracts whole archives; {@code background} and {@code skip}
+   *     extract what {@code javac} and {@code java} need first and the rest later or on demand
+   * @param classDataSharing whether launches use class data sharing archives built on first use
+   * @param locations comma separated JDK 8 homes to prefer over the bundled archive
+   * @param detectInstalled whether installed JDK 8 homes are used at all; besides the configured
+   *     locations, the JDK providing {@code javac} on the {@code PATH} is considered
+   */
   @Autowired
   public Jdk8ManagerFromResource(
       GlobalExtractor extractor,
       @Value("${cn1.jdk8.linuxResourcePath:${cn1.jdk8.resourcePath}}") String linuxArchiveResource,
       @Value("${cn1.jdk8.macUrl:}") String macArchiveUrl,
       @Value("${cn1.jdk8.windowsUrl:}") String windowsArchiveUrl,
-      @Value("${cn1.jdk8.rootMarker}") String rootMarker) {
+      @Value("${cn1.jdk8.macSha256:}") String macArchiveSha256,
+      @Value("${cn1.jdk8.windowsSha256:}") String windowsArchiveSha256,
+      @Value("${cn1.jdk8.rootMarker}") String rootMarker,
+      @Value("${cn1.jdk8.extraction:background}") String extraction,
+      @Value("${cn1.jdk8.classDataSharing:true}") boolean classDataSharing,
+      @Value("${cn1.jdk8.locations:}") String locations,
+      @Value("${cn1.jdk8.detectInstalled:true}") boolean detectInstalled) {
+    this(
+        extractor,
+        linuxArchiveResource,
+        macArchiveUrl,
+        windowsArchiveUrl,
+        macArchiveSha256,
+        windowsArchiveSha256,
+        rootMarker,
+        extraction,
+        classDataSharing,
+        detectInstalled
+            ? ToolchainRegistry.jdk8(extractor.cacheDir(), List.of(locations.split(",")))
+            : null);
+  }
+
+  /**
+   * Creates a manager with an explicit registry of installed JDKs.
+   *
+   * @param toolchains finds installed JDK 8 homes, or {@code null} to always use the archives
+   */
+  public Jdk8ManagerFromResource(
+      GlobalExtractor extractor,
+      String linuxArchiveResource,
+      String macArchiveUrl,
+      String windowsArchiveUrl,
+      String macArchiveSha256,
+      String windowsArchiveSha256,
+      String rootMarker,
+      String extraction,
+      boolean classDataSharing,
+      ToolchainRegistry toolchains) {
     this.extractor = extractor;
     this.linuxArchiveResource = linuxArchiveResource;
     this.macArchiveUrl = macArchiveUrl;
     this.windowsArchiveUrl = windowsArchiveUrl;
+    this.macArchiveSha256 = macArchiveSha256;
+    this.windowsArchiveSha256 = windowsArchiveSha256;
     this.rootMarker = rootMarker;
+    this.profile = ToolchainProfile.jdk8(extraction);
+    this.classDataSharing = classDataSharing;
+    this.toolchains = toolchains;
+    this.generation = extractor.generation();
+  }
+
+  /** Creates a manager that extracts whole archives and launches without shared archives. */
+  public Jdk8ManagerFromResource(
+      GlobalExtractor extractor,
+      String linuxArchiveResource,
+      String macArchiveUrl,
+      String windowsArchiveUrl,
+      String rootMarker) {
+    this(
+        extractor,
+        linuxArchiveResource,
+        macArchiveUrl,
+        windowsArchiveUrl,
+        "",
+        "",
+        rootMarker,
+        "full",
+        false,
+        null);
   }
 
   /** Convenience constructor for unit tests that only require a Linux archive resource. */
@@ -46,24 +135,101 @@ public class Jdk8ManagerFromResource {
     this(extractor, linuxArchiveResource, "", "", rootMarker);
   }
 
-  /** Ensures the bundled JDK 8 archive is extracted and returns the {@code javac} binary. */
+  /** Ensures a JDK 8 is available and returns its {@code javac} binary. */
   public Path ensureJavac8() throws IOException {
     return ensureBinary("javac");
   }
 
-  /** Ensures the bundled JDK 8 archive is extracted and returns the {@code java} binary. */
+  /** Ensures a JDK 8 is available and returns its {@code java} binary. */
   public Path ensureJava8() throws IOException {
     return ensureBinary("java");
   }
 
+  /**
+   * Returns the class data sharing options for the next launch of the JDK 8. The first
+   * launch of each kind records its classes; later launches map the archive built from them.
+   *
+   * @param kind whether {@code javac} or {@code java} is launched
+   * @return the launch options, empty when class data sharing is disabled or not ready yet
+   */
+  public ClassDataSharing.Launch classDataSharing(ClassDataSharing.Kind kind) throws IOException {
+    if (!classDataSharing) {
+      return ClassDataSharing.Launch.none();
+    }
+    Path java = ensureJava8();
+    ClassDataSharing current = sharing;
+    if (current == null || !current.java().equals(java)) {
+      synchronized (this) {
+        current = sharing;
+        if (current == null || !current.java().equals(java)) {
+          // An installed JDK may not be writable; its archives are kept in the cache instead.
+          Path home = java.getParent() == null ? null : java.getParent().getParent();
+          current =
+              home == null || java.startsWith(extractor.cacheDir()) || toolchains == null
+                  ? new ClassDataSharing(java)
+                  : new ClassDataSharing(java, toolchains.stateDirectory(home));
+          sharing = current;
+        }
+      }
+    }
+    return current.launch(kind);
+  }
+
+  /**
+   * Forgets the resolved binaries; the next lookup checks the extracted JDK on disk again. The
+   * same happens by itself once the extractor has been invalidated.
+   */
+  public void forget() {
+    binaries = Map.of();
+    sharing = null;
+  }
+
   private Path ensureBinary(String binary) throws IOException {
+    // Read before the binaries, which are cleared before a new generation is published.
+    long resolvedUnder = generation;
+    Path known = binaries.get(binary);
+    if (known != null && resolvedUnder == extractor.generation()) {
+      // Keeps the JDK entry recently used in the eyes of the janitor.
+      extractor.markUsed(known);
+      return known;
+    }
+    return resolveAndPublish(binary);
+  }
+
+  private synchronized Path resolveAndPublish(String binary) throws IOException {
+    long current = extractor.generation();
+    if (generation != current) {
+      forget();
+      generation = current;
+    }
+    Path known = binaries.get(binary);
+    if (known != null) {
+      return known;
+    }
+    Path resolved = resolve(binary);
+    Map<String, Path> next = new HashMap<>(binaries);
+    next.put(binary, resolved);
+    binaries = Map.copyOf(next);
+    return resolved;
+  }
+
+  private Path resolve(String binary) throws IOException {
     String os = System.getProperty("os.name", "linux").toLowerCase(Locale.ENGLISH);
+    Path installed = toolchains == null ? null : toolchains.find();
+    if (installed != null) {
+      try {
+        return resolveBinary(installed, os.contains("win"), binary);
+      } catch (IOException e) {
+        LOG.warn(
+            "Installed JDK8 at {} unusable ({}); using the bundled JDK", installed, e.getMessage());
+      }
+    }
     LOG.info("Resolving bundled JDK8 binary '{}' for operating system {}", binary, os);
     if (os.contains("win")) {
-      return ensureFromUrl(windowsArchiveUrl, true, "Windows", binary);
+      return ensureFromUrl(windowsArchiveUrl, windowsArchiveSha256, true, "Windows", binary);
     }
     if (os.contains("mac") || os.contains("darwin")) {
-      return ensureFromUrl(macArchiveUrl, false, "macOS", binary);
+      return ensureFromUrl(macArchiveUrl, macArchiveSha256, false, "macOS", binary);
     }
     return ensureFromResource(linuxArchiveResource, binary);
   }
@@ -81,12 +247,17 @@ public class Jdk8ManagerFromResource {
     String folderName = stripArchiveExtension(fileName);
     GlobalExtractor.ArchiveType type = GlobalExtractor.ArchiveType.fromName(fileName);
     LOG.info("Ensuring Linux JDK8 resource {} -> folder {}", resource, folderName);
-    Path jdkRoot = extractor.ensureArchiveExtracted(resource, folderName);
-    Path root = findJdkRoot(jdkRoot);
-    return resolveBinary(root, type == GlobalExtractor.ArchiveType.ZIP, binary);
+    return locate(
+        () ->
+            profile == null
+                ? extractor.ensureArchiveExtracted(resource, folderName)
+                : extractor.ensureArchiveExtracted(resource, folderName, profile),
+        type == GlobalExtractor.ArchiveType.ZIP,
+        binary);
   }
 
-  private Path ensureFromUrl(String url, boolean windows, String label, String binary)
+  private Path ensureFromUrl(
+      String url, String sha256, boolean windows, String label, String binary)
       throws IOException {
     if (url == null || url.isBlank()) {
       throw new IOException("No JDK8 download URL configured for " + label);
@@ -94,9 +265,32 @@ public class Jdk8ManagerFromResource {
     String fileName = fileName(url);
     String folderName = stripArchiveExtension(fileName);
     LOG.info("Ensuring remote JDK8 {} for {} -> folder {}", url, label, folderName);
-    Path jdkRoot = extractor.ensureArchiveExtractedFromUrl(url, folderName);
-    Path root = findJdkRoot(jdkRoot);
-    return resolveBinary(root, windows, binary);
+    return locate(
+        () -> {
+          if (sha256 != null && !sha256.isBlank()) {
+            return extractor.ensureArchiveExtractedFromUrl(url, folderName, profile, sha256.trim());
+          }
+          return profile == null
+              ? extractor.ensureArchiveExtractedFromUrl(url, folderName)
+              : extractor.ensureArchiveExtractedFromUrl(url, folderName, profile);
+        },
+        windows,
+        binary);
+  }
+
+  /**
+   * Finds the binary in the extracted JDK. A binary missing from a tree the extractor considered
+   * intact means the cache changed underneath it, so the extractor re-validates once.
+   */
+  private Path locate(Extraction extraction, boolean windows, String binary) throws IOException {
+    Path jdkRoot = extraction.extract();
+    try {
+      return resolveBinary(findJdkRoot(jdkRoot), windows, binary);
+    } catch (IOException e) {
+      LOG.warn("{}; re-validating the extracted JDK", e.getMessage());
+      extractor.invalidate();
+      return resolveBinary(findJdkRoot(extraction.extract()), windows, binary);
+    }
   }
 
   private Path findJdkRoot(Path base) throws IOException {
@@ -139,18 +333,21 @@ public class Jdk8ManagerFromResource {
   }
 
   private static String stripArchiveExtension(String name) {
-    if (name.toLowerCase(Locale.ENGLISH).endsWith(".tar.gz")) {
-      return name.substring(0, name.length() - ".tar.gz".length());
-    }
-    if (name.toLowerCase(Locale.ENGLISH).endsWith(".tgz")) {
-      return name.substring(0, name.length() - ".tgz".length());
-    }
-    if (name.toLowerCase(Locale.ENGLISH).endsWith(".zip")) {
-      return name.substring(0, name.length() - ".zip".length());
+    String lower = name.toLowerCase(Locale.ENGLISH);
+    for (String extension : ARCHIVE_EXTENSIONS) {
+      if (lower.endsWith(extension)) {
+        return name.substring(0, name.length() - extension.length());
+      }
     }
     return name;
   }
 
+
+  @FunctionalInterface
+  private interface Extraction {
+    Path extract() throws IOException;
+  }
+
   private static String fileName(String url) throws MalformedURLException {
     Path fileName = Path.of(new URL(url).getPath()).getFileName();
     if (fileName == null) {
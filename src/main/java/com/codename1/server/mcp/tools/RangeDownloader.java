@@ -0,0 +1,477 @@
+package com.codename1.server.mcp.tools;
+
+import com.codename1.server.mcp.util.Digests;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Downloads large files over HTTP in parallel byte ranges. Every segment is written to a file of
+ * its own next to the target, so a download interrupted by a crash or a dropped connection
+ * resumes from the bytes already on disk as long as the server still reports the same length and
+ * validator. Without a validator, partial segments are only kept when a checksum would catch a
+ * file that changed in between. Servers that do not support ranges get a plain single request. The
+ * file only appears at its target once it is complete and matches the expected checksum, if one is
+ * given.
+ */
+final class RangeDownloader {
+  private static final Logger LOG = LoggerFactory.getLogger(RangeDownloader.class);
+  private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+|\\*)");
+  private static final String META_SUFFIX = ".part-meta";
+  private static final String PART_SUFFIX = ".part";
+  private static final int ATTEMPTS = 3;
+  private static final Duration READ_TIMEOUT = Duration.ofSeconds(60);
+
+  private final int parallelism;
+  private final long minSegmentBytes;
+  private final Duration readTimeout;
+
+  /**
+   * Creates a downloader.
+   *
+   * @param parallelism maximum number of segments fetched at once
+   * @param minSegmentBytes files are not split into segments smaller than this
+   */
+  RangeDownloader(int parallelism, long minSegmentBytes) {
+    this(parallelism, minSegmentBytes, READ_TIMEOUT);
+  }
+
+  /**
+   * Creates a downloader.
+   *
+   * @param parallelism maximum number of segments fetched at once
+   * @param minSegmentBytes files are not split into segments smaller than this
+   * @param readTimeout how long a request may wait for its response or for more of its body
+   *     before it is abandoned; an abandoned segment is retried from the bytes it got
+   */
+  RangeDownloader(int parallelism, long minSegmentBytes, Duration readTimeout) {
+    this.parallelism = Math.max(1, parallelism);
+    this.minSegmentBytes = Math.max(1, minSegmentBytes);
+    this.readTimeout = Objects.requireNonNull(readTimeout, "readTimeout");
+  }
+
+  /**
+   * Downloads the file, resuming a previous attempt if possible.
+   *
+   * @param uri where to download from
+   * @param target where the complete file is placed
+   * @param sha256 expected hex encoded SHA-256, or {@code null} or blank to skip the check
+   */
+  void download(URI uri, Path target, String sha256) throws IOException {
+    HttpResponse<InputStream> probe =
+        send(request(uri).header("Range", "bytes=0-0").GET().build());
+    long length;
+    String validator;
+    try (InputStream body = probe.body()) {
+      if (probe.statusCode() == 200) {
+        LOG.info("Server does not support ranges for {}, downloading in one request", uri);
+        finish(target, sha256, out -> copy(uri, body, out));
+        return;
+      }
+      expectStatus(probe, 206);
+      length = totalLength(probe);
+      validator = validator(probe);
+      copy(uri, body, OutputStream.nullOutputStream());
+    }
+    if (length < 0) {
+      LOG.info("Server reports no length for {}, downloading in one request", uri);
+      downloadWhole(uri, target, sha256);
+      return;
+    }
+    // Bytes kept from an earlier attempt can only be trusted if a changed file would be noticed.
+    boolean resumable = !validator.isEmpty() || (sha256 != null && !sha256.isBlank());
+    try {
+      List<Path> segments = fetchSegments(uri, target, length, validator, resumable);
+      finish(
+          target,
+          sha256,
+          out -> {
+            for (Path segment : segments) {
+              Files.copy(segment, out);
+            }
+          });
+    } catch (RangeIgnoredException e) {
+      LOG.warn("{}; downloading {} in one request", e.getMessage(), uri);
+      discardSegments(target);
+      downloadWhole(uri, target, sha256);
+    }
+    discardSegments(target);
+  }
+
+  private void downloadWhole(URI uri, Path target, String sha256) throws IOException {
+    HttpResponse<InputStream> whole = send(request(uri).GET().build());
+    try (InputStream body = whole.body()) {
+      expectStatus(whole, 200);
+      finish(target, sha256, out -> copy(uri, body, out));
+    }
+  }
+
+  private List<Path> fetchSegments(
+      URI uri, Path target, long length, String validator, boolean resumable) throws IOException {
+    int count = (int) Math.max(1, Math.min(parallelism, length / minSegmentBytes));
+    long size = (length + count - 1) / count;
+    Path meta = sibling(target, META_SUFFIX);
+    Properties expected = new Properties();
+    expected.setProperty("url", uri.toString());
+    expected.setProperty("length", Long.toString(length));
+    expected.setProperty("validator", validator);
+    expected.setProperty("segments", Integer.toString(count));
+    if (!resumable || !expected.equals(readMeta(meta))) {
+      discardSegments(target);
+      try (OutputStream out = Files.newOutputStream(meta)) {
+        expected.store(out, "cn1 partial download");
+      }
+    }
+
+    List<Path> segments = new ArrayList<>();
+    List<Future<?>> pending = new ArrayList<>();
+    ExecutorService pool =
+        Executors.newFixedThreadPool(
+            count,
+            r -> {
+              Thread t = new Thread(r, "cn1-download");
+              t.setDaemon(true);
+              return t;
+            });
+    try {
+      long resumed = 0;
+      for (int i = 0; i < count; i++) {
+        long start = i * size;
+        long end = Math.min(length, start + size) - 1;
+        Path segment = sibling(target, PART_SUFFIX + "-" + i);
+        segments.add(segment);
+        long present = Files.exists(segment) ? Files.size(segment) : 0;
+        if (present > end - start + 1) {
+          Files.delete(segment);
+          present = 0;
+        }
+        resumed += present;
+        if (present <= end - start) {
+          pending.add(
+              pool.submit(() -> fetchSegment(uri, validator, resumable, segment, start, end)));
+        }
+      }
+      if (resumed > 0) {
+        LOG.info("Resuming download of {} with {} of {} bytes present", uri, resumed, length);
+      }
+      // Every segment runs to its end so that a failed download keeps as much as possible.
+      IOException failure = null;
+      for (Future<?> future : pending) {
+        try {
+          await(future);
+        } catch (IOException e) {
+          if (failure == null) {
+            failure = e;
+          }
+        }
+      }
+      if (failure != null) {
+        throw failure;
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+    long total = 0;
+    for (Path segment : segments) {
+      total += Files.size(segment);
+    }
+    if (total != length) {
+      discardSegments(target);
+      throw new IOException("Downloaded " + total + " bytes of " + uri + ", expected " + length);
+    }
+    return segments;
+  }
+
+  /**
+   * Appends the missing bytes of one segment, retrying from wherever the last attempt stopped, or
+   * from the start of the segment if partial bytes cannot be trusted.
+   */
+  private Void fetchSegment(
+      URI uri, String validator, boolean resumable, Path segment, long start, long end)
+      throws IOException {
+    IOException failure = null;
+    for (int attempt = 0; attempt < ATTEMPTS; attempt++) {
+      long from = start + (Files.exists(segment) ? Files.size(segment) : 0);
+      if (from > end) {
+        return null;
+      }
+      HttpRequest.Builder request =
+          request(uri).header("Range", "bytes=" + from + "-" + end).GET();
+      if (!validator.isEmpty() && !validator.startsWith("W/")) {
+        // A changed file comes back whole instead of as a range of the new content.
+        request.header("If-Range", validator);
+      }
+      try {
+        HttpResponse<InputStream> response = send(request.build());
+        try (InputStream body = response.body()) {
+          if (response.statusCode() == 200) {
+            throw new RangeIgnoredException(
+                "Server answered a range request for " + uri + " with the whole file");
+          }
+          expectStatus(response, 206);
+          expectRange(response, from, end);
+          try (OutputStream out =
+              Files.newOutputStream(
+                  segment, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            copy(uri, body, out);
+          }
+        }
+      } catch (RangeIgnoredException e) {
+        throw e;
+      } catch (IOException e) {
+        failure = e;
+        LOG.debug("Segment {}-{} of {} interrupted", start, end, uri, e);
+        if (!resumable) {
+          Files.deleteIfExists(segment);
+        }
+      }
+    }
+    if (Files.exists(segment) && Files.size(segment) == end - start + 1) {
+      return null;
+    }
+    throw failure != null
+        ? failure
+        : new IOException("Segment " + start + "-" + end + " of " + uri + " is incomplete");
+  }
+
+  /** Writes the complete file next to the target, checks it and moves it into place. */
+  private static void finish(Path target, String sha256, Writer writer) throws IOException {
+    Path part = sibling(target, PART_SUFFIX);
+    MessageDigest md = Digests.sha256();
+    try {
+      try (OutputStream out = new DigestOutputStream(Files.newOutputStream(part), md)) {
+        writer.write(out);
+      }
+      String actual = HexFormat.of().formatHex(md.digest());
+      if (sha256 != null && !sha256.isBlank() && !sha256.trim().equalsIgnoreCase(actual)) {
+        discardSegments(target);
+        throw new IOException(
+            "Checksum mismatch for "
+                + target.getFileName()
+                + ": expected "
+                + sha256.trim()
+                + " but downloaded "
+                + actual);
+      }
+      Files.move(part, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(part);
+    }
+  }
+
+  private HttpRequest.Builder request(URI uri) {
+    // Bounds the wait for the response headers; copy() bounds the wait for the body.
+    return HttpRequest.newBuilder(uri).timeout(readTimeout);
+  }
+
+  /**
+   * Copies a response body, closing it once no data has arrived for the read timeout. Closing the
+   * body wakes up the blocked read, which then fails like a dropped connection.
+   */
+  private void copy(URI uri, InputStream body, OutputStream out) throws IOException {
+    AtomicLong lastRead = new AtomicLong(System.nanoTime());
+    AtomicBoolean stalled = new AtomicBoolean();
+    long timeout = readTimeout.toNanos();
+    long period = Math.max(1, readTimeout.toMillis() / 4);
+    ScheduledFuture<?> watchdog =
+        Watchdog.INSTANCE.scheduleWithFixedDelay(
+            () -> {
+              if (System.nanoTime() - lastRead.get() >= timeout
+                  && stalled.compareAndSet(false, true)) {
+                try {
+                  body.close();
+                } catch (IOException e) {
+                  LOG.debug("Failed to close stalled download of {}", uri, e);
+                }
+              }
+            },
+            period,
+            period,
+            TimeUnit.MILLISECONDS);
+    try {
+      byte[] buffer = new byte[64 * 1024];
+      int n;
+      while ((n = body.read(buffer)) >= 0) {
+        lastRead.set(System.nanoTime());
+        out.write(buffer, 0, n);
+      }
+    } catch (IOException e) {
+      if (stalled.get()) {
+        throw new HttpTimeoutException(
+            "No data received from " + uri + " for " + readTimeout.toMillis() + " ms");
+      }
+      throw e;
+    } finally {
+      watchdog.cancel(false);
+    }
+    if (stalled.get()) {
+      // Closed just as the body ended, which cannot be told apart from a truncated body.
+      throw new HttpTimeoutException("Download of " + uri + " stalled");
+    }
+  }
+
+  private HttpResponse<InputStream> send(HttpRequest request) throws IOException {
+    try {
+      return Client.INSTANCE.send(request, HttpResponse.BodyHandlers.ofInputStream());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Download of " + request.uri() + " interrupted");
+    }
+  }
+
+  private static void await(Future<?> future) throws IOException {
+    try {
+      future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Download interrupted");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException io) {
+        throw io;
+      }
+      throw new IOException("Download failed", e.getCause());
+    }
+  }
+
+  /** The total length from the {@code Content-Range} header, or -1 if it is not stated. */
+  private static long totalLength(HttpResponse<?> response) {
+    String range = response.headers().firstValue("Content-Range").orElse("");
+    Matcher matcher = CONTENT_RANGE.matcher(range);
+    return matcher.matches() && !"*".equals(matcher.group(3))
+        ? Long.parseLong(matcher.group(3))
+        : -1;
+  }
+
+  /** Fails unless the {@code Content-Range} header covers exactly the requested bytes. */
+  private static void expectRange(HttpResponse<?> response, long from, long end)
+      throws IOException {
+    String range = response.headers().firstValue("Content-Range").orElse("");
+    Matcher matcher = CONTENT_RANGE.matcher(range);
+    if (!matcher.matches()
+        || Long.parseLong(matcher.group(1)) != from
+        || Long.parseLong(matcher.group(2)) != end) {
+      throw new RangeIgnoredException(
+          "Server answered the range "
+              + from
+              + "-"
+              + end
+              + " of "
+              + response.uri()
+              + " with '"
+              + range
+              + "'");
+    }
+  }
+
+  private static String validator(HttpResponse<?> response) {
+    return response
+        .headers()
+        .firstValue("ETag")
+        .or(() -> response.headers().firstValue("Last-Modified"))
+        .orElse("");
+  }
+
+  private static void expectStatus(HttpResponse<?> response, int status) throws IOException {
+    if (response.statusCode() != status) {
+      throw new IOException(
+          "Download of " + response.uri() + " failed with HTTP " + response.statusCode());
+    }
+  }
+
+  private static Properties readMeta(Path meta) {
+    if (!Files.exists(meta)) {
+      return null;
+    }
+    Properties properties = new Properties();
+    try (InputStream in = Files.newInputStream(meta)) {
+      properties.load(in);
+      return properties;
+    } catch (IOException | IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  /** Removes the segments and state of a partial download. */
+  static void discardSegments(Path target) throws IOException {
+    Path dir = Objects.requireNonNull(target.toAbsolutePath().getParent());
+    String prefix = target.getFileName() + PART_SUFFIX;
+    try (var children = Files.list(dir)) {
+      for (Path child : (Iterable<Path>) children::iterator) {
+        String name = child.getFileName().toString();
+        if (name.startsWith(prefix) && !name.equals(prefix)) {
+          Files.deleteIfExists(child);
+        }
+      }
+    }
+  }
+
+  private static Path sibling(Path target, String suffix) {
+    return target.resolveSibling(target.getFileName() + suffix);
+  }
+
+  /** Holds the HTTP client, created on the first download rather than with every extractor. */
+  private static final class Client {
+    static final HttpClient INSTANCE =
+        HttpClient.newBuilder()
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(Duration.ofSeconds(30))
+            .build();
+  }
+
+  /** Holds the thread that abandons stalled response bodies. */
+  private static final class Watchdog {
+    static final ScheduledExecutorService INSTANCE =
+        Executors.newSingleThreadScheduledExecutor(
+            r -> {
+              Thread t = new Thread(r, "cn1-download-watchdog");
+              t.setDaemon(true);
+              return t;
+            });
+  }
+
+  /** Writes the content of the complete file. */
+  @FunctionalInterface
+  private interface Writer {
+    void write(OutputStream out) throws IOException;
+  }
+
+  /** The server ignored or rejected a range request, so the file is fetched whole. */
+  private static final class RangeIgnoredException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    RangeIgnoredException(String message) {
+      super(message);
+    }
+  }
+}
@@ -0,0 +1,130 @@
+package com.codename1.server.mcp.tools;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Names the files of a toolchain archive that its tools need before they can run. Those are
+ * extracted first; the rest of the archive is extracted later in the background or not at all.
+ * Paths are matched below the archive's top-level directory, if it has one, and below the
+ * {@code Contents/Home} directory of macOS bundles.
+ */
+public final class ToolchainProfile {
+  /** What happens to the files a profile does not list as essential. */
+  public enum Rest {
+    /** Extracted by a background thread once the essential files are in place. */
+    BACKGROUND,
+    /** Left in the archive until a caller asks for the complete tree. */
+    SKIP
+  }
+
+  // The launchers, the class libraries javac and java load, and the native libraries and data
+  // files the VM reads at startup. jre/lib/ext/ holds JavaFX where present, which the CSS
+  // compiler renders with, and fonts/ is its fallback when the host has none. Every other tool,
+  // ct.sym, the optional jars of jre/lib, Java DB, sources and the profilers can come later.
+  private static final List<String> JDK8_ESSENTIAL =
+      List.of(
+          "bin/java",
+          "bin/javac",
+          "bin/java.exe",
+          "bin/javac.exe",
+          "lib/tools.jar",
+          "jre/lib/rt.jar",
+          "jre/lib/ext/",
+          "jre/lib/security/",
+          "jre/lib/fonts/",
+          "release");
+  private static final List<String> JDK8_NATIVE_DIRS = List.of("bin/", "lib/", "jre/");
+  private static final List<String> JDK8_NON_ESSENTIAL =
+      List.of("lib/missioncontrol/", "lib/visualvm/");
+  private static final String JRE_LIB = "jre/lib/";
+
+  private static final String MAC_HOME = "Contents/Home/";
+
+  private final List<String> essential;
+  private final List<String> nativeDirs;
+  private final List<String> nonEssential;
+  private final Rest rest;
+
+  private ToolchainProfile(
+      List<String> essential, List<String> nativeDirs, List<String> nonEssential, Rest rest) {
+    this.essential = List.copyOf(essential);
+    this.nativeDirs = List.copyOf(nativeDirs);
+    this.nonEssential = List.copyOf(nonEssential);
+    this.rest = Objects.requireNonNull(rest, "rest");
+  }
+
+  /** Profile of a JDK 8 archive limited to what {@code javac} and {@code java} need. */
+  public static ToolchainProfile jdk8(Rest rest) {
+    return new ToolchainProfile(JDK8_ESSENTIAL, JDK8_NATIVE_DIRS, JDK8_NON_ESSENTIAL, rest);
+  }
+
+  /**
+   * Parses the configured JDK 8 extraction mode.
+   *
+   * @param mode {@code full}, {@code background} or {@code skip}
+   * @return the profile, or {@code null} to extract the whole archive up front
+   */
+  public static ToolchainProfile jdk8(String mode) {
+    String value = mode == null ? "" : mode.trim().toLowerCase(Locale.ROOT);
+    return switch (value) {
+      case "", "full" -> null;
+      case "background" -> jdk8(Rest.BACKGROUND);
+      case "skip" -> jdk8(Rest.SKIP);
+      default -> throw new IllegalArgumentException("Unknown JDK extraction mode: " + mode);
+    };
+  }
+
+  /** Returns what happens to the files that are not essential. */
+  public Rest rest() {
+    return rest;
+  }
+
+  /**
+   * Returns {@code true} if the file is needed before the toolchain can be used.
+   *
+   * @param path {@code /} separated path below the extraction root
+   */
+  public boolean isEssential(String path) {
+    int home = path.indexOf(MAC_HOME);
+    if (home >= 0) {
+      return matches(path.substring(home + MAC_HOME.length()));
+    }
+    if (matches(path)) {
+      return true;
+    }
+    int slash = path.indexOf('/');
+    return slash > 0 && matches(path.substring(slash + 1));
+  }
+
+  private boolean matches(String path) {
+    for (String prefix : nonEssential) {
+      if (path.startsWith(prefix)) {
+        return false;
+      }
+    }
+    for (String prefix : essential) {
+      if (path.equals(prefix) || (prefix.endsWith("/") && path.startsWith(prefix))) {
+        return true;
+      }
+    }
+    for (String dir : nativeDirs) {
+      if (path.startsWith(dir) && isNativeLibrary(path)) {
+        return true;
+      }
+    }
+    // Data files such as tzdb.dat and the font and charset tables sit directly in jre/lib.
+    return path.startsWith(JRE_LIB)
+        && path.indexOf('/', JRE_LIB.length()) < 0
+        && !path.endsWith(".jar");
+  }
+
+  private static boolean isNativeLibrary(String path) {
+    String name = path.substring(path.lastIndexOf('/') + 1).toLowerCase(Locale.ROOT);
+    return name.endsWith(".so")
+        || name.endsWith(".dylib")
+        || name.endsWith(".dll")
+        || name.equals("jvm.cfg");
+  }
+}
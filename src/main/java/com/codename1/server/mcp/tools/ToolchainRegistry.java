@@ -0,0 +1,225 @@
+package com.codename1.server.mcp.tools;
+
+import com.codename1.server.mcp.util.Digests;
+import com.codename1.server.mcp.util.OsUtils;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.function.Predicate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Finds a toolchain already installed on the host so the bundled archive does not have to be
+ * extracted. Candidate homes come from a list of sources tried in order; the first one the
+ * verifier accepts wins. The choice, including finding nothing, is recorded in a descriptor and
+ * reused by later startups for as long as the candidates and their {@code release} files are
+ * unchanged.
+ */
+public final class ToolchainRegistry {
+  private static final Logger LOG = LoggerFactory.getLogger(ToolchainRegistry.class);
+
+  /** Directory below the shared cache holding descriptors and per-toolchain state. */
+  static final String DIRECTORY = "toolchains";
+
+  private static final String RELEASE = "release";
+
+  /** A source of candidate toolchain homes. */
+  @FunctionalInterface
+  public interface Source {
+    /** Returns the homes to try, most preferred first; missing paths are skipped. */
+    List<Path> candidates();
+  }
+
+  private final Path descriptor;
+  private final List<Source> sources;
+  private final Predicate<Path> verifier;
+
+  /**
+   * Creates a registry.
+   *
+   * @param descriptor file recording the last choice
+   * @param sources where candidate homes come from, most preferred first
+   * @param verifier accepts homes holding a usable toolchain
+   */
+  public ToolchainRegistry(Path descriptor, List<Source> sources, Predicate<Path> verifier) {
+    this.descriptor = Objects.requireNonNull(descriptor, "descriptor");
+    this.sources = List.copyOf(sources);
+    this.verifier = Objects.requireNonNull(verifier, "verifier");
+  }
+
+  /**
+   * Registry of installed JDK 8 homes: the configured locations first, then the JDK providing
+   * {@code javac} on the {@code PATH}.
+   *
+   * @param cacheDir root of the shared cache, where the descriptor is kept
+   * @param locations configured JDK 8 homes
+   */
+  public static ToolchainRegistry jdk8(Path cacheDir, List<String> locations) {
+    List<Path> configured = new ArrayList<>();
+    for (String location : locations) {
+      if (location != null && !location.isBlank()) {
+        configured.add(Path.of(location.trim()));
+      }
+    }
+    return new ToolchainRegistry(
+        cacheDir.resolve(DIRECTORY).resolve("jdk8.properties"),
+        List.of(() -> configured, ToolchainRegistry::javacOnPath),
+        ToolchainRegistry::isJdk8);
+  }
+
+  /**
+   * Returns the home of the installed toolchain to use.
+   *
+   * @return the verified home, or {@code null} if none is installed
+   */
+  public synchronized Path find() {
+    List<Path> candidates = new ArrayList<>();
+    for (Source source : sources) {
+      candidates.addAll(source.candidates());
+    }
+    String fingerprint = fingerprint(candidates);
+    Properties recorded = read();
+    if (recorded != null && fingerprint.equals(recorded.getProperty("fingerprint"))) {
+      String home = recorded.getProperty("home", "");
+      LOG.debug("Using recorded toolchain choice '{}'", home);
+      return home.isEmpty() ? null : Path.of(home);
+    }
+    Path found = null;
+    for (Path candidate : candidates) {
+      if (verifier.test(candidate)) {
+        found = candidate;
+        break;
+      }
+    }
+    if (found != null) {
+      LOG.info("Using installed toolchain at {}", found);
+    } else {
+      LOG.info("No installed toolchain among {}", candidates);
+    }
+    write(fingerprint, found);
+    return found;
+  }
+
+  /**
+   * Returns a writable directory for state derived from an installed toolchain, whose own
+   * directory may not be writable.
+   *
+   * @param home the toolchain home
+   */
+  public Path stateDirectory(Path home) {
+    Path parent = descriptor.getParent();
+    Path root = parent == null ? Path.of(DIRECTORY) : parent;
+    return root.resolve(Digests.sha256Hex(home.toAbsolutePath().toString()).substring(0, 16));
+  }
+
+  /**
+   * Returns {@code true} if the directory holds a JDK 8 with {@code javac} and {@code java}. The
+   * version is read from the {@code release} file rather than by starting the JVM.
+   */
+  static boolean isJdk8(Path home) {
+    Properties release = new Properties();
+    try (InputStream in = Files.newInputStream(home.resolve(RELEASE))) {
+      release.load(in);
+    } catch (IOException e) {
+      return false;
+    }
+    String version = release.getProperty("JAVA_VERSION", "").replace("\"", "");
+    if (!version.startsWith("1.8.")) {
+      LOG.debug("Skipping {}: JAVA_VERSION {}", home, version);
+      return false;
+    }
+    String suffix = OsUtils.isWindows() ? ".exe" : "";
+    for (String binary : List.of("javac", "java")) {
+      Path executable = home.resolve("bin").resolve(binary + suffix);
+      if (!Files.isRegularFile(executable)
+          || (!OsUtils.isWindows() && !Files.isExecutable(executable))) {
+        LOG.debug("Skipping {}: {} missing", home, executable);
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** The home of the JDK providing {@code javac} on the {@code PATH}, through any symlinks. */
+  private static List<Path> javacOnPath() {
+    Path javac = OsUtils.locateOnPath(OsUtils.isWindows() ? "javac.exe" : "javac");
+    if (javac == null) {
+      return List.of();
+    }
+    try {
+      Path bin = javac.toRealPath().getParent();
+      Path home = bin == null ? null : bin.getParent();
+      return home == null ? List.of() : List.of(home);
+    } catch (IOException e) {
+      return List.of();
+    }
+  }
+
+  private static String releaseStamp(Path home) {
+    try {
+      BasicFileAttributes attrs =
+          Files.readAttributes(home.resolve(RELEASE), BasicFileAttributes.class);
+      return attrs.size() + ":" + attrs.lastModifiedTime().toMillis();
+    } catch (IOException e) {
+      return "";
+    }
+  }
+
+  private Properties read() {
+    if (!Files.exists(descriptor)) {
+      return null;
+    }
+    Properties properties = new Properties();
+    try (InputStream in = Files.newInputStream(descriptor)) {
+      properties.load(in);
+      return properties;
+    } catch (IOException | IllegalArgumentException e) {
+      LOG.debug("Ignoring unreadable toolchain descriptor {}", descriptor, e);
+      return null;
+    }
+  }
+
+  private void write(String fingerprint, Path home) {
+    Properties properties = new Properties();
+    properties.setProperty("fingerprint", fingerprint);
+    properties.setProperty("home", home == null ? "" : home.toString());
+    try {
+      Path parent = descriptor.getParent();
+      if (parent != null) {
+        Files.createDirectories(parent);
+      }
+      Path tmp = Files.createTempFile(parent, ".toolchain", ".tmp");
+      try {
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+          properties.store(out, "cn1 toolchain descriptor");
+        }
+        Files.move(
+            tmp, descriptor, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } finally {
+        Files.deleteIfExists(tmp);
+      }
+    } catch (IOException e) {
+      // Detection simply runs again on the next startup.
+      LOG.debug("Failed to record toolchain descriptor {}", descriptor, e);
+    }
+  }
+
+  /** Identifies the candidates and the state of their release files without reading them. */
+  private static String fingerprint(List<Path> candidates) {
+    StringBuilder joined = new StringBuilder();
+    for (Path candidate : candidates) {
+      joined.append(candidate.toAbsolutePath()).append('\t').append(releaseStamp(candidate));
+      joined.append('\n');
+    }
+    return Digests.sha256Hex(joined.toString());
+  }
+}
@@ -0,0 +1,51 @@
+package com.codename1.server.mcp.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/** SHA-256 helpers shared by the caches that key or verify content by its digest. */
+public final class Digests {
+  private Digests() {}
+
+  /** Returns a new SHA-256 digest. Every JVM is required to support it. */
+  public static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** Returns the hex encoded SHA-256 of the bytes. */
+  public static String sha256Hex(byte[] data) {
+    return HexFormat.of().formatHex(sha256().digest(data));
+  }
+
+  /** Returns the hex encoded SHA-256 of the UTF-8 encoding of the text. */
+  public static String sha256Hex(String text) {
+    return sha256Hex(text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Adds a value that may be {@code null} to a digest. The value is prefixed with whether it is
+   * present and its length, so consecutive values cannot run into each other.
+   */
+  public static void update(MessageDigest md, String value) {
+    if (value == null) {
+      md.update((byte) 0);
+      return;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    md.update((byte) 1);
+    md.update(
+        new byte[] {
+          (byte) (bytes.length >>> 24),
+          (byte) (bytes.length >>> 16),
+          (byte) (bytes.length >>> 8),
+          (byte) bytes.length
+        });
+    md.update(bytes);
+  }
+}
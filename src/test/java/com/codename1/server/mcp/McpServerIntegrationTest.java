@@ -57,11 +57,15 @@ class McpServerIntegrationTest {
               "cn1_lint_code",
               "cn1_compile_check",
               "cn1_compile_css",
+              "cn1_compile_css_batch",
+              "cn1_upload_asset",
+              "cn1_cache_maintenance",
               "cn1_scaffold_project",
               "cn1_explain_violation",
               "cn1_search_snippets",
               "cn1_auto_fix",
-              "cn1_generate_native_stubs");
+              "cn1_generate_native_stubs",
+              "cn1_generate_native_stubs_batch");
 
       McpSchema.Tool lintTool = toolsByName.get("cn1_lint_code");
       assertThat(lintTool.description()).isEqualTo("Lint Java for Codename One");
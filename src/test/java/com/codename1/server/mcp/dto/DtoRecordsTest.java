@@ -124,6 +124,25 @@ class DtoRecordsTest {
         assertNull(nullResponse.files());
     }
 
+    @Test
+    void fileEntryDefaultsToInlineContent() {
+        FileEntry entry = new FileEntry("theme.css", ".A {}");
+
+        assertEquals(".A {}", entry.content());
+        assertNull(entry.blobSha256());
+    }
+
+    @Test
+    void cssCompileResponseDefaultsToNoTheme() {
+        CssCompileResponse response = new CssCompileResponse(false, "log");
+
+        assertFalse(response.ok());
+        assertEquals("log", response.log());
+        assertNull(response.themeBase64());
+        assertNull(response.themeSha256());
+        assertFalse(response.cached());
+    }
+
     @Test
     void snippetsRequestStoresTopic() {
         SnippetsRequest request = new SnippetsRequest("Codename One");
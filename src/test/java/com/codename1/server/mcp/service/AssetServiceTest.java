@@ -0,0 +1,33 @@
+package com.codename1.server.mcp.service;
+
+import com.codename1.server.mcp.tools.BlobStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AssetServiceTest {
+
+    @Test
+    void uploadsOnceAndAnswersLaterChecksByHash(@TempDir Path tmp) {
+        var service = new AssetService(new BlobStore(tmp));
+        String png = Base64.getEncoder().encodeToString(new byte[] {(byte) 0x89, 'P', 'N', 'G'});
+
+        var uploaded = service.upload(png, null);
+        assertTrue(uploaded.ok(), uploaded.log());
+        assertFalse(uploaded.existed());
+        assertEquals(4, uploaded.size());
+
+        var checked = service.upload(null, uploaded.sha256().toUpperCase());
+        assertTrue(checked.ok());
+        assertTrue(checked.existed());
+        assertEquals(uploaded.sha256(), checked.sha256());
+
+        assertFalse(service.upload(null, "0".repeat(64)).ok());
+        assertFalse(service.upload(png, "1".repeat(64)).ok());
+        assertFalse(service.upload(png, "nope").ok());
+    }
+}
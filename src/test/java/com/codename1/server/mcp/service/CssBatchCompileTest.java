@@ -0,0 +1,109 @@
+package com.codename1.server.mcp.service;
+
+import com.codename1.server.mcp.dto.CssBatchCompileRequest;
+import com.codename1.server.mcp.dto.CssCompileRequest;
+import com.codename1.server.mcp.dto.FileEntry;
+import com.codename1.server.mcp.tools.GlobalExtractor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CssBatchCompileTest {
+
+    @Test
+    void answersEachThemeWithoutCompilingWhenRejectedOrCached(@TempDir Path tmp) {
+        Path designerJar = tmp.resolve("0123456789ab").resolve("designer.jar");
+        var extractor = new GlobalExtractor(tmp.resolve("cache").toString(), "batch") {
+            @Override
+            public Path ensureFile(String resourcePath) {
+                return designerJar;
+            }
+        };
+        var shared = List.of(new FileEntry("common.css", ".Title { color: red; }"));
+        var light = new CssCompileRequest(
+                List.of(new FileEntry("light.css", ".Title { color: #ffffff; }")), "light.css", null);
+        var broken = new CssCompileRequest(
+                List.of(new FileEntry("broken.css", ".Title { color #000; }")), "broken.css", null);
+
+        // The batch resolves light.css to light.res, so seed the cache under that key.
+        var cache = new CssThemeCache(tmp.resolve("cache").resolve("css-themes"));
+        cache.put(CssThemeCache.key(new CssCompileRequest(
+                List.of(shared.get(0), light.files().get(0)), "light.css", "light.res"),
+                "0123456789ab"), new byte[] {4, 2}, "cached log");
+
+        var service = new CssCompileService(extractor, null, false, 1, 1, 1, 0, 90, 2);
+        var response = service.compileBatch(new CssBatchCompileRequest(shared, List.of(light, broken)));
+
+        assertFalse(response.ok());
+        assertEquals(2, response.themes().size());
+        assertTrue(response.themes().get(0).ok());
+        assertTrue(response.themes().get(0).cached());
+        assertEquals("BAI=", response.themes().get(0).themeBase64());
+        assertFalse(response.themes().get(1).ok());
+        assertTrue(response.themes().get(1).log().contains("broken.css:1:10: error:"));
+    }
+
+    @Test
+    void keysThemesByTheStylesheetActuallyCompiled(@TempDir Path tmp) {
+        Path designerJar = tmp.resolve("0123456789ab").resolve("designer.jar");
+        var extractor = new GlobalExtractor(tmp.resolve("cache").toString(), "batch") {
+            @Override
+            public Path ensureFile(String resourcePath) {
+                return designerJar;
+            }
+        };
+        var a = new FileEntry("a.css", ".Title { color: red; }");
+        var b = new FileEntry("b.css", ".Title { color: blue; }");
+        var cache = new CssThemeCache(tmp.resolve("cache").resolve("css-themes"));
+        cache.put(CssThemeCache.key(new CssCompileRequest(List.of(a, b), "a.css", null), "0123456789ab"),
+                new byte[] {4, 2}, "a log");
+        cache.put(CssThemeCache.key(new CssCompileRequest(List.of(a, b), "b.css", null), "0123456789ab"),
+                new byte[] {1}, "b log");
+        var service = new CssCompileService(extractor, null, false, 1, 1, 1, 0, 90, 2);
+
+        // Without an input path the first stylesheet in request order is compiled.
+        assertEquals("BAI=", service.compile(new CssCompileRequest(List.of(a, b), null, null)).themeBase64());
+        assertEquals("AQ==", service.compile(new CssCompileRequest(List.of(b, a), null, null)).themeBase64());
+        assertEquals("BAI=", service.compile(new CssCompileRequest(List.of(b, a), "a.css", null)).themeBase64());
+    }
+
+    @Test
+    void failsThemesWhoseInputIsNotAmongTheirFiles(@TempDir Path tmp) {
+        Path designerJar = tmp.resolve("0123456789ab").resolve("designer.jar");
+        var extractor = new GlobalExtractor(tmp.resolve("cache").toString(), "batch") {
+            @Override
+            public Path ensureFile(String resourcePath) {
+                return designerJar;
+            }
+        };
+        var light = new CssCompileRequest(
+                List.of(new FileEntry("light.css", ".Title { color: #ffffff; }")), "light.css", null);
+        var typo = new CssCompileRequest(
+                List.of(new FileEntry("dark.css", ".Title { color: #000000; }")), "drak.css", null);
+        var cache = new CssThemeCache(tmp.resolve("cache").resolve("css-themes"));
+        cache.put(CssThemeCache.key(new CssCompileRequest(light.files(), "light.css", null), "0123456789ab"),
+                new byte[] {4, 2}, "cached log");
+        var service = new CssCompileService(extractor, null, false, 1, 1, 1, 0, 90, 2);
+
+        var response = service.compileBatch(new CssBatchCompileRequest(List.of(), List.of(light, typo)));
+
+        assertTrue(response.themes().get(0).ok());
+        assertFalse(response.themes().get(1).ok());
+        assertEquals("CSS input drak.css not found", response.themes().get(1).log());
+    }
+
+    @Test
+    void rejectsEmptyBatches(@TempDir Path tmp) {
+        var service = new CssCompileService(
+                new GlobalExtractor(tmp.toString(), "batch"), null, false, 1, 1, 1, 0, 90, 2);
+
+        var response = service.compileBatch(new CssBatchCompileRequest(List.of(), List.of()));
+
+        assertFalse(response.ok());
+        assertEquals(List.of(), response.themes());
+    }
+}
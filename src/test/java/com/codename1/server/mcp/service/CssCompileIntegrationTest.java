@@ -1,7 +1,9 @@
 package com.codename1.server.mcp.service;
 
+import com.codename1.server.mcp.dto.CssBatchCompileRequest;
 import com.codename1.server.mcp.dto.CssCompileRequest;
 import com.codename1.server.mcp.dto.FileEntry;
+import com.codename1.server.mcp.tools.BlobStore;
 import com.codename1.server.mcp.tools.GlobalExtractor;
 import com.codename1.server.mcp.tools.Jdk8ManagerFromResource;
 import org.junit.jupiter.api.BeforeAll;
@@ -9,10 +11,12 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import com.codename1.server.mcp.util.OsUtils;
 
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Base64;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -79,6 +83,75 @@ class CssCompileIntegrationTest {
         assertTrue(res.log().toLowerCase().contains("unsupported"), () -> "Expected unsupported warning in log: \n" + res.log());
     }
 
+    @Test
+    void returnsThemeAndServesRepeatsFromCache() {
+        CssCompileService svc = new CssCompileService(extractor, jdkMgr);
+        String css = ".cached { color: #" + Long.toHexString(System.nanoTime()) + "; }";
+        var req = new CssCompileRequest(List.of(new FileEntry("theme.css", css)), "theme.css", "theme.res");
+        var first = svc.compile(req);
+        assertTrue(first.ok(), () -> "CSS compile failed: \n" + first.log());
+        assertFalse(first.cached());
+        assertNotNull(first.themeBase64());
+
+        var second = svc.compile(req);
+        assertTrue(second.ok());
+        assertTrue(second.cached());
+        assertEquals(first.themeSha256(), second.themeSha256());
+    }
+
+    @Test
+    void reusesPersistentWorkerAcrossCompiles() {
+        CssCompileService svc = new CssCompileService(extractor, jdkMgr, true, 1, 10, 120, 1, 90, 2);
+        try {
+            for (String color : List.of("ff0000", "00ff00")) {
+                String css = ".title { color: #" + color + "; }";
+                var req = new CssCompileRequest(List.of(new FileEntry("theme.css", css)), "theme.css", "theme.res");
+                var res = svc.compile(req);
+                assertTrue(res.ok(), () -> "CSS compile failed: \n" + res.log());
+            }
+        } finally {
+            svc.close();
+        }
+    }
+
+    @Test
+    void compilesBatchOfThemesSharingFiles() {
+        CssCompileService svc = new CssCompileService(extractor, jdkMgr, true, 2, 10, 120, 2, 90, 2);
+        try {
+            var shared = List.of(
+                    new FileEntry("common.css", ".title { background-image: url('res/bg.png'); }"),
+                    new FileEntry("light.css", "@import url(common.css);\n.title { color: #000000; }"),
+                    new FileEntry("dark.css", "@import url(common.css);\n.title { color: #ffffff; }"));
+            var res = svc.compileBatch(new CssBatchCompileRequest(shared, List.of(
+                    new CssCompileRequest(null, "light.css", null),
+                    new CssCompileRequest(null, "dark.css", null))));
+            assertTrue(res.ok(), () -> "Batch CSS compile failed: \n" + res);
+            assertEquals(2, res.themes().size());
+            assertNotEquals(res.themes().get(0).themeSha256(), res.themes().get(1).themeSha256());
+        } finally {
+            svc.close();
+        }
+    }
+
+    @Test
+    void compilesWithUploadedBinaryAssets() throws Exception {
+        var blobs = new BlobStore(cacheDir.resolve("blobs"));
+        byte[] png = Base64.getDecoder().decode(
+                "iVBORw0KGgoAAAANSUhEUgAAAAIAAAACCAIAAAD91JpzAAAAEklEQVR4nGP4z8DAwMDAwMDAAAAa"
+                        + "/wH/AjBq9QAAAABJRU5ErkJggg==");
+        String sha = blobs.put(new ByteArrayInputStream(png)).sha256();
+        CssCompileService svc = new CssCompileService(extractor, jdkMgr, blobs, true, 1, 10, 120, 1, 90, 1);
+        try {
+            var req = new CssCompileRequest(List.of(
+                    new FileEntry("theme.css", ".Logo { background-image: url(res/logo.png); }"),
+                    new FileEntry("res/logo.png", null, sha)), "theme.css", "theme.res");
+            var res = svc.compile(req);
+            assertTrue(res.ok(), () -> "CSS compile failed: \n" + res.log());
+        } finally {
+            svc.close();
+        }
+    }
+
     private static boolean resourceExists(String path) {
         try (InputStream in = CssCompileIntegrationTest.class.getResourceAsStream(path)) {
             return in != null;
@@ -0,0 +1,36 @@
+package com.codename1.server.mcp.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CssStubAssetsTest {
+
+    @Test
+    void linksSharedReadOnlyStubsIntoWorkspaces(@TempDir Path tmp) throws Exception {
+        var stubs = new CssStubAssets(tmp.resolve("stubs"));
+        Path first = tmp.resolve("ws1").resolve("a.png");
+        Path second = tmp.resolve("ws2").resolve("b.gif");
+        Files.createDirectories(first.getParent());
+        Files.createDirectories(second.getParent());
+
+        stubs.link("res/a.png", first, tmp.resolve("designer.jar"), "v1");
+        stubs.link("res/b.gif", second, tmp.resolve("designer.jar"), "v1");
+
+        Path shared = tmp.resolve("stubs").resolve("v1").resolve("stub.png");
+        assertTrue(Files.isRegularFile(shared));
+        if (shared.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            assertFalse(Files.getPosixFilePermissions(shared).contains(PosixFilePermission.OWNER_WRITE));
+        }
+        assertArrayEquals(Files.readAllBytes(shared), Files.readAllBytes(first));
+        assertArrayEquals(Files.readAllBytes(shared), Files.readAllBytes(second));
+        if (Files.isSymbolicLink(first)) {
+            assertEquals(shared, Files.readSymbolicLink(first));
+        }
+    }
+}
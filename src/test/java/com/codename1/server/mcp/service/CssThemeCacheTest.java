@@ -0,0 +1,41 @@
+package com.codename1.server.mcp.service;
+
+import com.codename1.server.mcp.dto.CssCompileRequest;
+import com.codename1.server.mcp.dto.FileEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CssThemeCacheTest {
+
+    @Test
+    void keyIgnoresFileOrderButTracksContentAndDesigner() {
+        var a = new FileEntry("theme.css", ".a { color: red; }");
+        var b = new FileEntry("extra.css", ".b { color: blue; }");
+        String key = CssThemeCache.key(new CssCompileRequest(List.of(a, b), "theme.css", null), "v1-abc");
+
+        assertEquals(key, CssThemeCache.key(new CssCompileRequest(List.of(b, a), "theme.css", null), "v1-abc"));
+        assertNotEquals(key, CssThemeCache.key(new CssCompileRequest(List.of(a, b), "theme.css", null), "v1-def"));
+        assertNotEquals(key, CssThemeCache.key(new CssCompileRequest(
+                List.of(new FileEntry("theme.css", ".a { color: green; }"), b), "theme.css", null), "v1-abc"));
+        assertNotEquals(key, CssThemeCache.key(new CssCompileRequest(List.of(a, b), "extra.css", null), "v1-abc"));
+        assertEquals(key, CssThemeCache.key(new CssCompileRequest(List.of(a, b), "theme.css", "theme.res"), "v1-abc"));
+    }
+
+    @Test
+    void storesAndReturnsCompiledThemes(@TempDir Path tmp) {
+        var cache = new CssThemeCache(tmp.resolve("themes"));
+        assertNull(cache.get("missing"));
+
+        cache.put("k1", new byte[] {1, 2, 3}, "compiled");
+
+        var entry = cache.get("k1");
+        assertNotNull(entry);
+        assertArrayEquals(new byte[] {1, 2, 3}, entry.theme());
+        assertEquals("compiled", entry.log());
+    }
+}
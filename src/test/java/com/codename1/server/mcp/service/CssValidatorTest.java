@@ -0,0 +1,113 @@
+package com.codename1.server.mcp.service;
+
+import com.codename1.server.mcp.dto.CssCompileRequest;
+import com.codename1.server.mcp.dto.CssDiagnostic;
+import com.codename1.server.mcp.dto.FileEntry;
+import com.codename1.server.mcp.tools.GlobalExtractor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CssValidatorTest {
+
+    @Test
+    void acceptsTypicalCodenameOneStylesheet() {
+        String css = """
+                /* Theme */
+                #Constants {
+                    includeNativeBool: true;
+                    primaryColor: #3f51b5;
+                }
+                #Device { min-resolution: 120dpi; }
+                @font-face { font-family: "Roboto"; src: url(res/Roboto.ttf); }
+                Button, Button.pressed, .Primary:selected {
+                    color: rgba(255, 255, 255, 0.5);
+                    background-image: url("images/bg.png");
+                    --accent: red;
+                    cn1-derive: Label;
+                }
+                @media platform-ios, density-high {
+                    Title { font-size: 4mm; }
+                }
+                """;
+
+        List<CssDiagnostic> diagnostics = CssValidator.validate("theme.css", css);
+
+        assertEquals(List.of(), diagnostics);
+    }
+
+    @Test
+    void reportsSyntaxErrorsWithPositions() {
+        List<CssDiagnostic> diagnostics = CssValidator.validate("theme.css", """
+                Button {
+                  color red;
+                  padding: ;
+                }
+                Label { color: rgb(1, 2, 3; }
+                """);
+
+        assertTrue(CssValidator.hasErrors(diagnostics));
+        assertEquals(new CssDiagnostic("theme.css", 2, 3, "error", "CN1_CSS_SYNTAX",
+                "Expected ':' in declaration 'color red'"), diagnostics.get(0));
+        assertEquals(3, diagnostics.get(1).line());
+        assertTrue(diagnostics.get(1).message().contains("Missing value"));
+        assertEquals(5, diagnostics.get(2).line());
+        assertEquals(19, diagnostics.get(2).col());
+        assertEquals("Unclosed '('", diagnostics.get(2).message());
+        assertTrue(CssValidator.format(diagnostics).startsWith("theme.css:2:3: error: "));
+    }
+
+    @Test
+    void reportsUnterminatedCommentsStringsAndBlocks() {
+        assertTrue(CssValidator.hasErrors(CssValidator.validate("a.css", "Button { color: red; } /* open")));
+        assertTrue(CssValidator.hasErrors(CssValidator.validate("a.css", "Button { font-family: \"Roboto; }")));
+        assertTrue(CssValidator.hasErrors(CssValidator.validate("a.css", "Button { color: red;")));
+        assertTrue(CssValidator.hasErrors(CssValidator.validate("a.css", "Button { color: red; } }")));
+        assertTrue(CssValidator.hasErrors(CssValidator.validate("a.css", "Button { Label { color: red; } }")));
+    }
+
+    @Test
+    void rejectsSelectorsThatAreNotUiids() {
+        for (String selector : List.of("Form Button", "Button > Label", "input[type=text]",
+                "#main", "Button:hover")) {
+            List<CssDiagnostic> diagnostics =
+                    CssValidator.validate("a.css", selector + " { color: red; }");
+            assertTrue(CssValidator.hasErrors(diagnostics), selector);
+            assertEquals("CN1_CSS_SELECTOR", diagnostics.get(0).ruleId(), selector);
+        }
+    }
+
+    @Test
+    void unknownPropertiesAreWarningsWithSuggestions() {
+        List<CssDiagnostic> diagnostics =
+                CssValidator.validate("a.css", "Button { display: grid; colr: red; }");
+
+        assertFalse(CssValidator.hasErrors(diagnostics));
+        assertEquals(2, diagnostics.size());
+        assertEquals("warning", diagnostics.get(0).severity());
+        assertEquals("CN1_CSS_UNKNOWN_PROPERTY", diagnostics.get(0).ruleId());
+        assertTrue(diagnostics.get(1).message().endsWith("did you mean 'color'?"));
+    }
+
+    @Test
+    void compileStopsBeforeTheCompilerOnValidationErrors(@TempDir Path tmp) {
+        var extractor = new GlobalExtractor(tmp.toString(), "validator") {
+            @Override
+            public Path ensureFile(String resourcePath) {
+                throw new AssertionError("compiler resources must not be touched");
+            }
+        };
+        var service = new CssCompileService(extractor, null, false, 1, 1, 1, 0, 90, 1);
+        var response = service.compile(new CssCompileRequest(
+                List.of(new FileEntry("theme.css", "Button { color red; }")), "theme.css", null));
+
+        assertFalse(response.ok());
+        assertTrue(response.log().contains("theme.css:1:10: error:"));
+        assertEquals(1, response.diagnostics().size());
+        assertNull(response.themeBase64());
+    }
+}
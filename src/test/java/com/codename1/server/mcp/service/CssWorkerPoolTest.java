@@ -0,0 +1,195 @@
+package com.codename1.server.mcp.service;
+
+import com.codename1.server.mcp.tools.GlobalExtractor;
+import com.codename1.server.mcp.tools.Jdk8ManagerFromResource;
+import com.codename1.server.mcp.tools.ToolchainRegistry;
+import com.codename1.server.mcp.util.OsUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+import javax.tools.ToolProvider;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.*;
+
+class CssWorkerPoolTest {
+
+    // Stands in for the designer: reads and writes paths relative to the working directory.
+    private static final String FAKE_CLI = """
+            package com.codename1.designer.css;
+
+            import java.io.*;
+            import java.lang.management.ManagementFactory;
+            import java.nio.file.*;
+
+            public class CN1CSSCLI {
+                public static void main(String[] args) throws IOException {
+                    System.out.println("jvm " + ManagementFactory.getRuntimeMXBean().getName());
+                    byte[] css = Files.readAllBytes(Paths.get("theme.css"));
+                    if (new String(css, "UTF-8").contains("invalid")) {
+                        System.exit(3);
+                    }
+                    if (new String(css, "UTF-8").contains("hang")) {
+                        try {
+                            Thread.sleep(60_000);
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                    Files.write(Paths.get("target", "cache.txt"), css);
+                    try (FileOutputStream stray = new FileOutputStream("stray.txt")) {
+                        stray.write(css);
+                    }
+                    Files.write(Paths.get(args[3]), css);
+                }
+            }
+            """;
+
+    @TempDir
+    Path tmp;
+    GlobalExtractor extractor;
+    Jdk8ManagerFromResource jdk8;
+    Path designerJar;
+    CssWorkerPool pool;
+    XvfbDisplayPool displays;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        List<String> locations = new ArrayList<>();
+        locations.add(System.getenv("JAVA8_HOME"));
+        Path sdkman = Path.of(System.getProperty("user.home"), ".sdkman", "candidates", "java");
+        if (Files.isDirectory(sdkman)) {
+            try (Stream<Path> homes = Files.list(sdkman)) {
+                homes.filter(h -> h.getFileName().toString().startsWith("8."))
+                        .forEach(h -> locations.add(h.toString()));
+            }
+        }
+        ToolchainRegistry toolchains = ToolchainRegistry.jdk8(tmp.resolve("registry"), locations);
+        assumeTrue(toolchains.find() != null, "an installed JDK 8 is required to run CSS workers");
+
+        extractor = new GlobalExtractor(tmp.resolve("cache").toString(), "worker-test");
+        jdk8 = new Jdk8ManagerFromResource(extractor, "", "", "", "", "", "release", "full", false, toolchains);
+        designerJar = fakeDesignerJar();
+        if (OsUtils.isLinux()) {
+            displays = fakeDisplays();
+        }
+        pool = new CssWorkerPool(extractor, jdk8, displays, 1, 10, 60_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.close();
+        }
+        if (displays != null) {
+            displays.close();
+        }
+    }
+
+    @Test
+    void resolvesRelativePathsInsideTheJobWorkspace() throws Exception {
+        Path first = workspace("first", ".a { color: red; }");
+        Path second = workspace("second", ".b { color: blue; }");
+
+        var run = pool.compile(designerJar, first, first.resolve("theme.css"), first.resolve("theme.res"));
+        assertEquals(0, run.exitCode(), run.log());
+        run = pool.compile(designerJar, second, second.resolve("theme.css"), second.resolve("theme.res"));
+        assertEquals(0, run.exitCode(), run.log());
+
+        for (var entry : Map.of(first, ".a { color: red; }", second, ".b { color: blue; }").entrySet()) {
+            Path workDir = entry.getKey();
+            assertEquals(entry.getValue(), Files.readString(workDir.resolve("theme.res")));
+            assertEquals(entry.getValue(), Files.readString(workDir.resolve("target/cache.txt")));
+            assertEquals(entry.getValue(), Files.readString(workDir.resolve("stray.txt")));
+        }
+        List<String> workerFiles;
+        try (Stream<Path> files = Files.walk(tmp.resolve("cache").resolve("css-worker"))) {
+            workerFiles = files.filter(Files::isRegularFile)
+                    .map(p -> p.getFileName().toString())
+                    .filter(name -> !name.endsWith(".class") && !name.startsWith("worker.log"))
+                    .toList();
+        }
+        assertEquals(List.of(), workerFiles);
+    }
+
+    @Test
+    void keepsTheWorkerAfterAStylesheetFailsToCompile() throws Exception {
+        Path broken = workspace("broken", ".invalid { color: red; }");
+        Path fixed = workspace("fixed", ".a { color: red; }");
+
+        var failed = pool.compile(designerJar, broken, broken.resolve("theme.css"), broken.resolve("theme.res"));
+        var run = pool.compile(designerJar, fixed, fixed.resolve("theme.css"), fixed.resolve("theme.res"));
+
+        assertEquals(3, failed.exitCode());
+        assertEquals(0, run.exitCode(), run.log());
+        assertEquals(failed.log().lines().findFirst(), run.log().lines().findFirst(), "same worker JVM");
+    }
+
+    @Test
+    void reportsTimeoutsRatherThanUnavailableWorkers() throws Exception {
+        pool.close();
+        pool = new CssWorkerPool(extractor, jdk8, displays, 1, 10, 1_000);
+        Path workDir = workspace("hang", ".hang { color: red; }");
+
+        IOException ex = assertThrows(IOException.class,
+                () -> pool.compile(designerJar, workDir, workDir.resolve("theme.css"), workDir.resolve("theme.res")));
+
+        assertFalse(ex instanceof CssWorkerPool.UnavailableException);
+        assertTrue(ex.getMessage().contains("timed out"), ex.getMessage());
+    }
+
+    @Test
+    void reportsWorkersThatCannotStartAsUnavailable() throws Exception {
+        Path emptyJar = tmp.resolve("empty.jar");
+        new JarOutputStream(Files.newOutputStream(emptyJar)).close();
+        Path workDir = workspace("first", ".a { color: red; }");
+
+        assertThrows(CssWorkerPool.UnavailableException.class,
+                () -> pool.compile(emptyJar, workDir, workDir.resolve("theme.css"), workDir.resolve("theme.res")));
+    }
+
+    private Path workspace(String name, String css) throws IOException {
+        Path workDir = Files.createDirectories(tmp.resolve(name));
+        Files.createDirectories(workDir.resolve("target"));
+        Files.writeString(workDir.resolve("theme.css"), css);
+        return workDir;
+    }
+
+    private Path fakeDesignerJar() throws IOException {
+        Path src = Files.createDirectories(tmp.resolve("designer-src/com/codename1/designer/css"));
+        Files.writeString(src.resolve("CN1CSSCLI.java"), FAKE_CLI);
+        Path classes = Files.createDirectories(tmp.resolve("designer-classes"));
+        int status = ToolProvider.getSystemJavaCompiler().run(null, null, null,
+                "--release", "8", "-d", classes.toString(), src.resolve("CN1CSSCLI.java").toString());
+        assertEquals(0, status);
+        Path jar = tmp.resolve("designer.jar");
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+            String entry = "com/codename1/designer/css/CN1CSSCLI.class";
+            out.putNextEntry(new JarEntry(entry));
+            Files.copy(classes.resolve(entry), out);
+            out.closeEntry();
+        }
+        return jar;
+    }
+
+    private XvfbDisplayPool fakeDisplays() throws IOException {
+        Path sockets = Files.createDirectories(tmp.resolve(".X11-unix"));
+        Path xvfb = Files.writeString(tmp.resolve("Xvfb"), "#!/bin/sh\n"
+                + "touch '" + sockets + "'/X${1#:}\n"
+                + "exec sleep 600\n");
+        Files.setPosixFilePermissions(xvfb, PosixFilePermissions.fromString("rwx------"));
+        return new XvfbDisplayPool(xvfb, sockets, 1, 120, 1_000);
+    }
+}
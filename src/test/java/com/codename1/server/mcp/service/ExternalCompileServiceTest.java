@@ -2,6 +2,7 @@ package com.codename1.server.mcp.service;
 
 import com.codename1.server.mcp.dto.CompileRequest;
 import com.codename1.server.mcp.dto.FileEntry;
+import com.codename1.server.mcp.tools.ClassDataSharing;
 import com.codename1.server.mcp.tools.GlobalExtractor;
 import com.codename1.server.mcp.tools.Jdk8ManagerFromResource;
 import org.junit.jupiter.api.Test;
@@ -67,6 +68,8 @@ class ExternalCompileServiceTest {
         // JDK manager mocked to return our binary
         var jdkMgr = Mockito.mock(Jdk8ManagerFromResource.class);
         when(jdkMgr.ensureJavac8()).thenReturn(javac);
+        when(jdkMgr.classDataSharing(ClassDataSharing.Kind.JAVAC))
+                .thenReturn(ClassDataSharing.Launch.none());
 
         var svc = new ExternalCompileService(extractor, jdkMgr);
 
@@ -4,9 +4,12 @@ import com.codename1.server.mcp.tools.GlobalExtractor;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.nio.file.*;
 import java.util.List;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -22,9 +25,12 @@ class GlobalExtractorTest {
             this.payload = payload;
         }
 
+        final AtomicInteger opens = new AtomicInteger();
+
         @Override
-        protected byte[] readResource(String path) {
-            return payload;
+        protected InputStream openResource(String path) {
+            opens.incrementAndGet();
+            return new ByteArrayInputStream(payload);
         }
     }
 
@@ -44,4 +50,17 @@ class GlobalExtractorTest {
         // file exists and has exact payload
         assertArrayEquals(Files.readAllBytes(first), data);
     }
+
+    @Test
+    void cacheHitsDoNotReadTheResourceAgain(@TempDir Path tmp) throws Exception {
+        var ex = new TestableExtractor(tmp, "vZ", "CN1JAR".getBytes());
+        Path first = ex.ensureFile("/cn1libs/CodenameOne.jar");
+        int opens = ex.opens.get();
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(first, ex.ensureFile("/cn1libs/CodenameOne.jar"));
+        }
+
+        assertEquals(opens, ex.opens.get());
+    }
 }
\ No newline at end of file
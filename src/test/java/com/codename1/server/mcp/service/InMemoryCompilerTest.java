@@ -0,0 +1,90 @@
+package com.codename1.server.mcp.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.tools.ToolProvider;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryCompilerTest {
+
+    private final InMemoryCompiler compiler = new InMemoryCompiler(ToolProvider.getSystemJavaCompiler());
+
+    @AfterEach
+    void close() throws Exception {
+        compiler.close();
+    }
+
+    @Test
+    void compilesAndLoadsClassesWithoutTouchingDisk() throws Exception {
+        Map<String, String> sources = Map.of(
+                "demo/Greeter.java", """
+                        package demo;
+
+                        public class Greeter {
+                            public String greet() { return Names.NAME + "!"; }
+                            static class Inner {}
+                        }
+                        """,
+                "demo/Names.java", """
+                        package demo;
+
+                        class Names {
+                            static final String NAME = "cn1";
+                        }
+                        """);
+
+        Map<String, byte[]> classes = compiler.compile(sources, List.of(), Map.of(), List.of());
+
+        assertEquals(Set.of("demo.Greeter", "demo.Greeter$Inner", "demo.Names"), classes.keySet());
+        var loader = new InMemoryCompiler.BytesClassLoader(classes, getClass().getClassLoader());
+        Class<?> greeter = loader.loadClass("demo.Greeter");
+        Object instance = greeter.getDeclaredConstructor().newInstance();
+        assertEquals("cn1!", greeter.getMethod("greet").invoke(instance));
+        assertThrows(ClassNotFoundException.class, () -> loader.loadClass("demo.Missing"));
+    }
+
+    @Test
+    void compilesAgainstLibraryClassesHeldInMemory() throws Exception {
+        Map<String, byte[]> library = compiler.compile(
+                Map.of("lib/Base.java", "package lib; public interface Base { int value(); }"),
+                List.of(), Map.of(), List.of());
+
+        Map<String, byte[]> classes = compiler.compile(
+                Map.of("app/Impl.java", "package app; public class Impl implements lib.Base {"
+                        + " public int value() { return 42; } }"),
+                List.of(), library, List.of());
+
+        assertEquals(Set.of("app.Impl"), classes.keySet());
+        Map<String, byte[]> all = new HashMap<>(library);
+        all.putAll(classes);
+        var loader = new InMemoryCompiler.BytesClassLoader(all, getClass().getClassLoader());
+        Object impl = loader.loadClass("app.Impl").getDeclaredConstructor().newInstance();
+        assertEquals(42, loader.loadClass("lib.Base").getMethod("value").invoke(impl));
+    }
+
+    @Test
+    void doesNotSeeTheServerClassPath() {
+        Map<String, String> sources = Map.of(
+                "demo/UsesJunit.java", "package demo; class UsesJunit { org.junit.jupiter.api.Test t; }");
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> compiler.compile(sources, List.of(), Map.of(), List.of()));
+        assertTrue(ex.getMessage().contains("org.junit.jupiter.api"));
+    }
+
+    @Test
+    void reportsDiagnosticsOfFailedCompilation() {
+        Map<String, String> sources = Map.of("demo/Broken.java", "package demo; class Broken { int x = ; }");
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> compiler.compile(sources, List.of(), Map.of(), List.of()));
+        assertTrue(ex.getMessage().startsWith("Compilation failed:"));
+        assertTrue(ex.getMessage().contains("demo/Broken.java"));
+    }
+}
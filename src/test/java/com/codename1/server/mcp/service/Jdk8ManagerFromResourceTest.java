@@ -18,7 +18,7 @@ class Jdk8ManagerFromResourceTest {
     static class InMemExtractor extends GlobalExtractor {
         private final byte[] archive;
         InMemExtractor(Path cache, String version, byte[] archive) { super(cache.toString(), version); this.archive = archive; }
-        @Override protected byte[] readResource(String path) { return archive; }
+        @Override protected InputStream openResource(String path) { return new ByteArrayInputStream(archive); }
     }
 
     private static byte[] makeMiniJdkTarGz() throws IOException {
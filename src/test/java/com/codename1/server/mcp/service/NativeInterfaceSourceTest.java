@@ -0,0 +1,115 @@
+package com.codename1.server.mcp.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.tools.ToolProvider;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NativeInterfaceSourceTest {
+
+    private static final String STUBS_NATIVE_INTERFACE = """
+            package com.codename1.system;
+            public interface NativeInterface { boolean isSupported(); }
+            """;
+    private static final String STUBS_PEER_COMPONENT = """
+            package com.codename1.ui;
+            public class PeerComponent {}
+            """;
+
+    @Test
+    void generatesTheSameStubsAsTheCompiledInterface() throws Exception {
+        String src = """
+                package com.mycompany.myapp;
+
+                import com.codename1.system.NativeInterface;
+                import com.codename1.ui.*;
+
+                public interface Device extends NativeInterface {
+                    int VERSION = 2;
+                    String helloWorld(String hi);
+                    long add(int a, long b, char c, short d);
+                    void nothing();
+                    byte[] data(double[] samples, float... weights);
+                    boolean ready(boolean now);
+                    PeerComponent view(java.lang.String title);
+                }
+                """;
+        Map<String, String> sources = Map.of("com/mycompany/myapp/Device.java", src);
+
+        NativeStubGenerator fromSource = NativeInterfaceSource.read(sources, "com.mycompany.myapp.Device")
+                .orElseThrow();
+
+        assertNull(fromSource.verify());
+        assertEquals(compiled(sources, "com.mycompany.myapp.Device").generate(), fromSource.generate());
+    }
+
+    @Test
+    void reportsTheSameProblemsAsTheCompiledInterface() throws Exception {
+        String src = """
+                package demo;
+
+                public interface Throwing extends com.codename1.system.NativeInterface {
+                    void read() throws java.io.IOException;
+                }
+                """;
+        Map<String, String> sources = Map.of("demo/Throwing.java", src);
+
+        NativeStubGenerator fromSource = NativeInterfaceSource.read(sources, "demo.Throwing").orElseThrow();
+
+        assertNotNull(fromSource.verify());
+        assertEquals(compiled(sources, "demo.Throwing").verify(), fromSource.verify());
+    }
+
+    @Test
+    void leavesInterfacesThatNeedOtherTypesToTheCompiler() {
+        assertTrue(NativeInterfaceSource.read(Map.of("demo/Sub.java", """
+                package demo;
+                public interface Sub extends Base { void ping(); }
+                """), "demo.Sub").isEmpty());
+        assertTrue(NativeInterfaceSource.read(Map.of("demo/Dated.java", """
+                package demo;
+                public interface Dated extends com.codename1.system.NativeInterface { java.util.Date when(); }
+                """), "demo.Dated").isEmpty());
+        assertTrue(NativeInterfaceSource.read(Map.of("demo/Defaults.java", """
+                package demo;
+                public interface Defaults extends com.codename1.system.NativeInterface {
+                    default int answer() { return 42; }
+                }
+                """), "demo.Defaults").isEmpty());
+        assertTrue(NativeInterfaceSource.read(Map.of("demo/Broken.java", "package demo; public interface {"),
+                "demo.Broken").isEmpty());
+    }
+
+    @Test
+    void leavesShadowedTypesToTheCompiler() {
+        String src = """
+                package demo;
+                public interface Shadowed extends com.codename1.system.NativeInterface { String name(); }
+                """;
+
+        assertTrue(NativeInterfaceSource.read(Map.of("demo/Shadowed.java", src), "demo.Shadowed").isPresent());
+        assertTrue(NativeInterfaceSource.read(Map.of(
+                "demo/Shadowed.java", src,
+                "demo/String.java", "package demo; public class String {}"), "demo.Shadowed").isEmpty());
+        assertTrue(NativeInterfaceSource.read(Map.of("demo/Imported.java", """
+                package demo;
+                import other.PeerComponent;
+                public interface Imported extends com.codename1.system.NativeInterface { PeerComponent p(); }
+                """), "demo.Imported").isEmpty());
+    }
+
+    private static NativeStubGenerator compiled(Map<String, String> sources, String interfaceName) throws Exception {
+        Map<String, String> all = new HashMap<>(sources);
+        all.put("com/codename1/system/NativeInterface.java", STUBS_NATIVE_INTERFACE);
+        all.put("com/codename1/ui/PeerComponent.java", STUBS_PEER_COMPONENT);
+        try (InMemoryCompiler compiler = new InMemoryCompiler(ToolProvider.getSystemJavaCompiler())) {
+            Map<String, byte[]> classes = compiler.compile(all, List.of(), Map.of(), List.of());
+            var loader = new InMemoryCompiler.BytesClassLoader(classes, NativeInterfaceSourceTest.class.getClassLoader());
+            return new NativeStubGenerator(Class.forName(interfaceName, true, loader));
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.codename1.server.mcp.service;
+
+import com.codename1.server.mcp.dto.FileEntry;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NativeStubCacheTest {
+
+    private static final String DEVICE = "package demo; public interface Device extends Base { Helper.Kind kind(); }";
+    private static final String BASE = "package demo; public interface Base extends com.codename1.system.NativeInterface {}";
+    private static final String HELPER = "package demo; class Helper { enum Kind { A } }";
+    private static final Set<NativeStubGenerator.Platform> ALL = EnumSet.allOf(NativeStubGenerator.Platform.class);
+    private static final String UNRELATED = "package demo; class Unrelated {}";
+
+    @Test
+    void keyCoversTransitiveDependenciesOnly() {
+        String key = NativeStubCache.key(sources(BASE, HELPER, UNRELATED), "demo.Device", ALL);
+
+        assertEquals(key, NativeStubCache.key(sources(BASE, HELPER, "package demo; class Unrelated { int x; }"),
+                "demo.Device", ALL));
+        assertNotEquals(key, NativeStubCache.key(sources(BASE + " ", HELPER, UNRELATED), "demo.Device", ALL));
+        assertNotEquals(key, NativeStubCache.key(sources(BASE, HELPER + " ", UNRELATED), "demo.Device", ALL));
+        assertNotEquals(key, NativeStubCache.key(sources(BASE, HELPER, UNRELATED), "demo.Base", ALL));
+        assertNotEquals(key, NativeStubCache.key(sources(BASE, HELPER, UNRELATED), "demo.Device",
+                EnumSet.of(NativeStubGenerator.Platform.IOS)));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedInterfaces() {
+        var cache = new NativeStubCache(2);
+        var files = List.of(new FileEntry("ios/a.h", "@end"));
+
+        cache.put("a", files);
+        cache.put("b", files);
+        assertNotNull(cache.get("a"));
+        cache.put("c", files);
+
+        assertEquals(files, cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+    }
+
+    private static Map<String, String> sources(String base, String helper, String unrelated) {
+        return Map.of(
+                "demo/Device.java", DEVICE,
+                "demo/Base.java", base,
+                "demo/Helper.java", helper,
+                "demo/Unrelated.java", unrelated);
+    }
+}
@@ -1,10 +1,13 @@
 package com.codename1.server.mcp.service;
 
 import com.codename1.server.mcp.dto.FileEntry;
+import com.codename1.server.mcp.dto.NativeStubBatchRequest;
 import com.codename1.server.mcp.dto.NativeStubRequest;
+import com.codename1.server.mcp.dto.NativeStubResult;
 import org.junit.jupiter.api.Test;
 
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -48,6 +51,28 @@ class NativeStubServiceTest {
         assertTrue(iosStub.content().contains("return NO;"));
     }
 
+    @Test
+    void generatesOnlyTheSelectedPlatforms() {
+        String src = """
+                package com.mycompany.myapp;
+
+                public interface Picker extends com.codename1.system.NativeInterface {
+                    String pick(int index);
+                }
+                """;
+        var files = List.of(new FileEntry("com/mycompany/myapp/Picker.java", src));
+
+        var response = service.generate(new NativeStubRequest(files, "com.mycompany.myapp.Picker",
+                List.of("ios", "Android")));
+
+        assertEquals(List.of("android/com/mycompany/myapp/PickerImpl.java",
+                        "ios/com_mycompany_myapp_PickerImpl.h", "ios/com_mycompany_myapp_PickerImpl.m"),
+                response.files().stream().map(FileEntry::path).toList());
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> service.generate(
+                new NativeStubRequest(files, "com.mycompany.myapp.Picker", List.of("symbian"))));
+        assertTrue(ex.getMessage().contains("Unknown platform symbian"));
+    }
+
     @Test
     void rejectsInvalidTypes() {
         String src = """
@@ -67,6 +92,139 @@ class NativeStubServiceTest {
         assertTrue(ex.getMessage().contains("Unsupported return type"));
     }
 
+    @Test
+    void usesCodenameOneJarOnlyForTypesBeyondTheBundledStubs() {
+        assertFalse(NativeStubService.needsCodenameOne(Map.of("a/A.java", """
+                package a;
+                import com.codename1.system.NativeInterface;
+                public interface A extends NativeInterface { com.codename1.ui.PeerComponent p(); }
+                """)));
+        assertTrue(NativeStubService.needsCodenameOne(Map.of("a/A.java", """
+                package a;
+                import com.codename1.ui.*;
+                public interface A extends com.codename1.system.NativeInterface {}
+                """)));
+        assertFalse(NativeStubService.needsCodenameOne(Map.of(
+                "com/codename1/system/NativeInterface.java", "package com.codename1.system;")));
+    }
+
+    @Test
+    void reusesCompilerAcrossRequests() {
+        String base = """
+                package com.mycompany.myapp;
+
+                public interface Base extends com.codename1.system.NativeInterface {
+                    void ping();
+                }
+                """;
+        for (String name : List.of("First", "Second")) {
+            // Inheriting from another user interface takes the compiler to resolve.
+            String src = """
+                    package com.mycompany.myapp;
+
+                    public interface %s extends Base {
+                        int pong();
+                    }
+                    """.formatted(name);
+            var request = new NativeStubRequest(
+                    List.of(new FileEntry("com/mycompany/myapp/Base.java", base),
+                            new FileEntry("com/mycompany/myapp/" + name + ".java", src)),
+                    "com.mycompany.myapp." + name);
+
+            var android = service.generate(request).files().stream()
+                    .filter(f -> f.path().equals("android/com/mycompany/myapp/" + name + "Impl.java"))
+                    .findFirst()
+                    .orElseThrow();
+            assertTrue(android.content().contains("public void ping()"));
+            assertTrue(android.content().contains("public int pong()"));
+        }
+    }
+
+    @Test
+    void generatesBatchWithOneCompilationAndPerInterfaceResults() {
+        String base = """
+                package com.mycompany.myapp;
+
+                public interface Base extends com.codename1.system.NativeInterface {
+                    void ping();
+                }
+                """;
+        String derived = """
+                package com.mycompany.myapp;
+
+                public interface Derived extends Base {
+                    String name();
+                }
+                """;
+        String plain = """
+                package com.mycompany.myapp;
+
+                public interface Plain extends com.codename1.system.NativeInterface {
+                    int count();
+                }
+                """;
+        String broken = """
+                package com.mycompany.myapp;
+
+                public interface Broken extends com.codename1.system.NativeInterface {
+                    java.util.Date when();
+                }
+                """;
+        var files = List.of(
+                new FileEntry("com/mycompany/myapp/Base.java", base),
+                new FileEntry("com/mycompany/myapp/Derived.java", derived),
+                new FileEntry("com/mycompany/myapp/Plain.java", plain),
+                new FileEntry("com/mycompany/myapp/Broken.java", broken));
+        var names = List.of("com.mycompany.myapp.Derived", "com.mycompany.myapp.Plain",
+                "com.mycompany.myapp.Broken", "com.mycompany.myapp.Missing");
+
+        var response = service.generateBatch(new NativeStubBatchRequest(files, names));
+
+        assertFalse(response.ok());
+        assertEquals(names, response.interfaces().stream().map(NativeStubResult::interfaceName).toList());
+        assertTrue(response.interfaces().get(0).ok());
+        assertEquals(8, response.interfaces().get(0).files().size());
+        assertTrue(response.interfaces().get(1).ok());
+        assertFalse(response.interfaces().get(2).ok());
+        assertTrue(response.interfaces().get(2).error().contains("Unsupported return type"));
+        assertFalse(response.interfaces().get(3).ok());
+        assertTrue(response.interfaces().get(3).error().contains("Interface not found"));
+        assertTrue(response.interfaces().stream().noneMatch(NativeStubResult::cached));
+    }
+
+    @Test
+    void servesUnchangedInterfacesFromCache() {
+        String plain = """
+                package com.mycompany.myapp;
+
+                public interface Plain extends com.codename1.system.NativeInterface {
+                    int count();
+                }
+                """;
+        String other = """
+                package com.mycompany.myapp;
+
+                public interface Other extends com.codename1.system.NativeInterface {
+                    void run();
+                }
+                """;
+        var names = List.of("com.mycompany.myapp.Plain", "com.mycompany.myapp.Other");
+        var first = service.generateBatch(new NativeStubBatchRequest(List.of(
+                new FileEntry("com/mycompany/myapp/Plain.java", plain),
+                new FileEntry("com/mycompany/myapp/Other.java", other)), names));
+
+        var second = service.generateBatch(new NativeStubBatchRequest(List.of(
+                new FileEntry("com/mycompany/myapp/Plain.java", plain),
+                new FileEntry("com/mycompany/myapp/Other.java", other.replace("run", "stop"))), names));
+
+        assertTrue(first.ok());
+        assertTrue(second.ok());
+        assertTrue(second.interfaces().get(0).cached());
+        assertEquals(first.interfaces().get(0).files(), second.interfaces().get(0).files());
+        assertFalse(second.interfaces().get(1).cached());
+        assertTrue(second.interfaces().get(1).files().stream().anyMatch(f -> f.content().contains("stop")));
+    }
+
     @Test
     void rejectsPathsOutsideWorkspace() {
         String src = """
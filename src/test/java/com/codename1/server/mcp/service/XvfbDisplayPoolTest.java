@@ -0,0 +1,114 @@
+package com.codename1.server.mcp.service;
+
+import com.codename1.server.mcp.util.OsUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.*;
+
+class XvfbDisplayPoolTest {
+
+    @TempDir
+    Path tmp;
+    Path sockets;
+    Path xvfb;
+
+    @BeforeEach
+    void fakeXvfb() throws IOException {
+        assumeFalse(OsUtils.isWindows(), "the stand-in Xvfb is a shell script");
+        sockets = Files.createDirectories(tmp.resolve(".X11-unix"));
+        // Creates the socket of the requested display the way Xvfb does, then stays up.
+        xvfb = Files.writeString(tmp.resolve("Xvfb"), "#!/bin/sh\n"
+                + "touch '" + sockets + "'/X${1#:}\n"
+                + "exec sleep 600\n");
+        Files.setPosixFilePermissions(xvfb, PosixFilePermissions.fromString("rwx------"));
+    }
+
+    @Test
+    void leasesEachDisplayExclusively() throws Exception {
+        try (var pool = new XvfbDisplayPool(xvfb, sockets, 2, 120, 100)) {
+            var first = pool.lease();
+            var second = pool.lease();
+
+            assertEquals(":120", first.display());
+            assertEquals(":121", second.display());
+            assertTrue(Files.exists(sockets.resolve("X121")));
+
+            second.close();
+            try (var again = pool.lease()) {
+                assertEquals(":121", again.display());
+            }
+            first.close();
+        }
+    }
+
+    @Test
+    void skipsDisplaysLockedByOtherServers() throws Exception {
+        Files.createFile(tmp.resolve(".X120-lock"));
+
+        try (var pool = new XvfbDisplayPool(xvfb, sockets, 1, 120, 100); var lease = pool.lease()) {
+            assertEquals(":121", lease.display());
+        }
+    }
+
+    @Test
+    void givesUpWaitingWhenEveryDisplayStaysBusy() throws Exception {
+        try (var pool = new XvfbDisplayPool(xvfb, sockets, 1, 120, 100); var held = pool.lease()) {
+            assertNotNull(held);
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> assertNull(pool.lease()));
+        }
+    }
+
+    @Test
+    void fallsBackToXvfbRunWhenEveryDisplayStaysBusy() throws Exception {
+        try (var pool = new XvfbDisplayPool(xvfb, sockets, 1, 120, 100); var held = pool.lease()) {
+            List<String> command = new ArrayList<>();
+            Map<String, String> environment = new HashMap<>();
+
+            if (OsUtils.isLinux() && OsUtils.locateOnPath("xvfb-run") == null) {
+                var ex = assertThrows(IOException.class,
+                        () -> XvfbDisplayPool.headless(pool, command, environment));
+                assertTrue(ex.getMessage().contains("xvfb-run"));
+            } else {
+                try (var lease = XvfbDisplayPool.headless(pool, command, environment)) {
+                    assertNull(lease.display());
+                }
+                assertFalse(environment.containsKey("DISPLAY"));
+            }
+        }
+    }
+
+    @Test
+    void restartsDisplaysThatAreNoLongerHealthy() throws Exception {
+        try (var pool = new XvfbDisplayPool(xvfb, sockets, 1, 120, 100)) {
+            pool.lease().close();
+            Files.delete(sockets.resolve("X120"));
+
+            try (var lease = pool.lease()) {
+                assertEquals(":120", lease.display());
+                assertTrue(Files.exists(sockets.resolve("X120")));
+            }
+        }
+    }
+
+    @Test
+    void refusesLeasesOnceClosed() throws Exception {
+        var pool = new XvfbDisplayPool(xvfb, sockets, 1, 120, 100);
+        pool.lease().close();
+        pool.close();
+
+        assertThrows(IOException.class, pool::lease);
+    }
+}
@@ -0,0 +1,47 @@
+package com.codename1.server.mcp.tools;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlobStoreTest {
+
+    @Test
+    void storesContentOnceUnderItsHash(@TempDir Path tmp) throws Exception {
+        var store = new BlobStore(tmp.resolve("blobs"));
+        byte[] data = new byte[200_000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 31);
+        }
+
+        var first = store.putBase64(Base64.getMimeEncoder().encodeToString(data));
+        var second = store.put(new ByteArrayInputStream(data));
+
+        assertFalse(first.existed());
+        assertTrue(second.existed());
+        assertEquals(first.sha256(), second.sha256());
+        assertEquals(data.length, first.size());
+        assertTrue(store.contains(first.sha256()));
+        assertArrayEquals(data, Files.readAllBytes(store.require(first.sha256())));
+        try (var files = Files.walk(tmp.resolve("blobs"))) {
+            assertEquals(1, files.filter(Files::isRegularFile).count());
+        }
+    }
+
+    @Test
+    void rejectsUnknownAndMalformedHashes(@TempDir Path tmp) {
+        var store = new BlobStore(tmp);
+
+        assertFalse(store.contains("../etc/passwd"));
+        assertThrows(IOException.class, () -> store.require("../etc/passwd"));
+        assertThrows(IOException.class, () -> store.require("a".repeat(64)));
+        assertThrows(IOException.class, () -> store.putBase64("not*base64"));
+    }
+}
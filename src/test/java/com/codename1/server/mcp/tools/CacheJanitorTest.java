@@ -0,0 +1,189 @@
+package com.codename1.server.mcp.tools;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheJanitorTest {
+
+    @Test
+    void evictsLeastRecentlyUsedEntriesUntilWithinBudget(@TempDir Path cache) throws Exception {
+        entry(cache, "libs/v1-old", 1000, Duration.ofHours(3));
+        entry(cache, "jdks/v1-older", 1000, Duration.ofHours(5));
+        entry(cache, "jdks/v1-newer", 1000, Duration.ofHours(2));
+
+        var report = new CacheJanitor(cache, 1500, Duration.ofMinutes(30)).sweep();
+
+        assertEquals(List.of("jdks/v1-older", "libs/v1-old"), report.evicted());
+        assertEquals(3000, report.bytesBefore());
+        assertEquals(1000, report.bytesAfter());
+        assertFalse(Files.exists(cache.resolve("jdks/v1-older")));
+        assertFalse(Files.exists(cache.resolve("libs/v1-old")));
+        assertTrue(Files.exists(cache.resolve("jdks/v1-newer")));
+        try (var trash = Files.list(cache.resolve(".trash"))) {
+            assertEquals(0, trash.count());
+        }
+    }
+
+    @Test
+    void keepsLockedAndRecentlyUsedEntries(@TempDir Path cache) throws Exception {
+        Path locked = entry(cache, "jdks/v1-locked", 1000, Duration.ofHours(5));
+        entry(cache, "jdks/v1-recent", 1000, Duration.ofMinutes(1));
+        entry(cache, "libs/v1-idle", 1000, Duration.ofHours(1));
+
+        CacheJanitor.Report report;
+        try (var channel = FileChannel.open(locked.resolve(".extract.lock"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock ignored = channel.lock()) {
+            report = new CacheJanitor(cache, 0, Duration.ofMinutes(30)).sweep();
+        }
+
+        assertEquals(List.of("libs/v1-idle"), report.evicted());
+        assertEquals(List.of("jdks/v1-locked", "jdks/v1-recent"), report.skipped());
+        assertTrue(Files.exists(locked.resolve("payload.bin")));
+        assertEquals(2000, report.bytesAfter());
+    }
+
+    @Test
+    void keepsEntriesThatRunningProcessesUse(@TempDir Path cache) throws Exception {
+        Path running = entry(cache, "jdks/v1-running", 1000, Duration.ofHours(5));
+        var extractor = new GlobalExtractor(cache.toString(), "v1");
+        var janitor = new CacheJanitor(cache, 0, Duration.ofMinutes(30));
+
+        CacheJanitor.Report report;
+        try (var inUse = extractor.use(running.resolve("payload.bin"))) {
+            // Long-lived processes stop refreshing the access marker.
+            Files.setLastModifiedTime(running.resolve(".last-access"),
+                    FileTime.from(Instant.now().minus(Duration.ofHours(5))));
+            report = janitor.sweep();
+        }
+
+        assertEquals(List.of("jdks/v1-running"), report.skipped());
+        assertTrue(Files.exists(running.resolve("payload.bin")));
+        assertEquals(List.of("jdks/v1-running"), janitor.sweep().evicted());
+    }
+
+    @Test
+    void extractorMarksAccessAndRestoresEvictedEntries(@TempDir Path cache) throws Exception {
+        var extractor = new GlobalExtractor(cache.toString(), "v1") {
+            @Override
+            protected InputStream openResource(String path) throws java.io.IOException {
+                if (path.endsWith(".sha256.txt")) {
+                    throw new java.io.FileNotFoundException(path);
+                }
+                return new ByteArrayInputStream("jar".getBytes(StandardCharsets.UTF_8));
+            }
+        };
+        Path jar = extractor.ensureFile("/cn1libs/lib.jar");
+        Path marker = jar.getParent().resolve(".last-access");
+        assertTrue(Files.exists(marker));
+        Files.setLastModifiedTime(marker, FileTime.from(Instant.now().minus(Duration.ofDays(1))));
+
+        var report = new CacheJanitor(cache, 0, Duration.ofMinutes(30)).sweep();
+
+        assertEquals(1, report.evicted().size());
+        assertFalse(Files.exists(jar));
+        extractor.invalidate();
+        assertEquals(jar, extractor.ensureFile("/cn1libs/lib.jar"));
+        assertEquals("jar", Files.readString(jar));
+    }
+
+    @Test
+    void dropsStoredObjectsNoLongerLinkedFromAnyEntry(@TempDir Path cache) throws Exception {
+        var objects = new BlobStore(cache.resolve("objects/data"));
+        Path stale = entry(cache, "libs/v1-stale", 100, Duration.ofHours(2));
+        Path kept = entry(cache, "libs/v2-kept", 100, Duration.ofMinutes(1));
+        Files.writeString(stale.resolve("only.txt"), "only");
+        String shared = sha256(new byte[100]);
+        objects.dedupe(stale.resolve("payload.bin"), shared);
+        objects.dedupe(kept.resolve("payload.bin"), shared);
+        String only = sha256("only".getBytes(StandardCharsets.UTF_8));
+        objects.dedupe(stale.resolve("only.txt"), only);
+
+        var report = new CacheJanitor(cache, 50, Duration.ofMinutes(30)).sweep();
+
+        assertEquals(List.of("libs/v1-stale"), report.evicted());
+        assertEquals(List.of("libs/v2-kept"), report.skipped());
+        assertEquals(104, report.bytesBefore());
+        assertEquals(100, report.bytesAfter());
+        assertTrue(objects.contains(shared));
+        assertFalse(objects.contains(only));
+    }
+
+    @Test
+    void countsFilesSharedThroughTheObjectStoreOnce(@TempDir Path cache) throws Exception {
+        var objects = new BlobStore(cache.resolve("objects/data"));
+        Path oldest = entry(cache, "libs/v1-oldest", 1000, Duration.ofHours(3));
+        Path older = entry(cache, "libs/v1-older", 1000, Duration.ofHours(2));
+        entry(cache, "libs/v1-own", 1000, Duration.ofHours(1));
+        String shared = sha256(new byte[1000]);
+        objects.dedupe(oldest.resolve("payload.bin"), shared);
+        objects.dedupe(older.resolve("payload.bin"), shared);
+
+        var report = new CacheJanitor(cache, 1500, Duration.ofMinutes(30)).sweep();
+
+        // Evicting the first entry frees nothing while the second still links to its payload.
+        assertEquals(List.of("libs/v1-oldest", "libs/v1-older"), report.evicted());
+        assertEquals(2000, report.bytesBefore());
+        assertEquals(1000, report.bytesAfter());
+        assertFalse(objects.contains(shared));
+        assertTrue(Files.exists(cache.resolve("libs/v1-own/payload.bin")));
+    }
+
+    @Test
+    void evictsStoredBlobsAndThemesLikeExtractedEntries(@TempDir Path cache) throws Exception {
+        entry(cache, "libs/v1-lib", 1000, Duration.ofHours(3));
+        var blobs = new BlobStore(cache.resolve("blobs"));
+        String old = blobs.put(new ByteArrayInputStream(new byte[500])).sha256();
+        String used = blobs.put(new ByteArrayInputStream(new byte[400])).sha256();
+        Path themes = Files.createDirectories(cache.resolve("css-themes"));
+        Path theme = Files.write(themes.resolve("k1.res"), new byte[300]);
+        Path log = Files.write(themes.resolve("k1.log"), new byte[10]);
+        Files.write(themes.resolve(".theme123.tmp"), new byte[10]);
+        Path oldBlob = cache.resolve("blobs").resolve(old.substring(0, 2)).resolve(old);
+        Files.setLastModifiedTime(oldBlob, FileTime.from(Instant.now().minus(Duration.ofHours(5))));
+        Files.setLastModifiedTime(theme, FileTime.from(Instant.now().minus(Duration.ofHours(4))));
+        Files.setLastModifiedTime(log, FileTime.from(Instant.now().minus(Duration.ofHours(4))));
+        Path usedBlob = blobs.require(used);
+        Files.setLastModifiedTime(usedBlob, FileTime.from(Instant.now().minus(Duration.ofHours(5))));
+        blobs.require(used);
+
+        var report = new CacheJanitor(cache, 1500, Duration.ofMinutes(30)).sweep();
+
+        assertEquals(List.of("blobs/" + old.substring(0, 2) + "/" + old, "css-themes/k1"), report.evicted());
+        assertEquals(2220, report.bytesBefore());
+        assertEquals(1410, report.bytesAfter());
+        assertFalse(blobs.contains(old));
+        assertTrue(blobs.contains(used));
+        assertFalse(Files.exists(theme));
+        assertFalse(Files.exists(log));
+        assertTrue(Files.exists(themes.resolve(".theme123.tmp")));
+    }
+
+    private static String sha256(byte[] data) throws Exception {
+        return java.util.HexFormat.of().formatHex(
+                java.security.MessageDigest.getInstance("SHA-256").digest(data));
+    }
+
+    private static Path entry(Path cache, String name, int size, Duration idle) throws Exception {
+        Path dir = Files.createDirectories(cache.resolve(name));
+        Files.write(dir.resolve("payload.bin"), new byte[size]);
+        Path marker = Files.createFile(dir.resolve(".last-access"));
+        Files.setLastModifiedTime(marker, FileTime.from(Instant.now().minus(idle)));
+        return dir;
+    }
+}
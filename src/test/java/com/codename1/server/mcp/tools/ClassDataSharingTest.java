@@ -0,0 +1,122 @@
+package com.codename1.server.mcp.tools;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ClassDataSharingTest {
+
+    private static final Path JDK8 = Path.of(
+            System.getProperty("user.home"), ".sdkman", "candidates", "java", "8.0.392-tem");
+
+    @Test
+    void trainsOnceThenLaunchesJavacWithTheArchive(@TempDir Path tmp) throws Exception {
+        assumeTrue(Files.isExecutable(JDK8.resolve("bin").resolve("javac")), "JDK 8 not installed");
+        // Link the JDK so the archives are written below the temporary directory.
+        Path jdk = Files.createDirectories(tmp.resolve("jdk"));
+        Files.createSymbolicLink(jdk.resolve("bin"), JDK8.resolve("bin"));
+        Files.createSymbolicLink(jdk.resolve("lib"), JDK8.resolve("lib"));
+        Path source = Files.writeString(
+                tmp.resolve("A.java"), "class A { java.util.List<String> a; }");
+        var cds = new ClassDataSharing(jdk.resolve("bin").resolve("java"));
+
+        ClassDataSharing.Launch training = cds.launch(ClassDataSharing.Kind.JAVAC);
+        assertTrue(training.options().stream()
+                .anyMatch(o -> o.startsWith("-J-XX:DumpLoadedClassList=")));
+        assertTrue(cds.launch(ClassDataSharing.Kind.JAVAC).options().isEmpty(),
+                "only one launch trains at a time");
+        assertEquals(0, javac(jdk, training, source));
+
+        Path archive = jdk.resolve(".cn1-cds").resolve("javac.jsa");
+        for (int i = 0; i < 600 && !Files.exists(archive); i++) {
+            Thread.sleep(100);
+        }
+        assertTrue(Files.exists(archive), "archive built after the training run");
+
+        ClassDataSharing.Launch shared = cds.launch(ClassDataSharing.Kind.JAVAC);
+        assertTrue(shared.options().contains("-J-Xshare:auto"));
+        assertTrue(shared.options().contains("-J-XX:SharedArchiveFile=" + archive));
+        assertEquals(0, javac(jdk, shared, source));
+    }
+
+    @Test
+    void failedTrainingRunLetsTheNextLaunchTrain(@TempDir Path tmp) {
+        var cds = new ClassDataSharing(tmp.resolve("jdk").resolve("bin").resolve("java"));
+
+        ClassDataSharing.Launch first = cds.launch(ClassDataSharing.Kind.JAVA);
+        assertFalse(first.options().isEmpty());
+        assertTrue(cds.launch(ClassDataSharing.Kind.JAVA).options().isEmpty());
+
+        first.completed(false);
+        first.completed(true);
+
+        assertFalse(cds.launch(ClassDataSharing.Kind.JAVA).options().isEmpty());
+    }
+
+    @Test
+    void processesSharingTheDirectoryRecordSeparateClassLists(@TempDir Path tmp) {
+        Path java = tmp.resolve("jdk").resolve("bin").resolve("java");
+        Path shared = tmp.resolve("cds");
+
+        String first = classList(new ClassDataSharing(java, shared).launch(ClassDataSharing.Kind.JAVA));
+        String second = classList(new ClassDataSharing(java, shared).launch(ClassDataSharing.Kind.JAVA));
+
+        assertNotEquals(first, second);
+        assertTrue(Files.exists(Path.of(first)));
+        assertTrue(Files.exists(Path.of(second)));
+    }
+
+    @Test
+    void disablesKindWhoseArchiveCannotBeBuilt(@TempDir Path tmp) throws Exception {
+        Path bin = Files.createDirectories(tmp.resolve("jdk").resolve("bin"));
+        Path java = Files.writeString(bin.resolve("java"), "#!/bin/sh\necho broken\nexit 1\n");
+        Files.setPosixFilePermissions(java, PosixFilePermissions.fromString("rwxr-xr-x"));
+        var cds = new ClassDataSharing(java);
+
+        cds.launch(ClassDataSharing.Kind.JAVA).completed(true);
+
+        Path disabled = tmp.resolve("jdk").resolve(".cn1-cds").resolve("java.disabled");
+        for (int i = 0; i < 100 && !Files.exists(disabled); i++) {
+            Thread.sleep(100);
+        }
+        assertTrue(Files.readString(disabled).contains("broken"));
+        assertTrue(cds.launch(ClassDataSharing.Kind.JAVA).options().isEmpty());
+        assertFalse(Files.exists(tmp.resolve("jdk").resolve(".cn1-cds").resolve("java.jsa")));
+    }
+
+    private static String classList(ClassDataSharing.Launch launch) {
+        return launch.options().stream()
+                .filter(o -> o.startsWith("-XX:DumpLoadedClassList="))
+                .map(o -> o.substring("-XX:DumpLoadedClassList=".length()))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static int javac(Path jdk, ClassDataSharing.Launch launch, Path source)
+            throws Exception {
+        List<String> command = new ArrayList<>();
+        command.add(jdk.resolve("bin").resolve("javac").toString());
+        command.addAll(launch.options());
+        command.add("-d");
+        command.add(Files.createDirectories(source.getParent().resolve("out")).toString());
+        command.add(source.toString());
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        launch.attach(process);
+        try (InputStream in = process.getInputStream()) {
+            String log = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            int exit = process.waitFor();
+            assertEquals(0, exit, log);
+            return exit;
+        }
+    }
+}
@@ -6,15 +6,22 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
 import java.util.Map;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
 import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.compress.compressors.xz.XZCompressorOutputStream;
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorOutputStream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -61,6 +68,64 @@ class GlobalExtractorTest {
     assertThat(root.resolve("bin/java")).exists();
   }
 
+  @Test
+  void ensureArchiveExtractedHandlesZstdAndXz() throws Exception {
+    Map<String, String> files = Map.of("bin/javac", "javac", "lib/tools.jar", "x".repeat(3 << 20));
+    resources.put("/jdks/jdk.tar.zst", tar(files, GlobalExtractor.ArchiveType.TAR_ZST));
+    resources.put("/jdks/jdk.tar.xz", tar(files, GlobalExtractor.ArchiveType.TAR_XZ));
+
+    for (String archive : List.of("/jdks/jdk.tar.zst", "/jdks/jdk.tar.xz")) {
+      Path root = extractor.ensureArchiveExtracted(archive, "jdk");
+      assertThat(root.resolve("bin/javac")).hasContent("javac");
+      assertThat(Files.isExecutable(root.resolve("bin/javac"))).isTrue();
+      assertThat(Files.size(root.resolve("lib/tools.jar"))).isEqualTo(3 << 20);
+    }
+  }
+
+  @Test
+  void publishedDigestAvoidsReadingExtractedArchive() throws Exception {
+    byte[] archive = tarGz(Map.of("bin/java", "echo"));
+    String digest =
+        HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(archive));
+    resources.put("/jdks/jdk.tar.gz", archive);
+    resources.put("/jdks/jdk.tar.gz.sha256.txt", (digest + "  jdk.tar.gz\n").getBytes());
+    Path root = extractor.ensureArchiveExtracted("/jdks/jdk.tar.gz", "jdk");
+
+    TestExtractor fresh = new TestExtractor(cacheDir.toString(), "v1", resources);
+    assertThat(fresh.ensureArchiveExtracted("/jdks/jdk.tar.gz", "jdk")).isEqualTo(root);
+    assertThat(fresh.opened).doesNotContain("/jdks/jdk.tar.gz");
+  }
+
+  @Test
+  void jarEntryStampAvoidsReadingPackagedArchive() throws Exception {
+    byte[] archive = tarGz(Map.of("bin/java", "echo"));
+    Path jar = cacheDir.resolveSibling(cacheDir.getFileName() + "-app.jar");
+    Files.write(jar, zip(Map.of("jdks/jdk.tar.gz", "packaged archive")));
+    resources.put("/jdks/jdk.tar.gz", archive);
+    extractor.jar = jar;
+    Path root = extractor.ensureArchiveExtracted("/jdks/jdk.tar.gz", "jdk");
+
+    TestExtractor fresh = new TestExtractor(cacheDir.toString(), "v1", resources);
+    fresh.jar = jar;
+    assertThat(fresh.ensureArchiveExtracted("/jdks/jdk.tar.gz", "jdk")).isEqualTo(root);
+    assertThat(fresh.opened).isEmpty();
+    Files.delete(jar);
+  }
+
+  @Test
+  void markUsedRefreshesTheAccessMarkerOfTheEntry() throws Exception {
+    resources.put("/jdks/jdk.tar.gz", tarGz(Map.of("bin/java", "echo")));
+    Path root = extractor.ensureArchiveExtracted("/jdks/jdk.tar.gz", "jdk");
+    Path marker = root.getParent().resolve(CacheJanitor.ACCESS_MARKER);
+    Files.delete(marker);
+
+    TestExtractor fresh = new TestExtractor(cacheDir.toString(), "v1", resources);
+    fresh.markUsed(root.resolve("bin/java"));
+    fresh.markUsed(Files.createTempFile("outside-", ".jar"));
+
+    assertThat(marker).exists();
+  }
+
   @Test
   void ensureArchiveExtractedFromUrlUsesFetcher() throws Exception {
     extractor.setUrlBytes(zip(Map.of("bin/tool", "echo")));
@@ -70,6 +135,163 @@ class GlobalExtractorTest {
     assertThat(root.resolve("bin/tool")).exists();
   }
 
+  @Test
+  void extractsManyEntriesInParallelWithExecBits() throws Exception {
+    Map<String, String> files = new HashMap<>();
+    for (int i = 0; i < 200; i++) {
+      files.put("lib/dir" + (i % 7) + "/file" + i + ".txt", "content-" + i);
+    }
+    files.put("lib/big.bin", "x".repeat(2 * 1024 * 1024));
+    resources.put("/jdks/many.tar.gz", tarGz(files));
+    resources.put("/jdks/many.zip", zip(files));
+
+    for (String archive : List.of("/jdks/many.tar.gz", "/jdks/many.zip")) {
+      Path root = extractor.ensureArchiveExtracted(archive, "many");
+      for (var entry : files.entrySet()) {
+        assertThat(root.resolve(entry.getKey())).hasContent(entry.getValue());
+      }
+    }
+  }
+
+  @Test
+  void repairsOnlyDamagedFilesOfExtractedTree() throws Exception {
+    resources.put(
+        "/jdks/jdk.tar.gz", tarGz(Map.of("bin/javac", "javac", "lib/rt.jar", "runtime classes")));
+    Path root = extractor.ensureArchiveExtracted("/jdks/jdk.tar.gz", "jdk");
+    Path untouched = root.resolve("bin/javac");
+    long untouchedModified = Files.getLastModifiedTime(untouched).toMillis();
+    Files.writeString(root.resolve("lib/rt.jar"), "runtime");
+
+    TestExtractor restarted = new TestExtractor(cacheDir.toString(), "v1", resources);
+    Path repaired = restarted.ensureArchiveExtracted("/jdks/jdk.tar.gz", "jdk");
+
+    assertThat(repaired).isEqualTo(root);
+    assertThat(root.resolve("lib/rt.jar")).hasContent("runtime classes");
+    assertThat(Files.getLastModifiedTime(untouched).toMillis()).isEqualTo(untouchedModified);
+  }
+
+  @Test
+  void verifiesTreesWithoutManifestAgainstArchive() throws Exception {
+    resources.put("/jdks/jdk.zip", zip(Map.of("bin/javac", "javac", "release", "8")));
+    Path root = extractor.ensureArchiveExtracted("/jdks/jdk.zip", "jdk");
+    try (var manifests = Files.walk(cacheDir)) {
+      for (Path manifest : manifests.filter(p -> p.toString().endsWith(".manifest")).toList()) {
+        Files.delete(manifest);
+      }
+    }
+    Files.delete(root.resolve("release"));
+
+    TestExtractor restarted = new TestExtractor(cacheDir.toString(), "v1", resources);
+    restarted.ensureArchiveExtracted("/jdks/jdk.zip", "jdk");
+
+    assertThat(root.resolve("release")).hasContent("8");
+  }
+
+  @Test
+  void replacesTruncatedCachedResource() throws Exception {
+    resources.put("/cn1.jar", "complete jar".getBytes());
+    Path jar = extractor.ensureFile("/cn1.jar");
+    Files.writeString(jar, "compl");
+
+    TestExtractor restarted = new TestExtractor(cacheDir.toString(), "v1", resources);
+
+    assertThat(restarted.ensureFile("/cn1.jar")).hasContent("complete jar");
+  }
+
+  @Test
+  void sharesIdenticalFilesAcrossVersionTags() throws Exception {
+    resources.put("/cn1.jar", "jar".getBytes());
+    resources.put(
+        "/jdks/jdk.tar.gz",
+        tarGz(
+            Map.of(
+                "bin/java", "same", "lib/same.txt", "same", "lib/big.bin", "b".repeat(2 << 20))));
+    Path jar = extractor.ensureFile("/cn1.jar");
+    Path root = extractor.ensureArchiveExtracted("/jdks/jdk.tar.gz", "jdk");
+
+    TestExtractor other = new TestExtractor(cacheDir.toString(), "v2", resources);
+    Path otherJar = other.ensureFile("/cn1.jar");
+    Path otherRoot = other.ensureArchiveExtracted("/jdks/jdk.tar.gz", "jdk");
+
+    assertThat(otherRoot).isNotEqualTo(root);
+    assertThat(Files.isSameFile(jar, otherJar)).isTrue();
+    for (String name : List.of("bin/java", "lib/same.txt", "lib/big.bin")) {
+      assertThat(Files.isSameFile(root.resolve(name), otherRoot.resolve(name))).isTrue();
+    }
+    assertThat(Files.isSameFile(root.resolve("bin/java"), root.resolve("lib/same.txt"))).isFalse();
+    assertThat(Files.isExecutable(otherRoot.resolve("bin/java"))).isTrue();
+  }
+
+  @Test
+  void resolvedPathsAreServedFromMemoryUntilInvalidated() throws Exception {
+    resources.put("/jdks/jdk.zip", zip(Map.of("bin/javac", "javac")));
+    Path root = extractor.ensureArchiveExtracted("/jdks/jdk.zip", "jdk");
+    Files.delete(root.resolve("bin/javac"));
+    extractor.opened.clear();
+
+    assertThat(extractor.ensureArchiveExtracted("/jdks/jdk.zip", "jdk")).isEqualTo(root);
+    assertThat(root.resolve("bin/javac")).doesNotExist();
+    assertThat(extractor.opened).isEmpty();
+
+    extractor.invalidate();
+
+    assertThat(extractor.ensureArchiveExtracted("/jdks/jdk.zip", "jdk")).isEqualTo(root);
+    assertThat(root.resolve("bin/javac")).hasContent("javac");
+  }
+
+  @Test
+  void profileExtractsEssentialFilesFirstAndTheRestOnDemand() throws Exception {
+    resources.put("/jdks/jdk.tar.gz", tarGz(jdkLayout()));
+    ToolchainProfile profile = ToolchainProfile.jdk8(ToolchainProfile.Rest.SKIP);
+
+    Path root = extractor.ensureArchiveExtracted("/jdks/jdk.tar.gz", "jdk", profile);
+
+    assertThat(root.resolve("jdk8u/bin/javac")).hasContent("javac");
+    assertThat(root.resolve("jdk8u/jre/lib/rt.jar")).hasContent("rt");
+    assertThat(root.resolve("jdk8u/release")).exists();
+    assertThat(root.resolve("jdk8u/src.zip")).doesNotExist();
+    assertThat(root.resolve("jdk8u/lib/missioncontrol/mc.jar")).doesNotExist();
+    assertThat(profile.isEssential("jdk8u-b05/Contents/Home/jre/lib/rt.jar")).isTrue();
+    assertThat(profile.isEssential("jdk8u-b05/Contents/Info.plist")).isFalse();
+    assertThat(profile.isEssential("jdk8u/lib/amd64/jli/libjli.so")).isTrue();
+    assertThat(profile.isEssential("jdk8u/jre/lib/amd64/server/libjvm.so")).isTrue();
+    assertThat(profile.isEssential("jdk8u/jre/lib/amd64/jvm.cfg")).isTrue();
+    assertThat(profile.isEssential("jdk8u/jre/bin/server/jvm.dll")).isTrue();
+    assertThat(profile.isEssential("jdk8u/jre/lib/tzdb.dat")).isTrue();
+    assertThat(profile.isEssential("jdk8u/jre/lib/ext/jfxrt.jar")).isTrue();
+    assertThat(profile.isEssential("jdk8u/bin/jconsole")).isFalse();
+    assertThat(profile.isEssential("jdk8u/lib/ct.sym")).isFalse();
+    assertThat(profile.isEssential("jdk8u/jre/lib/charsets.jar")).isFalse();
+    assertThat(profile.isEssential("jdk8u/db/lib/derby.jar")).isFalse();
+
+    Path full = new TestExtractor(cacheDir.toString(), "v1", resources)
+        .ensureArchiveExtracted("/jdks/jdk.tar.gz", "jdk");
+
+    assertThat(full).isEqualTo(root);
+    assertThat(root.resolve("jdk8u/src.zip")).hasContent("sources");
+    assertThat(root.resolve("jdk8u/man/man1/javac.1")).hasContent("man");
+    assertThat(root.getParent().resolve("jdk.partial")).doesNotExist();
+  }
+
+  @Test
+  void backgroundProfileCompletesTheTreeAfterReturning() throws Exception {
+    resources.put("/jdks/jdk.tar.gz", tarGz(jdkLayout()));
+
+    Path root =
+        extractor.ensureArchiveExtracted(
+            "/jdks/jdk.tar.gz", "jdk", ToolchainProfile.jdk8(ToolchainProfile.Rest.BACKGROUND));
+
+    assertThat(root.resolve("jdk8u/bin/javac")).exists();
+    Path marker = root.getParent().resolve("jdk.partial");
+    long deadline = System.currentTimeMillis() + 10_000;
+    while (Files.exists(marker) && System.currentTimeMillis() < deadline) {
+      Thread.sleep(20);
+    }
+    assertThat(marker).doesNotExist();
+    assertThat(root.resolve("jdk8u/src.zip")).hasContent("sources");
+    assertThat(root.resolve("jdk8u/lib/missioncontrol/mc.jar")).hasContent("mc");
+  }
+
   @Test
   void archiveTypeResolutionSupportsKnownExtensions() {
     assertThat(GlobalExtractor.ArchiveType.fromName("jdk.tar.gz"))
@@ -78,6 +300,10 @@ class GlobalExtractorTest {
         .isEqualTo(GlobalExtractor.ArchiveType.TAR_GZ);
     assertThat(GlobalExtractor.ArchiveType.fromName("jdk.zip"))
         .isEqualTo(GlobalExtractor.ArchiveType.ZIP);
+    assertThat(GlobalExtractor.ArchiveType.fromName("jdk.tar.zst"))
+        .isEqualTo(GlobalExtractor.ArchiveType.TAR_ZST);
+    assertThat(GlobalExtractor.ArchiveType.fromName("JDK.TXZ"))
+        .isEqualTo(GlobalExtractor.ArchiveType.TAR_XZ);
     assertThatThrownBy(() -> GlobalExtractor.ArchiveType.fromName("jdk.bin"))
         .isInstanceOf(IllegalArgumentException.class);
   }
@@ -91,6 +317,17 @@ class GlobalExtractorTest {
         .hasMessageContaining("Zip Slip");
   }
 
+  private static Map<String, String> jdkLayout() {
+    return Map.of(
+        "jdk8u/bin/javac", "javac",
+        "jdk8u/release", "JAVA_VERSION=\"1.8.0\"",
+        "jdk8u/lib/tools.jar", "tools",
+        "jdk8u/jre/lib/rt.jar", "rt",
+        "jdk8u/lib/missioncontrol/mc.jar", "mc",
+        "jdk8u/src.zip", "sources",
+        "jdk8u/man/man1/javac.1", "man");
+  }
+
   private static byte[] zip(Map<String, String> entries) throws IOException {
     ByteArrayOutputStream out = new ByteArrayOutputStream();
     try (ZipOutputStream zip = new ZipOutputStream(out)) {
@@ -104,13 +341,27 @@ class GlobalExtractorTest {
   }
 
   private static byte[] tarGz(Map<String, String> entries) throws IOException {
+    return tar(entries, GlobalExtractor.ArchiveType.TAR_GZ);
+  }
+
+  private static byte[] tar(Map<String, String> entries, GlobalExtractor.ArchiveType type)
+      throws IOException {
     ByteArrayOutputStream out = new ByteArrayOutputStream();
-    try (GzipCompressorOutputStream gzip = new GzipCompressorOutputStream(out);
-        TarArchiveOutputStream tar = new TarArchiveOutputStream(gzip)) {
+    try (OutputStream compressed =
+            switch (type) {
+              case TAR_GZ -> new GzipCompressorOutputStream(out);
+              case TAR_ZST -> new ZstdCompressorOutputStream(out);
+              case TAR_XZ -> new XZCompressorOutputStream(out);
+              case ZIP -> throw new IllegalArgumentException();
+            };
+        TarArchiveOutputStream tar = new TarArchiveOutputStream(compressed)) {
       for (var entry : entries.entrySet()) {
         byte[] data = entry.getValue().getBytes();
         TarArchiveEntry tarEntry = new TarArchiveEntry(entry.getKey());
         tarEntry.setSize(data.length);
+        if (entry.getKey().startsWith("bin/")) {
+          tarEntry.setMode(0100755);
+        }
         tar.putArchiveEntry(tarEntry);
         tar.write(data);
         tar.closeArchiveEntry();
@@ -123,6 +374,8 @@ class GlobalExtractorTest {
   private static final class TestExtractor extends GlobalExtractor {
     private final Map<String, byte[]> resources;
     private byte[] urlBytes;
+    private final List<String> opened = new ArrayList<>();
+    private Path jar;
 
     private TestExtractor(String cacheDir, String version, Map<String, byte[]> resources) {
       super(cacheDir, version);
@@ -134,17 +387,30 @@ class GlobalExtractorTest {
     }
 
     @Override
-    protected byte[] readResource(String path) throws IOException {
+    protected java.io.InputStream openResource(String path) throws IOException {
       byte[] data = resources.get(path);
       if (data == null) {
         throw new IOException("missing resource: " + path);
       }
-      return data;
+      opened.add(path);
+      return new ByteArrayInputStream(data);
+    }
+
+    @Override
+    protected java.net.URL resourceUrl(String path) {
+      if (jar == null) {
+        return null;
+      }
+      try {
+        return java.net.URI.create("jar:" + jar.toUri() + "!" + path).toURL();
+      } catch (java.net.MalformedURLException e) {
+        throw new IllegalStateException(e);
+      }
     }
 
     @Override
-    protected java.io.InputStream openUrl(String url) {
-      return new ByteArrayInputStream(urlBytes);
+    protected void download(String url, Path target, String sha256) throws IOException {
+      Files.write(target, urlBytes);
     }
   }
 }
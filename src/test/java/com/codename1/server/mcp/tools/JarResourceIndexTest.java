@@ -0,0 +1,85 @@
+package com.codename1.server.mcp.tools;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JarResourceIndexTest {
+
+  @Test
+  void readsStoredAndDeflatedEntries(@TempDir Path tmp) throws Exception {
+    byte[] font = "font-bytes ".repeat(500).getBytes(StandardCharsets.UTF_8);
+    Path jar = tmp.resolve("designer.jar");
+    try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(jar))) {
+      zip.putNextEntry(new ZipEntry("com/codename1/impl/javase/"));
+      zip.closeEntry();
+      zip.putNextEntry(new ZipEntry("com/codename1/impl/javase/Roboto-Regular.ttf"));
+      zip.write(font);
+      zip.closeEntry();
+      stored(zip, "META-INF/stored.txt", "plain".getBytes(StandardCharsets.UTF_8));
+    }
+
+    JarResourceIndex index = JarResourceIndex.of(jar);
+
+    assertThat(index.read("com/codename1/impl/javase/Roboto-Regular.ttf")).isEqualTo(font);
+    assertThat(index.read("META-INF/stored.txt")).asString().isEqualTo("plain");
+    assertThat(index.read("missing.txt")).isNull();
+    assertThat(index.contains("com/codename1/impl/javase/")).isFalse();
+    assertThat(index.names()).hasSize(2);
+    assertThat(JarResourceIndex.of(jar)).isSameAs(index);
+  }
+
+  @Test
+  void reopensJarsThatWereReplaced(@TempDir Path tmp) throws Exception {
+    Path jar = tmp.resolve("designer.jar");
+    try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(jar))) {
+      stored(zip, "version.txt", "1".getBytes(StandardCharsets.UTF_8));
+    }
+    JarResourceIndex first = JarResourceIndex.of(jar);
+    FileTime modified = Files.getLastModifiedTime(jar);
+
+    try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(jar))) {
+      stored(zip, "version.txt", "2".getBytes(StandardCharsets.UTF_8));
+      stored(zip, "added.txt", "new".getBytes(StandardCharsets.UTF_8));
+    }
+    Files.setLastModifiedTime(jar, modified);
+
+    JarResourceIndex second = JarResourceIndex.of(jar);
+    assertThat(second).isNotSameAs(first);
+    assertThat(second.read("version.txt")).asString().isEqualTo("2");
+    assertThat(second.contains("added.txt")).isTrue();
+    assertThatThrownBy(() -> first.read("version.txt")).isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  void rejectsFilesThatAreNotZips(@TempDir Path tmp) throws Exception {
+    Path bogus = tmp.resolve("bogus.jar");
+    Files.writeString(bogus, "this is not a zip archive at all");
+
+    assertThatThrownBy(() -> JarResourceIndex.of(bogus))
+        .isInstanceOf(IOException.class)
+        .hasMessageContaining("Not a zip file");
+  }
+
+  private static void stored(ZipOutputStream zip, String name, byte[] data) throws IOException {
+    ZipEntry entry = new ZipEntry(name);
+    entry.setMethod(ZipEntry.STORED);
+    entry.setSize(data.length);
+    CRC32 crc = new CRC32();
+    crc.update(data);
+    entry.setCrc(crc.getValue());
+    zip.putNextEntry(entry);
+    zip.write(data);
+    zip.closeEntry();
+  }
+}
@@ -5,11 +5,16 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -45,6 +50,18 @@ class Jdk8ManagerFromResourceTest {
     verify(extractor).ensureArchiveExtracted("/jdks/jdk.tar.gz", "jdk");
   }
 
+  @Test
+  void ensureJavacFromZstdResource() throws Exception {
+    System.setProperty("os.name", "Linux");
+    Path root = createJdkLayout("javac", false);
+    doReturn(root).when(extractor).ensureArchiveExtracted("/jdks/jdk-8u462.tar.zst", "jdk-8u462");
+
+    Jdk8ManagerFromResource manager =
+        new Jdk8ManagerFromResource(extractor, "/jdks/jdk-8u462.tar.zst", "release");
+
+    assertThat(manager.ensureJavac8()).isEqualTo(root.resolve("bin").resolve("javac"));
+  }
+
   @Test
   void ensureJavaFromWindowsDownload() throws Exception {
     System.setProperty("os.name", "Windows 11");
@@ -102,6 +119,115 @@ class Jdk8ManagerFromResourceTest {
     assertThat(manager.ensureJavac8()).isEqualTo(javac);
   }
 
+  @Test
+  void resolvedBinaryIsServedFromMemoryUntilForgotten() throws Exception {
+    System.setProperty("os.name", "Linux");
+    Path root = createJdkLayout("javac", false);
+    doReturn(root).when(extractor).ensureArchiveExtracted("/jdks/jdk.tar.gz", "jdk");
+    Jdk8ManagerFromResource manager =
+        new Jdk8ManagerFromResource(extractor, "/jdks/jdk.tar.gz", "release");
+
+    manager.ensureJavac8();
+    manager.ensureJavac8();
+    verify(extractor, times(1)).ensureArchiveExtracted("/jdks/jdk.tar.gz", "jdk");
+    // Binaries served from memory still count as uses of the JDK entry.
+    verify(extractor).markUsed(root.resolve("bin").resolve("javac"));
+
+    manager.forget();
+    manager.ensureJavac8();
+    verify(extractor, times(2)).ensureArchiveExtracted("/jdks/jdk.tar.gz", "jdk");
+  }
+
+  @Test
+  void missingBinaryInvalidatesExtractorAndRetriesOnce() throws Exception {
+    System.setProperty("os.name", "Linux");
+    Path damaged = Files.createTempDirectory("jdk-damaged-");
+    Files.writeString(damaged.resolve("release"), "marker");
+    Path repaired = createJdkLayout("javac", false);
+    when(extractor.ensureArchiveExtracted("/jdks/jdk.tar.gz", "jdk"))
+        .thenReturn(damaged)
+        .thenReturn(repaired);
+    Jdk8ManagerFromResource manager =
+        new Jdk8ManagerFromResource(extractor, "/jdks/jdk.tar.gz", "release");
+
+    assertThat(manager.ensureJavac8()).isEqualTo(repaired.resolve("bin").resolve("javac"));
+    verify(extractor).invalidate();
+  }
+
+  @Test
+  void extractorInvalidationMakesManagerResolveAgain() throws Exception {
+    System.setProperty("os.name", "Linux");
+    Path root = createJdkLayout("javac", false);
+    AtomicInteger extractions = new AtomicInteger();
+    GlobalExtractor real =
+        new GlobalExtractor(Files.createTempDirectory("cache-").toString(), "v1") {
+          @Override
+          public Path ensureArchiveExtracted(String resource, String folderName) {
+            extractions.incrementAndGet();
+            return root;
+          }
+        };
+    Jdk8ManagerFromResource manager =
+        new Jdk8ManagerFromResource(real, "/jdks/jdk.tar.gz", "release");
+
+    manager.ensureJavac8();
+    real.invalidate();
+    manager.ensureJavac8();
+
+    assertThat(extractions).hasValue(2);
+  }
+
+  @Test
+  void prefersInstalledJdk8OverTheBundledArchive() throws Exception {
+    System.setProperty("os.name", "Linux");
+    Path installed = createJdkLayout("javac", false);
+    Files.writeString(installed.resolve("release"), "JAVA_VERSION=\"1.8.0_392\"\n");
+    Path java = installed.resolve("bin").resolve("java");
+    Files.writeString(java, "echo");
+    java.toFile().setExecutable(true);
+    Path cache = Files.createTempDirectory("cache-");
+    when(extractor.cacheDir()).thenReturn(cache);
+
+    Jdk8ManagerFromResource manager =
+        new Jdk8ManagerFromResource(
+            extractor,
+            "/jdks/jdk.tar.gz",
+            "",
+            "",
+            "",
+            "",
+            "release",
+            "full",
+            false,
+            ToolchainRegistry.jdk8(cache, List.of(installed.toString())));
+
+    assertThat(manager.ensureJavac8()).isEqualTo(installed.resolve("bin").resolve("javac"));
+    verify(extractor, never()).ensureArchiveExtracted(anyString(), anyString());
+  }
+
+  @Test
+  void fallsBackToTheBundledArchiveWithoutInstalledJdk8() throws Exception {
+    System.setProperty("os.name", "Linux");
+    Path root = createJdkLayout("javac", false);
+    doReturn(root).when(extractor).ensureArchiveExtracted("/jdks/jdk.tar.gz", "jdk");
+    Path cache = Files.createTempDirectory("cache-");
+
+    Jdk8ManagerFromResource manager =
+        new Jdk8ManagerFromResource(
+            extractor,
+            "/jdks/jdk.tar.gz",
+            "",
+            "",
+            "",
+            "",
+            "release",
+            "full",
+            false,
+            ToolchainRegistry.jdk8(cache, List.of(cache.resolve("absent").toString())));
+
+    assertThat(manager.ensureJavac8()).isEqualTo(root.resolve("bin").resolve("javac"));
+  }
+
   private static Path createJdkLayout(String binaryName, boolean windows) throws IOException {
     Path root = Files.createTempDirectory("jdk-");
     Files.writeString(root.resolve("release"), "marker");
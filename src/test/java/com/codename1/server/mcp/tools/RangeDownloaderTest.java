@@ -0,0 +1,262 @@
+package com.codename1.server.mcp.tools;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RangeDownloaderTest {
+  private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d+)");
+  private static final int SEGMENT = 64 * 1024;
+
+  private final byte[] content = new byte[4 * SEGMENT];
+  private final List<String> ranges = new CopyOnWriteArrayList<>();
+  private volatile boolean rangesSupported = true;
+  private volatile boolean validatorSent = true;
+  private volatile long rangeShift;
+  private volatile long failFrom = Long.MAX_VALUE;
+  private volatile long stallFrom = Long.MAX_VALUE;
+  private final AtomicInteger stalls = new AtomicInteger();
+  private final CountDownLatch release = new CountDownLatch(1);
+  private ExecutorService handlers;
+  private HttpServer server;
+  private URI uri;
+
+  @BeforeEach
+  void startServer() throws IOException {
+    new Random(42).nextBytes(content);
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/jdk.tar.gz", this::serve);
+    handlers = Executors.newCachedThreadPool();
+    server.setExecutor(handlers);
+    server.start();
+    uri = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/jdk.tar.gz");
+  }
+
+  @AfterEach
+  void stopServer() {
+    release.countDown();
+    server.stop(0);
+    handlers.shutdownNow();
+  }
+
+  @Test
+  void downloadsSegmentsInParallelRanges(@TempDir Path tmp) throws Exception {
+    Path target = tmp.resolve("archive.tar.gz");
+
+    new RangeDownloader(4, SEGMENT).download(uri, target, sha256(content));
+
+    assertThat(Files.readAllBytes(target)).isEqualTo(content);
+    assertThat(ranges)
+        .contains(
+            "0-0",
+            "0-" + (SEGMENT - 1),
+            SEGMENT + "-" + (2 * SEGMENT - 1),
+            2 * SEGMENT + "-" + (3 * SEGMENT - 1),
+            3 * SEGMENT + "-" + (4 * SEGMENT - 1));
+    assertThat(partFiles(tmp)).isEmpty();
+  }
+
+  @Test
+  void resumesFromTheSegmentsAlreadyOnDisk(@TempDir Path tmp) throws Exception {
+    Path target = tmp.resolve("archive.tar.gz");
+    failFrom = 2 * SEGMENT + 1000;
+
+    assertThatThrownBy(() -> new RangeDownloader(4, SEGMENT).download(uri, target, null))
+        .isInstanceOf(IOException.class);
+    assertThat(target).doesNotExist();
+
+    failFrom = Long.MAX_VALUE;
+    ranges.clear();
+    new RangeDownloader(4, SEGMENT).download(uri, target, null);
+
+    assertThat(Files.readAllBytes(target)).isEqualTo(content);
+    // Only the third segment is fetched again, from where the failed attempts stopped.
+    assertThat(ranges).hasSize(2).contains("0-0", (2 * SEGMENT + 1000) + "-" + (3 * SEGMENT - 1));
+  }
+
+  @Test
+  void restartsPartialSegmentsWithoutValidatorOrChecksum(@TempDir Path tmp) throws Exception {
+    Path target = tmp.resolve("archive.tar.gz");
+    validatorSent = false;
+    failFrom = 2 * SEGMENT + 1000;
+
+    assertThatThrownBy(() -> new RangeDownloader(4, SEGMENT).download(uri, target, null))
+        .isInstanceOf(IOException.class);
+    // Every retry starts the segment over instead of appending to bytes of unknown origin.
+    assertThat(ranges).doesNotContain((2 * SEGMENT + 1000) + "-" + (3 * SEGMENT - 1));
+
+    failFrom = Long.MAX_VALUE;
+    ranges.clear();
+    new RangeDownloader(4, SEGMENT).download(uri, target, null);
+
+    assertThat(Files.readAllBytes(target)).isEqualTo(content);
+    assertThat(ranges).hasSize(5).contains(2 * SEGMENT + "-" + (3 * SEGMENT - 1));
+  }
+
+  @Test
+  void fallsBackToOneRequestWhenTheServerSendsOtherBytes(@TempDir Path tmp) throws Exception {
+    Path target = tmp.resolve("archive.tar.gz");
+    rangeShift = 10;
+
+    new RangeDownloader(4, SEGMENT).download(uri, target, null);
+
+    assertThat(Files.readAllBytes(target)).isEqualTo(content);
+    assertThat(partFiles(tmp)).isEmpty();
+  }
+
+  @Test
+  void retriesSegmentsThatStall(@TempDir Path tmp) throws Exception {
+    Path target = tmp.resolve("archive.tar.gz");
+    stallFrom = SEGMENT + 1000;
+
+    assertTimeoutPreemptively(
+        Duration.ofSeconds(30),
+        () -> new RangeDownloader(4, SEGMENT, Duration.ofMillis(500)).download(uri, target, null));
+
+    assertThat(Files.readAllBytes(target)).isEqualTo(content);
+    assertThat(stalls).hasValue(1);
+    // The stalled segment resumes from the bytes it received before the server went quiet.
+    assertThat(ranges).contains((SEGMENT + 1000) + "-" + (2 * SEGMENT - 1));
+  }
+
+  @Test
+  void fallsBackToOneRequestWithoutRangeSupport(@TempDir Path tmp) throws Exception {
+    rangesSupported = false;
+    Path target = tmp.resolve("archive.tar.gz");
+
+    new RangeDownloader(4, SEGMENT).download(uri, target, sha256(content));
+
+    assertThat(Files.readAllBytes(target)).isEqualTo(content);
+  }
+
+  @Test
+  void rejectsDownloadWithWrongChecksum(@TempDir Path tmp) throws Exception {
+    Path target = tmp.resolve("archive.tar.gz");
+
+    assertThatThrownBy(
+            () -> new RangeDownloader(4, SEGMENT).download(uri, target, "0".repeat(64)))
+        .hasMessageContaining("Checksum mismatch");
+
+    assertThat(target).doesNotExist();
+    assertThat(partFiles(tmp)).isEmpty();
+  }
+
+  @Test
+  void extractorChecksAndExtractsDownloadedArchive(@TempDir Path tmp) throws Exception {
+    byte[] archive = zip("jdk/release", "JAVA_VERSION=\"1.8.0\"");
+    server.createContext(
+        "/jdk.zip",
+        exchange -> {
+          exchange.sendResponseHeaders(200, archive.length);
+          try (OutputStream out = exchange.getResponseBody()) {
+            out.write(archive);
+          }
+        });
+    GlobalExtractor extractor = new GlobalExtractor(tmp.toString(), "v1");
+    String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/jdk.zip";
+
+    Path root = extractor.ensureArchiveExtractedFromUrl(url, "jdk", null, sha256(archive));
+
+    assertThat(root.resolve("jdk").resolve("release")).hasContent("JAVA_VERSION=\"1.8.0\"");
+  }
+
+  private void serve(HttpExchange exchange) throws IOException {
+    String header = exchange.getRequestHeaders().getFirst("Range");
+    Matcher matcher = header == null ? null : RANGE.matcher(header);
+    try (exchange) {
+      if (!rangesSupported || matcher == null || !matcher.matches()) {
+        exchange.sendResponseHeaders(200, content.length);
+        exchange.getResponseBody().write(content);
+        return;
+      }
+      long start = Long.parseLong(matcher.group(1));
+      long end = Long.parseLong(matcher.group(2));
+      ranges.add(start + "-" + end);
+      if (start > 0) {
+        // Misbehaving servers answer with a range other than the one requested.
+        start -= rangeShift;
+        end -= rangeShift;
+      }
+      if (validatorSent) {
+        exchange.getResponseHeaders().add("ETag", "\"v1\"");
+      }
+      exchange
+          .getResponseHeaders()
+          .add("Content-Range", "bytes " + start + "-" + end + "/" + content.length);
+      if (start == failFrom) {
+        exchange.sendResponseHeaders(503, -1);
+        return;
+      }
+      exchange.sendResponseHeaders(206, end - start + 1);
+      OutputStream out = exchange.getResponseBody();
+      if (start < failFrom && failFrom <= end) {
+        // Drop the connection part way through the segment.
+        out.write(content, (int) start, (int) (failFrom - start));
+        out.flush();
+        throw new IOException("simulated connection drop");
+      }
+      if (start < stallFrom && stallFrom <= end && stalls.getAndIncrement() == 0) {
+        // Keep the connection open without sending the rest of the segment.
+        out.write(content, (int) start, (int) (stallFrom - start));
+        out.flush();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return;
+      }
+      out.write(content, (int) start, (int) (end - start + 1));
+    }
+  }
+
+  private static List<Path> partFiles(Path dir) throws IOException {
+    try (Stream<Path> files = Files.list(dir)) {
+      return files.filter(f -> f.getFileName().toString().contains(".part")).toList();
+    }
+  }
+
+  private static byte[] zip(String name, String text) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+      zip.putNextEntry(new ZipEntry(name));
+      zip.write(text.getBytes(StandardCharsets.UTF_8));
+      zip.closeEntry();
+    }
+    return bytes.toByteArray();
+  }
+
+  private static String sha256(byte[] data) throws Exception {
+    return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+  }
+}
@@ -0,0 +1,78 @@
+package com.codename1.server.mcp.tools;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ToolchainRegistryTest {
+
+  @Test
+  void findsFirstConfiguredJdk8(@TempDir Path tmp) throws Exception {
+    Path jdk11 = jdk(tmp.resolve("jdk11"), "11.0.2");
+    Path jdk8 = jdk(tmp.resolve("jdk8"), "1.8.0_392");
+    Path missing = tmp.resolve("missing");
+
+    ToolchainRegistry registry =
+        ToolchainRegistry.jdk8(tmp.resolve("cache"), List.of(missing + "", jdk11 + "", jdk8 + ""));
+
+    assertThat(registry.find()).isEqualTo(jdk8);
+  }
+
+  @Test
+  void rejectsJdk8WithoutJavac(@TempDir Path tmp) throws Exception {
+    Path jre = jdk(tmp.resolve("jre8"), "1.8.0_392");
+    Files.delete(jre.resolve("bin").resolve("javac"));
+
+    assertThat(ToolchainRegistry.isJdk8(jre)).isFalse();
+  }
+
+  @Test
+  void reusesRecordedChoiceUntilCandidatesChange(@TempDir Path tmp) throws Exception {
+    Path jdk8 = tmp.resolve("jdk8");
+    Path descriptor = tmp.resolve("cache").resolve("jdk8.properties");
+    AtomicInteger verified = new AtomicInteger();
+    Predicate<Path> verifier =
+        home -> {
+          verified.incrementAndGet();
+          return ToolchainRegistry.isJdk8(home);
+        };
+    List<ToolchainRegistry.Source> sources = List.of(() -> List.of(jdk8));
+
+    assertThat(new ToolchainRegistry(descriptor, sources, verifier).find()).isNull();
+    assertThat(new ToolchainRegistry(descriptor, sources, verifier).find()).isNull();
+    assertThat(verified).hasValue(1);
+
+    // Installing a JDK at a candidate location changes its release file and the fingerprint.
+    jdk(jdk8, "1.8.0_392");
+    assertThat(new ToolchainRegistry(descriptor, sources, verifier).find()).isEqualTo(jdk8);
+    assertThat(new ToolchainRegistry(descriptor, sources, verifier).find()).isEqualTo(jdk8);
+    assertThat(verified).hasValue(2);
+  }
+
+  @Test
+  void keepsStateOfInstalledJdksInTheCache(@TempDir Path tmp) {
+    ToolchainRegistry registry = ToolchainRegistry.jdk8(tmp, List.of());
+
+    Path state = registry.stateDirectory(Path.of("/usr/lib/jvm/java-8"));
+
+    assertThat(state.getParent()).isEqualTo(tmp.resolve(ToolchainRegistry.DIRECTORY));
+    assertThat(state).isNotEqualTo(registry.stateDirectory(Path.of("/opt/jdk8")));
+  }
+
+  private static Path jdk(Path home, String version) throws IOException {
+    Path bin = Files.createDirectories(home.resolve("bin"));
+    Files.writeString(home.resolve("release"), "JAVA_VERSION=\"" + version + "\"\n");
+    for (String binary : List.of("java", "javac")) {
+      Path executable = Files.writeString(bin.resolve(binary), "#!/bin/sh\n");
+      executable.toFile().setExecutable(true);
+    }
+    return home;
+  }
+}